@@ -0,0 +1,84 @@
+package benchmarks;
+
+import graph.Graph;
+import graph.PathResult;
+import graph.RouteService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConcurrentQueryBenchmark - several threads sending point-to-point queries to one shared
+ * RouteService at once, as a server would; each thread has its own list of random pairs.
+ * Compare with -t 1 to see how the throughput scales with the number of threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class ConcurrentQueryBenchmark {
+    private static final int PAIRS = 1 << 12;
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        @Param({"ROAD"})
+        public GraphGenerator.Kind kind;
+
+        @Param({"100000"})
+        public int nodes;
+
+        RouteService routes;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            Graph graph = new Graph();
+            graph.loadGraph(GraphGenerator.generate(kind, nodes, 42).toString());
+            routes = new RouteService(graph);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            routes.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Pairs {
+        int[] origins = new int[PAIRS];
+        int[] destinations = new int[PAIRS];
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(Shared shared) {
+            Random random = new Random(Thread.currentThread().getId());
+            int n = shared.routes.getGraph().numNodes();
+            for (int i = 0; i < PAIRS; i++) {
+                origins[i] = random.nextInt(n);
+                destinations[i] = random.nextInt(n);
+            }
+        }
+    }
+
+    @Benchmark
+    public PathResult route(Shared shared, Pairs pairs) {
+        int i = pairs.next++ & (PAIRS - 1);
+        return shared.routes.route(pairs.origins[i], pairs.destinations[i]);
+    }
+}
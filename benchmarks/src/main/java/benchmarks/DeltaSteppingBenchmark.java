@@ -0,0 +1,79 @@
+package benchmarks;
+
+import graph.DeltaStepping;
+import graph.Graph;
+import graph.ShortestPathTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DeltaSteppingBenchmark - the scaling report of DeltaStepping: full shortest path trees from
+ * random sources with 1 .. 8 threads, next to ShortestPathTree.compute (Dijkstra on one thread),
+ * which does not depend on the threads parameter (run it with -p threads=1).
+ * Settings above the number of cores of the machine only measure the overhead of the extra threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class DeltaSteppingBenchmark {
+    private static final int SOURCES = 1 << 4;
+
+    @Param({"GRID", "GEOMETRIC", "ROAD"})
+    public GraphGenerator.Kind kind;
+
+    @Param({"1000000"})
+    public int nodes;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Graph graph;
+    private DeltaStepping engine;
+    private int[] sources;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        graph = new Graph();
+        graph.loadGraph(GraphGenerator.generate(kind, nodes, 42).toString());
+        engine = new DeltaStepping(graph, threads);
+        Random random = new Random(7);
+        sources = new int[SOURCES];
+        for (int i = 0; i < SOURCES; i++) {
+            sources[i] = random.nextInt(graph.numNodes());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public ShortestPathTree deltaStepping() {
+        return engine.search(sources[next++ & (SOURCES - 1)]);
+    }
+
+    @Benchmark
+    public ShortestPathTree dijkstra() {
+        return ShortestPathTree.compute(graph, sources[next++ & (SOURCES - 1)]);
+    }
+}
@@ -0,0 +1,234 @@
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+
+/**
+ * GraphGenerator - writes synthetic graphs in the NODES/ARCS text format read by Graph.loadGraph,
+ * with coordinates in the range used by CityNode (x in [0, 7), y in [0, 4)), so the same files
+ * also work in the GUI. Three kinds of graphs can be made, from 10^3 to 10^7 nodes:
+ * <ul>
+ *     <li>GRID: a square grid, every node linked to its right and lower neighbor, random costs;</li>
+ *     <li>GEOMETRIC: random points, every pair closer than a radius linked (about 6 neighbors each),
+ *     cost proportional to the distance;</li>
+ *     <li>ROAD: random points with a power-law number of links each: most nodes only reach nearby
+ *     nodes, a few hubs reach far and their links are cheaper per distance, like highways.</li>
+ * </ul>
+ * Edges are written while they are generated, so memory stays proportional to the number of nodes.
+ */
+public final class GraphGenerator {
+    /** The kinds of graphs that can be generated. */
+    public enum Kind { GRID, GEOMETRIC, ROAD }
+
+    private static final double WIDTH = 7.0; // range of x, as in CityNode
+    private static final double HEIGHT = 4.0; // range of y, as in CityNode
+    private static final double GEOMETRIC_DEGREE = 6; // average number of neighbors in a GEOMETRIC graph
+    private static final double ROAD_EXPONENT = 2.5; // P(k links) ~ k^-2.5 in a ROAD graph
+    private static final int ROAD_MAX_LINKS = 64;
+
+    private GraphGenerator() {
+    }
+
+    /**
+     * Returns a file with the requested graph, generating it only if it is not in the cache
+     * directory (java.io.tmpdir/dijkstra-graphs) yet.
+     * @param kind kind of graph
+     * @param nodes number of nodes (a GRID has the nearest square number of nodes)
+     * @param seed seed of the random numbers
+     * @return path of the NODES/ARCS file
+     * @throws IOException if the file cannot be written
+     */
+    public static Path generate(Kind kind, int nodes, long seed) throws IOException {
+        Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "dijkstra-graphs");
+        Files.createDirectories(directory);
+        Path file = directory.resolve(kind.name().toLowerCase() + "-" + nodes + "-" + seed + ".txt");
+        if (!Files.exists(file)) {
+            Path partial = Files.createTempFile(directory, "graph", ".tmp");
+            write(kind, nodes, seed, partial);
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return file;
+    }
+
+    /**
+     * Writes a graph to the given file.
+     * @param kind kind of graph
+     * @param nodes number of nodes
+     * @param seed seed of the random numbers
+     * @param file where to write it
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Kind kind, int nodes, long seed, Path file) throws IOException {
+        if (nodes < 1) {
+            throw new IllegalArgumentException("A graph needs at least one node: " + nodes);
+        }
+        Random random = new Random(seed);
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16)) {
+            switch (kind) {
+                case GRID:
+                    writeGrid(out, (int) Math.ceil(Math.sqrt(nodes)), random);
+                    break;
+                case GEOMETRIC:
+                    writeGeometric(out, nodes, random);
+                    break;
+                default:
+                    writeRoad(out, nodes, random);
+            }
+        }
+    }
+
+    private static void writeGrid(Writer out, int side, Random random) throws IOException {
+        double[] x = new double[side * side];
+        double[] y = new double[side * side];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = WIDTH * (i % side) / side;
+            y[i] = HEIGHT * (i / side) / side;
+        }
+        writeNodes(out, x, y);
+        for (int i = 0; i < x.length; i++) {
+            if (i % side + 1 < side) {
+                writeArc(out, i, i + 1, 10 + random.nextInt(90));
+            }
+            if (i + side < x.length) {
+                writeArc(out, i, i + side, 10 + random.nextInt(90));
+            }
+        }
+    }
+
+    private static void writeGeometric(Writer out, int n, Random random) throws IOException {
+        Points points = new Points(n, random);
+        writeNodes(out, points.x, points.y);
+        double radius = Math.sqrt(GEOMETRIC_DEGREE * WIDTH * HEIGHT / (Math.PI * n));
+        points.bucket(radius);
+        for (int i = 0; i < n; i++) {
+            int column = points.column(i);
+            int row = points.row(i);
+            for (int r = Math.max(0, row - 1); r <= Math.min(points.rows - 1, row + 1); r++) {
+                for (int c = Math.max(0, column - 1); c <= Math.min(points.columns - 1, column + 1); c++) {
+                    int cell = r * points.columns + c;
+                    for (int k = points.cellStart[cell]; k < points.cellStart[cell + 1]; k++) {
+                        int j = points.cellNodes[k];
+                        double distance = points.distance(i, j);
+                        if (j > i && distance <= radius) {
+                            writeArc(out, i, j, 1 + (int) (distance * 1000));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void writeRoad(Writer out, int n, Random random) throws IOException {
+        Points points = new Points(n, random);
+        writeNodes(out, points.x, points.y);
+        double cellSize = Math.sqrt(2 * WIDTH * HEIGHT / n); // about two nodes per cell
+        points.bucket(cellSize);
+        for (int i = 0; i < n; i++) {
+            // power-law number of links: k = (1 - u)^(-1 / (exponent - 1)), so most nodes get 1 or 2
+            int links = (int) Math.min(ROAD_MAX_LINKS, Math.pow(1 - random.nextDouble(), -1 / (ROAD_EXPONENT - 1)));
+            int reach = 1 + (int) Math.round(Math.sqrt(links) * Math.log(links + 1)); // in cells; hubs reach farther
+            double speed = 1 + Math.log(links) / Math.log(2); // hubs are faster per distance
+            int column = points.column(i);
+            int row = points.row(i);
+            for (int l = 0; l <= links; l++) { // link 0 is a local street, the others depend on the node
+                int spread = l == 0 ? 1 : reach;
+                int r = Math.max(0, Math.min(points.rows - 1, row + random.nextInt(2 * spread + 1) - spread));
+                int c = Math.max(0, Math.min(points.columns - 1, column + random.nextInt(2 * spread + 1) - spread));
+                int cell = r * points.columns + c;
+                int size = points.cellStart[cell + 1] - points.cellStart[cell];
+                if (size == 0) {
+                    continue;
+                }
+                int j = points.cellNodes[points.cellStart[cell] + random.nextInt(size)];
+                if (j != i) {
+                    writeArc(out, i, j, 1 + (int) (points.distance(i, j) * 1000 / (l == 0 ? 1 : speed)));
+                }
+            }
+        }
+    }
+
+    private static void writeNodes(Writer out, double[] x, double[] y) throws IOException {
+        out.write("NODES\n");
+        out.write(x.length + "\n");
+        for (int i = 0; i < x.length; i++) {
+            out.write("n" + i + " " + (float) x[i] + " " + (float) y[i] + "\n");
+        }
+        out.write("ARCS\n");
+    }
+
+    private static void writeArc(Writer out, int from, int to, int cost) throws IOException {
+        out.write("n" + from + " n" + to + " " + cost + "\n");
+    }
+
+    /**
+     * Points - random nodes, bucketed into a uniform grid of cells so that nearby nodes are found quickly.
+     */
+    private static final class Points {
+        final double[] x;
+        final double[] y;
+        double cellSize;
+        int columns, rows;
+        int[] cellStart; // nodes of cell c: cellNodes[cellStart[c] .. cellStart[c+1]-1]
+        int[] cellNodes;
+
+        Points(int n, Random random) {
+            x = new double[n];
+            y = new double[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = WIDTH * random.nextDouble();
+                y[i] = HEIGHT * random.nextDouble();
+            }
+        }
+
+        void bucket(double size) {
+            cellSize = size;
+            columns = (int) (WIDTH / size) + 1;
+            rows = (int) (HEIGHT / size) + 1;
+            cellStart = new int[columns * rows + 1];
+            for (int i = 0; i < x.length; i++) {
+                cellStart[row(i) * columns + column(i) + 1]++;
+            }
+            for (int c = 0; c < columns * rows; c++) {
+                cellStart[c + 1] += cellStart[c];
+            }
+            cellNodes = new int[x.length];
+            int[] next = cellStart.clone();
+            for (int i = 0; i < x.length; i++) {
+                cellNodes[next[row(i) * columns + column(i)]++] = i;
+            }
+        }
+
+        int column(int i) {
+            return (int) (x[i] / cellSize);
+        }
+
+        int row(int i) {
+            return (int) (y[i] / cellSize);
+        }
+
+        double distance(int i, int j) {
+            return Math.hypot(x[i] - x[j], y[i] - y[j]);
+        }
+    }
+
+    /**
+     * Writes a graph file: java benchmarks.GraphGenerator GRID|GEOMETRIC|ROAD nodes output [seed]
+     * @param args kind, number of nodes, output file and optionally the seed
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: java benchmarks.GraphGenerator GRID|GEOMETRIC|ROAD nodes output [seed]");
+            return;
+        }
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+        write(Kind.valueOf(args[0].toUpperCase()), Integer.parseInt(args[1]), seed, Paths.get(args[2]));
+    }
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import graph.HeapType;
+import graph.PriorityQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HeapBenchmark - the priority queue operations of a Dijkstra search without the graph:
+ * SIZE inserts with random keys, SIZE/2 reduceKey calls, then SIZE removeMin calls.
+ * The score is the time per operation; the heap is created once and cleared between runs.
+ * The keys are spread over 2^20 values, far more than a DialQueue is meant for, so DIAL is left
+ * out here; it is compared on real searches in SingleSourceBenchmark and QueryBenchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HeapBenchmark {
+    private static final int SIZE = 1 << 16;
+
+    @Param({"BINARY", "FOUR_ARY", "PAIRING", "RADIX"})
+    public HeapType heapType;
+
+    private PriorityQueue heap;
+    private int[] keys;
+    private int[] reduced; // node ids whose key is reduced, and by how much in reducedBy
+    private int[] reducedBy;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        heap = heapType.create(SIZE);
+        Random random = new Random(3);
+        keys = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            keys[i] = 1000 + random.nextInt(1 << 20);
+        }
+        reduced = new int[SIZE / 2];
+        reducedBy = new int[SIZE / 2];
+        for (int i = 0; i < SIZE / 2; i++) {
+            reduced[i] = random.nextInt(SIZE);
+            reducedBy[i] = 1 + random.nextInt(1000);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE * 5 / 2)
+    public long insertReduceRemove() {
+        heap.clear();
+        int[] current = keys.clone();
+        for (int i = 0; i < SIZE; i++) {
+            heap.insert(i, current[i]);
+        }
+        for (int i = 0; i < reduced.length; i++) {
+            int node = reduced[i];
+            current[node] -= reducedBy[i];
+            heap.reduceKey(node, current[node]);
+        }
+        long sum = 0;
+        while (!heap.empty()) {
+            sum += heap.removeMin();
+        }
+        return sum;
+    }
+}
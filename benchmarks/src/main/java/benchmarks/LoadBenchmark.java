@@ -0,0 +1,82 @@
+package benchmarks;
+
+import graph.Graph;
+import graph.GraphFile;
+import graph.ParallelGraphLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoadBenchmark - time to read a generated graph: the text file with Graph.loadGraph and with
+ * ParallelGraphLoader, and the same graph converted to the binary format with Graph.loadBinaryGraph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoadBenchmark {
+    @Param({"GRID", "GEOMETRIC", "ROAD"})
+    public GraphGenerator.Kind kind;
+
+    @Param({"1000", "100000"})
+    public int nodes;
+
+    private String textFile;
+    private String binaryFile;
+    private ParallelGraphLoader loader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path text = GraphGenerator.generate(kind, nodes, 42);
+        textFile = text.toString();
+        Path binary = Files.createTempFile("graph", ".bin");
+        GraphFile.convert(textFile, binary.toString(), false);
+        binaryFile = binary.toString();
+        loader = new ParallelGraphLoader();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        loader.shutdown();
+        Files.deleteIfExists(Path.of(binaryFile));
+    }
+
+    @Benchmark
+    public Graph loadText() {
+        Graph graph = new Graph();
+        graph.loadGraph(textFile);
+        return graph;
+    }
+
+    @Benchmark
+    public Graph loadTextParallel() throws IOException {
+        Graph graph = new Graph();
+        loader.load(graph, textFile, false);
+        return graph;
+    }
+
+    @Benchmark
+    public Graph loadBinary() throws IOException {
+        Graph graph = new Graph();
+        graph.loadBinaryGraph(binaryFile);
+        return graph;
+    }
+}
@@ -0,0 +1,98 @@
+package benchmarks;
+
+import graph.Graph;
+import graph.HeapType;
+import graph.PathBuffer;
+import graph.PathResult;
+import graph.RouteService;
+import graph.SearchMode;
+import graph.StorageType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QueryBenchmark - point-to-point queries between random pairs of nodes (the work done by
+ * Dijkstra.computeShortestPath, without its console output) for each search mode, returning
+ * a new PathResult or filling a reused PathBuffer (compare the two with -prof gc),
+ * with the graph arrays on the heap or off it.
+ * Each call answers the next pair of a fixed random list.
+ * Preprocessing (landmarks, contraction hierarchy) happens in the setup and is not measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+    private static final int PAIRS = 1 << 12;
+
+    @Param({"GRID", "GEOMETRIC", "ROAD"})
+    public GraphGenerator.Kind kind;
+
+    @Param({"1000", "100000"})
+    public int nodes;
+
+    @Param({"EARLY_EXIT", "BIDIRECTIONAL", "ALT"})
+    public SearchMode searchMode;
+
+    @Param({"BINARY", "AUTO"})
+    public HeapType heapType;
+
+    @Param({"HEAP"})
+    public StorageType storage;
+
+    private RouteService routes;
+    private int[] origins;
+    private int[] destinations;
+    private int next;
+    private final PathBuffer buffer = new PathBuffer();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Graph graph = new Graph();
+        graph.setStorageType(storage);
+        graph.loadGraph(GraphGenerator.generate(kind, nodes, 42).toString());
+        routes = new RouteService(graph, 1);
+        Random random = new Random(7);
+        origins = new int[PAIRS];
+        destinations = new int[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            origins[i] = random.nextInt(graph.numNodes());
+            destinations[i] = random.nextInt(graph.numNodes());
+        }
+        routes.route(origins[0], destinations[0], searchMode, heapType); // builds the heuristic, if any
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        routes.close();
+    }
+
+    @Benchmark
+    public PathResult pointToPoint() {
+        int i = next++ & (PAIRS - 1);
+        return routes.route(origins[i], destinations[i], searchMode, heapType);
+    }
+
+    @Benchmark
+    public long pointToPointIntoBuffer() {
+        int i = next++ & (PAIRS - 1);
+        return routes.route(origins[i], destinations[i], searchMode, heapType, buffer).getCost();
+    }
+}
@@ -0,0 +1,74 @@
+package benchmarks;
+
+import graph.Graph;
+import graph.HeapType;
+import graph.PathResult;
+import graph.RouteService;
+import graph.SearchMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SingleSourceBenchmark - searches that settle every node reachable from a random origin
+ * (SearchMode.FULL), for each kind of priority queue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SingleSourceBenchmark {
+    private static final int ORIGINS = 1 << 8;
+
+    @Param({"GRID", "GEOMETRIC", "ROAD"})
+    public GraphGenerator.Kind kind;
+
+    @Param({"1000", "100000"})
+    public int nodes;
+
+    @Param({"BINARY", "FOUR_ARY", "PAIRING", "DIAL", "RADIX"})
+    public HeapType heapType;
+
+    private RouteService routes;
+    private int[] origins;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Graph graph = new Graph();
+        graph.loadGraph(GraphGenerator.generate(kind, nodes, 42).toString());
+        routes = new RouteService(graph, 1);
+        Random random = new Random(7);
+        origins = new int[ORIGINS];
+        for (int i = 0; i < ORIGINS; i++) {
+            origins[i] = random.nextInt(graph.numNodes());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        routes.close();
+    }
+
+    @Benchmark
+    public PathResult settleAll() {
+        int origin = origins[next++ & (ORIGINS - 1)];
+        return routes.route(origin, origin, SearchMode.FULL, heapType);
+    }
+}
@@ -0,0 +1,500 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * AlternativeRoutes - several routes between the same two nodes instead of only the shortest one.
+ * <ul>
+ *     <li>kShortest: the k shortest loopless paths, in order of cost (Yen's algorithm);</li>
+ *     <li>penalized: a few good, clearly different routes (the penalty method), with a fixed
+ *     upper bound on the number of searches, so the latency is bounded.</li>
+ * </ul>
+ * Both start with one backward search from the destination, which gives the shortest path tree
+ * toward it: the distance of every node to the destination and the next node on the way there.
+ * The first route is read off that tree, and every later search is an A* search that uses the
+ * tree distances as its estimate and stops at the destination. Removing nodes or edges, or making
+ * edges more expensive, can only make the real remaining cost larger, so the estimate stays
+ * consistent; usually it is exact, and the search walks almost straight to the destination.
+ * The backward search stops at maxStretch times the shortest cost instead of covering the whole
+ * graph; the nodes it did not settle get that bound as their estimate, which is still consistent.
+ * An instance keeps its tables from query to query; it must only be used by one thread at a time
+ * (RouteService keeps one per thread).
+ */
+public class AlternativeRoutes {
+    /** Default factor by which penalized searches multiply the cost of an edge each time a route uses it. */
+    public static final double DEFAULT_PENALTY = 1.4;
+    /** Default limit on the cost of an alternative, relative to the shortest route. */
+    public static final double DEFAULT_MAX_STRETCH = 1.4;
+    /** Default limit on the share of an alternative's cost that lies on routes already chosen. */
+    public static final double DEFAULT_MAX_SHARING = 0.7;
+    /** Default number of penalized searches per requested alternative. */
+    public static final int DEFAULT_SEARCHES_PER_ROUTE = 3;
+
+    private final Graph graph;
+    private final SearchContext tree; // backward search from the destination
+    private final SearchContext search; // forward A* searches
+    private long treeBound; // estimate of the nodes the backward search did not settle
+    private final int[] blocked; // == blockRound: node may not be used by the current search
+    private int blockRound;
+    private final int[] penaltyHead; // first penalty entry of a node, valid if penaltyStamp == penaltyRound
+    private final int[] penaltyStamp;
+    private int penaltyRound;
+    private int[] penaltyEdge = new int[64]; // penalty entries: edge, its penalized cost, next entry of the node
+    private int[] penaltyCost = new int[64];
+    private int[] penaltyNext = new int[64];
+    private int penaltyCount;
+    private long spurCost; // cost of the path found by the last spur search
+    private int spurSettled; // nodes settled by the last spur search
+
+    private double penalty = DEFAULT_PENALTY;
+    private double maxStretch = DEFAULT_MAX_STRETCH;
+    private double maxSharing = DEFAULT_MAX_SHARING;
+    private int searchesPerRoute = DEFAULT_SEARCHES_PER_ROUTE;
+
+    /**
+     * Constructor
+     * @param graph loaded graph
+     */
+    public AlternativeRoutes(Graph graph) {
+        this.graph = graph;
+        int n = graph.numNodes();
+        tree = new SearchContext(n, HeapType.AUTO.forGraph(graph));
+        // penalized costs can be far above the largest edge cost, which a DialQueue would have to span
+        search = new SearchContext(n, HeapType.RADIX);
+        blocked = new int[n];
+        penaltyHead = new int[n];
+        penaltyStamp = new int[n];
+    }
+
+    /**
+     * Returns the number of nodes this instance was created for
+     * @return number of nodes
+     */
+    public int capacity() {
+        return blocked.length;
+    }
+
+    /**
+     * Sets the factor by which penalized searches multiply the cost of an edge each time a route uses it.
+     * @param penalty factor, larger than 1
+     */
+    public void setPenalty(double penalty) {
+        if (!(penalty > 1)) {
+            throw new IllegalArgumentException("The penalty factor must be larger than 1: " + penalty);
+        }
+        this.penalty = penalty;
+    }
+
+    /**
+     * Sets how much longer than the shortest route an alternative may be. It is also how far
+     * (relative to the shortest cost) the backward search of both kinds of queries runs.
+     * @param maxStretch largest ratio of an alternative's cost to the shortest cost, at least 1
+     */
+    public void setMaxStretch(double maxStretch) {
+        if (!(maxStretch >= 1)) {
+            throw new IllegalArgumentException("The stretch must be at least 1: " + maxStretch);
+        }
+        this.maxStretch = maxStretch;
+    }
+
+    /**
+     * Sets how much of an alternative may overlap the routes chosen before it.
+     * @param maxSharing largest share of its cost on edges of earlier routes, between 0 and 1
+     */
+    public void setMaxSharing(double maxSharing) {
+        if (!(maxSharing >= 0 && maxSharing <= 1)) {
+            throw new IllegalArgumentException("The sharing must be between 0 and 1: " + maxSharing);
+        }
+        this.maxSharing = maxSharing;
+    }
+
+    /**
+     * Sets how many penalized searches penalized may run for each route asked for.
+     * @param searchesPerRoute number of searches, at least 1
+     */
+    public void setSearchesPerRoute(int searchesPerRoute) {
+        if (searchesPerRoute < 1) {
+            throw new IllegalArgumentException("At least one search per route is needed: " + searchesPerRoute);
+        }
+        this.searchesPerRoute = searchesPerRoute;
+    }
+
+    /**
+     * Computes the k shortest loopless paths with Yen's algorithm. Every path after the first
+     * leaves the one before it at some node (the spur node) and takes the shortest way from there
+     * to the destination that avoids the earlier part of the path and the edges already taken from
+     * that point by the paths found so far. This implementation saves work in three ways:
+     * <ul>
+     *     <li>only the spur nodes from where the previous path itself deviated onward are tried
+     *     (Lawler), since the ones before were tried for an earlier path;</li>
+     *     <li>if the tree path from the spur node to the destination avoids everything that is
+     *     blocked, it is the answer and no search runs;</li>
+     *     <li>otherwise the spur search is an A* search guided by the tree, stopping at the destination.</li>
+     * </ul>
+     * @param originId id of the origin
+     * @param destinationId id of the destination
+     * @param k number of paths wanted, at least 1
+     * @return up to k paths, cheapest first (fewer if there are not that many loopless paths);
+     *         each result's settled nodes are those of the search that found it; empty if unreachable
+     */
+    public List<PathResult> kShortest(int originId, int destinationId, int k) {
+        checkQuery(originId, destinationId, k);
+        List<PathResult> results = new ArrayList<>();
+        if (!reverseTree(originId, destinationId, maxStretch)) {
+            return results;
+        }
+        List<Route> found = new ArrayList<>();
+        found.add(new Route(treePath(originId, destinationId), tree.distance(originId), 0, tree.settledNodes));
+        java.util.PriorityQueue<Route> candidates = new java.util.PriorityQueue<>(Route.ORDER);
+        Set<Route> seen = new HashSet<>(found);
+        int[] blockedNext = new int[4];
+        while (found.size() < k) {
+            Route previous = found.get(found.size() - 1);
+            int[] nodes = previous.nodes;
+            int[] common = new int[found.size()]; // length of the prefix each path shares with the previous one
+            for (int j = 0; j < common.length; j++) {
+                common[j] = commonPrefix(found.get(j).nodes, nodes);
+            }
+            blockRound++;
+            long rootCost = 0;
+            for (int i = 0; i < previous.deviation; i++) {
+                blocked[nodes[i]] = blockRound;
+                rootCost += graph.edgeCost(graph.findEdge(nodes[i], nodes[i + 1]));
+            }
+            for (int i = previous.deviation; i < nodes.length - 1; i++) {
+                int spur = nodes[i];
+                int count = 0;
+                for (int j = 0; j < common.length; j++) {
+                    if (common[j] > i && found.get(j).nodes.length > i + 1) {
+                        if (count == blockedNext.length) {
+                            blockedNext = Arrays.copyOf(blockedNext, 2 * count);
+                        }
+                        blockedNext[count++] = found.get(j).nodes[i + 1];
+                    }
+                }
+                int[] spurPath = treeSpur(spur, destinationId, blockedNext, count);
+                if (spurPath == null) {
+                    spurPath = spurSearch(spur, destinationId, blockedNext, count, false);
+                }
+                if (spurPath != null) {
+                    int[] joined = Arrays.copyOf(nodes, i + spurPath.length);
+                    System.arraycopy(spurPath, 0, joined, i, spurPath.length);
+                    Route candidate = new Route(joined, rootCost + spurCost, i, spurSettled);
+                    if (seen.add(candidate)) {
+                        candidates.add(candidate);
+                    }
+                }
+                blocked[spur] = blockRound;
+                rootCost += graph.edgeCost(graph.findEdge(spur, nodes[i + 1]));
+            }
+            Route next = candidates.poll();
+            if (next == null) {
+                break;
+            }
+            found.add(next);
+        }
+        for (Route route : found) {
+            results.add(new PathResult(route.nodes, route.cost, route.settledNodes, null));
+        }
+        return results;
+    }
+
+    /**
+     * Computes up to count routes with the penalty method: after each search, the edges of the
+     * route it found get more expensive (by the penalty factor), so the next search prefers other
+     * roads. A route is kept if its real cost is at most maxStretch times the shortest one and at
+     * most maxSharing of its cost lies on routes kept before it.
+     * The shortest route comes from the backward search, and at most searchesPerRoute * (count - 1) penalized searches run after it,
+     * each an A* search toward the destination.
+     * @param originId id of the origin
+     * @param destinationId id of the destination
+     * @param count number of routes wanted, at least 1
+     * @return the shortest route and then the alternatives, cheapest first; empty if unreachable
+     */
+    public List<PathResult> penalized(int originId, int destinationId, int count) {
+        checkQuery(originId, destinationId, count);
+        List<PathResult> results = new ArrayList<>();
+        if (!reverseTree(originId, destinationId, maxStretch)) {
+            return results;
+        }
+        long shortest = tree.distance(originId);
+        int[] first = treePath(originId, destinationId);
+        results.add(new PathResult(first, shortest, tree.settledNodes, null));
+        blockRound++; // nothing is blocked
+        penaltyRound++;
+        penaltyCount = 0;
+        Set<Long> usedEdges = new HashSet<>(); // (from, to) pairs of the routes kept so far
+        addEdges(first, usedEdges);
+        penalize(first);
+        for (int searches = 0; results.size() < count && searches < searchesPerRoute * (count - 1); searches++) {
+            int[] route = spurSearch(originId, destinationId, null, 0, true);
+            if (route == null) {
+                break;
+            }
+            penalize(route);
+            long cost = 0, shared = 0;
+            int sharedEdges = 0;
+            for (int i = 0; i + 1 < route.length; i++) {
+                int edgeCost = graph.edgeCost(graph.findEdge(route[i], route[i + 1]));
+                cost += edgeCost;
+                if (usedEdges.contains(pair(route[i], route[i + 1]))) {
+                    shared += edgeCost;
+                    sharedEdges++;
+                }
+            }
+            // a route made only of kept edges is never new, even if its edges cost nothing
+            if (cost <= maxStretch * shortest && shared <= maxSharing * cost && sharedEdges < route.length - 1) {
+                results.add(new PathResult(route, cost, spurSettled, null));
+                addEdges(route, usedEdges);
+            }
+        }
+        results.sort(Comparator.comparingLong(PathResult::getCost));
+        return results;
+    }
+
+    private void checkQuery(int originId, int destinationId, int count) {
+        if (originId < 0 || originId >= capacity() || destinationId < 0 || destinationId >= capacity()) {
+            throw new IllegalArgumentException("No node with id " + (originId < 0 || originId >= capacity() ? originId : destinationId));
+        }
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one route must be asked for: " + count);
+        }
+    }
+
+    /**
+     * Runs the backward search from the destination. Once the origin is settled at distance d,
+     * the search goes on up to stretch * d and then stops; the nodes it did not settle get the
+     * smallest key left in its heap as their estimate, which is still a lower bound.
+     * @return whether the origin can reach the destination
+     */
+    private boolean reverseTree(int originId, int destinationId, double stretch) {
+        tree.reset(HeapType.AUTO.forGraph(graph)); // edge cost updates can change the best heap
+        PriorityQueue heap = tree.heap;
+        tree.reach(destinationId, 0, -1);
+        heap.insert(destinationId, 0);
+        double radius = Double.POSITIVE_INFINITY;
+        while (!heap.empty()) {
+            if (heap.minPriority() > radius) {
+                treeBound = heap.minPriority();
+                return true;
+            }
+            int nodeId = heap.removeMin();
+            tree.settle(nodeId);
+            tree.settledNodes++;
+            long nodeDistance = tree.distance(nodeId);
+            if (nodeId == originId) {
+                radius = stretch * nodeDistance;
+            }
+            for (int edge = graph.firstReverseEdge(nodeId); edge < graph.endReverseEdge(nodeId); edge++) {
+                int neighborId = graph.reverseEdgeTarget(edge);
+                long newDistance = nodeDistance + graph.reverseEdgeCost(edge);
+                if (!tree.isKnown(neighborId) && newDistance < tree.distance(neighborId)) {
+                    tree.reach(neighborId, newDistance, nodeId);
+                    if (heap.contains(neighborId)) {
+                        heap.reduceKey(neighborId, newDistance);
+                    } else {
+                        heap.insert(neighborId, newDistance);
+                    }
+                }
+            }
+        }
+        treeBound = SearchContext.UNREACHED; // every node that can reach the destination was settled
+        return tree.isKnown(originId);
+    }
+
+    /** Lower bound on the cost from the node to the destination, SearchContext.UNREACHED if there is no path. */
+    private long estimate(int nodeId) {
+        return tree.isKnown(nodeId) ? tree.distance(nodeId) : treeBound;
+    }
+
+    /** The nodes from the given one to the destination along the backward search's tree. */
+    private int[] treePath(int nodeId, int destinationId) {
+        int length = 1;
+        for (int node = nodeId; node != destinationId; node = tree.previous(node)) {
+            length++;
+        }
+        int[] path = new int[length];
+        int i = 0;
+        for (int node = nodeId; ; node = tree.previous(node)) {
+            path[i++] = node;
+            if (node == destinationId) {
+                return path;
+            }
+        }
+    }
+
+    /**
+     * Returns the tree path from the spur node if it uses no blocked node and does not start with
+     * a blocked edge, and null otherwise. Sets spurCost and spurSettled.
+     */
+    private int[] treeSpur(int spur, int destinationId, int[] blockedNext, int blockedCount) {
+        if (!tree.isKnown(spur) || spur == destinationId || contains(blockedNext, blockedCount, tree.previous(spur))) {
+            return null;
+        }
+        for (int node = tree.previous(spur); node != -1; node = tree.previous(node)) {
+            if (blocked[node] == blockRound) {
+                return null;
+            }
+        }
+        spurCost = tree.distance(spur);
+        spurSettled = 0;
+        return treePath(spur, destinationId);
+    }
+
+    /**
+     * A* search from the spur node to the destination that skips blocked nodes, and the edges from
+     * the spur node to the nodes in blockedNext. If penalized is true, edges cost their penalized cost.
+     * @return the nodes of the path from the spur node to the destination, or null if there is none;
+     *         spurCost is set to its (penalized) cost and spurSettled to the nodes the search settled
+     */
+    private int[] spurSearch(int spur, int destinationId, int[] blockedNext, int blockedCount, boolean penalized) {
+        search.reset(search.heapType);
+        PriorityQueue heap = search.heap;
+        long estimate = estimate(spur);
+        if (estimate == SearchContext.UNREACHED) {
+            return null;
+        }
+        search.reach(spur, 0, -1);
+        heap.insert(spur, estimate);
+        while (!heap.empty()) {
+            int nodeId = heap.removeMin();
+            search.settle(nodeId);
+            search.settledNodes++;
+            if (nodeId == destinationId) {
+                spurCost = search.distance(nodeId);
+                spurSettled = search.settledNodes;
+                return search.pathTo(spur, destinationId);
+            }
+            long nodeDistance = search.distance(nodeId);
+            boolean penalizedNode = penalized && penaltyStamp[nodeId] == penaltyRound;
+            for (int edge = graph.firstEdge(nodeId); edge < graph.endEdge(nodeId); edge++) {
+                int neighborId = graph.edgeTarget(edge);
+                if (blocked[neighborId] == blockRound || search.isKnown(neighborId)
+                        || (nodeId == spur && contains(blockedNext, blockedCount, neighborId))) {
+                    continue;
+                }
+                long newDistance = nodeDistance + (penalizedNode ? penalizedCost(nodeId, edge) : graph.edgeCost(edge));
+                if (newDistance < search.distance(neighborId)) {
+                    estimate = estimate(neighborId);
+                    if (estimate == SearchContext.UNREACHED) {
+                        continue;
+                    }
+                    long key = newDistance + estimate;
+                    search.reach(neighborId, newDistance, nodeId);
+                    if (heap.contains(neighborId)) {
+                        heap.reduceKey(neighborId, key);
+                    } else {
+                        heap.insert(neighborId, key);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Multiplies the cost of every edge between consecutive nodes of the route by the penalty factor. */
+    private void penalize(int[] route) {
+        for (int i = 0; i + 1 < route.length; i++) {
+            int from = route[i];
+            if (penaltyStamp[from] != penaltyRound) {
+                penaltyStamp[from] = penaltyRound;
+                penaltyHead[from] = -1;
+            }
+            for (int edge = graph.firstEdge(from); edge < graph.endEdge(from); edge++) {
+                if (graph.edgeTarget(edge) != route[i + 1]) {
+                    continue;
+                }
+                int entry = penaltyHead[from];
+                while (entry != -1 && penaltyEdge[entry] != edge) {
+                    entry = penaltyNext[entry];
+                }
+                if (entry == -1) {
+                    if (penaltyCount == penaltyEdge.length) {
+                        penaltyEdge = Arrays.copyOf(penaltyEdge, 2 * penaltyCount);
+                        penaltyCost = Arrays.copyOf(penaltyCost, 2 * penaltyCount);
+                        penaltyNext = Arrays.copyOf(penaltyNext, 2 * penaltyCount);
+                    }
+                    entry = penaltyCount++;
+                    penaltyEdge[entry] = edge;
+                    penaltyCost[entry] = graph.edgeCost(edge);
+                    penaltyNext[entry] = penaltyHead[from];
+                    penaltyHead[from] = entry;
+                }
+                // at least one more, so zero and tiny costs grow too
+                penaltyCost[entry] = (int) Math.min(Integer.MAX_VALUE,
+                        Math.max(penaltyCost[entry] + 1L, Math.round(penaltyCost[entry] * penalty)));
+            }
+        }
+    }
+
+    /** Penalized cost of an edge of a node that has penalty entries. */
+    private int penalizedCost(int nodeId, int edge) {
+        for (int entry = penaltyHead[nodeId]; entry != -1; entry = penaltyNext[entry]) {
+            if (penaltyEdge[entry] == edge) {
+                return penaltyCost[entry];
+            }
+        }
+        return graph.edgeCost(edge);
+    }
+
+    private static void addEdges(int[] route, Set<Long> edges) {
+        for (int i = 0; i + 1 < route.length; i++) {
+            edges.add(pair(route[i], route[i + 1]));
+        }
+    }
+
+    private static long pair(int from, int to) {
+        return (long) from << 32 | to & 0xFFFFFFFFL;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int commonPrefix(int[] a, int[] b) {
+        int length = 0;
+        while (length < a.length && length < b.length && a[length] == b[length]) {
+            length++;
+        }
+        return length;
+    }
+
+    /** A path found by kShortest: its nodes, cost, the index of its spur node and the work it took. */
+    private static final class Route {
+        static final Comparator<Route> ORDER = Comparator.<Route>comparingLong(r -> r.cost)
+                .thenComparingInt(r -> r.nodes.length)
+                .thenComparing((a, b) -> Arrays.compare(a.nodes, b.nodes));
+
+        final int[] nodes;
+        final long cost;
+        final int deviation;
+        final int settledNodes;
+
+        Route(int[] nodes, long cost, int deviation, int settledNodes) {
+            this.nodes = nodes;
+            this.cost = cost;
+            this.deviation = deviation;
+            this.settledNodes = settledNodes;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Route && Arrays.equals(nodes, ((Route) other).nodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(nodes);
+        }
+    }
+}
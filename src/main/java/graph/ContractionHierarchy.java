@@ -0,0 +1,686 @@
+package graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * ContractionHierarchy - preprocessing that makes repeated point-to-point queries on a static
+ * graph very fast.
+ * Nodes are "contracted" one by one, least important first. Contracting v removes it from the
+ * graph; for every pair u -&gt; v -&gt; w whose path through v is the only shortest one
+ * (no "witness" path avoids v), a shortcut edge u -&gt; w with the same cost is added.
+ * The order of contraction is the rank of a node.
+ * A query runs Dijkstra from the origin and (backward) from the destination, but only ever
+ * moves to nodes of higher rank, so both searches settle a few hundred nodes at most.
+ * Shortcuts remember the node they skip, so the path is unpacked back into original edges.
+ * Edge costs of the hierarchy are longs: a shortcut of several large int edges may not fit in
+ * an int, and queries sum them as longs like the other search modes.
+ * The hierarchy is saved with save() and loaded with load(), so it is built only once.
+ */
+public class ContractionHierarchy {
+    private static final int MAGIC = 0x43484731; // "CHG1"
+    private static final int FORMAT_VERSION = 3; // 2: format version and graph checksum in the header; 3: long costs
+    private static final int WITNESS_SETTLE_LIMIT = 500; // nodes a witness search may settle
+
+    private final Graph graph;
+    private final int[] rank; // contraction order of every node
+    // edges to higher-ranked nodes, stored at their (lower) source: the forward search uses them
+    private final int[] upOffsets;
+    private final int[] upSources;
+    private final int[] upTargets;
+    private final long[] upCosts;
+    private final int[] upMiddle; // node skipped by a shortcut, -1 for an original edge
+    // edges from higher-ranked nodes, stored at their (lower) target: the backward search uses them
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final int[] downTargets;
+    private final long[] downCosts;
+    private final int[] downMiddle;
+    private final ThreadLocal<SearchContext> contexts = new ThreadLocal<>();
+
+    /**
+     * @param up {offsets, sources, targets, middles} of the upward edges
+     * @param upCosts costs of the upward edges
+     * @param down {offsets, sources, targets, middles} of the downward edges
+     * @param downCosts costs of the downward edges
+     */
+    private ContractionHierarchy(Graph graph, int[] rank, int[][] up, long[] upCosts, int[][] down, long[] downCosts) {
+        this.graph = graph;
+        this.rank = rank;
+        this.upOffsets = up[0];
+        this.upSources = up[1];
+        this.upTargets = up[2];
+        this.upCosts = upCosts;
+        this.upMiddle = up[3];
+        this.downOffsets = down[0];
+        this.downSources = down[1];
+        this.downTargets = down[2];
+        this.downCosts = downCosts;
+        this.downMiddle = down[3];
+    }
+
+    /**
+     * Contracts all nodes of the graph and builds the upward and downward edge arrays.
+     * @param graph loaded graph
+     * @return the hierarchy
+     */
+    public static ContractionHierarchy build(Graph graph) {
+        return new Builder(graph).build();
+    }
+
+    /**
+     * Returns the rank (contraction order) of a node
+     * @param nodeId id of the node
+     * @return rank, 0 for the node contracted first
+     */
+    public int getRank(int nodeId) {
+        return rank[nodeId];
+    }
+
+    /**
+     * Returns the number of edges of the hierarchy (original edges plus shortcuts).
+     * @return number of upward plus downward edges
+     */
+    public int numEdges() {
+        return upTargets.length + downTargets.length;
+    }
+
+    /**
+     * Returns the search context the calling thread used for its last query, for SearchStats.
+     * @return the forward context, or null if this thread has not queried yet
+     */
+    SearchContext lastContext() {
+        return contexts.get();
+    }
+
+    /**
+     * Computes the shortest path with two upward searches that meet at the highest node
+     * of the path. Each search stops once its smallest key is not below the best path found.
+     * @param originId id of the origin
+     * @param destinationId id of the destination
+     * @return the unpacked path (node ids of the original graph) and its cost
+     */
+    public PathResult query(int originId, int destinationId) {
+        PathBuffer buffer = new PathBuffer();
+        query(originId, destinationId, buffer);
+        return buffer.toPathResult();
+    }
+
+    /**
+     * Same as query(originId, destinationId), but writes the answer into a reusable buffer.
+     * @param originId id of the origin
+     * @param destinationId id of the destination
+     * @param into buffer that receives the unpacked path and its cost
+     */
+    public void query(int originId, int destinationId, PathBuffer into) {
+        SearchContext forward = SearchContext.forThread(contexts, graph, HeapType.BINARY);
+        SearchContext backward = forward.backward();
+        forward.reach(originId, 0, -1);
+        forward.heap.insert(originId, 0);
+        backward.reach(destinationId, 0, -1);
+        backward.heap.insert(destinationId, 0);
+        long best = Long.MAX_VALUE;
+        int meetingId = -1;
+        boolean forwardTurn = true;
+        while (true) {
+            boolean forwardDone = forward.heap.empty() || forward.heap.minPriority() >= best;
+            boolean backwardDone = backward.heap.empty() || backward.heap.minPriority() >= best;
+            if (forwardDone && backwardDone) {
+                break;
+            }
+            if (forwardDone) {
+                forwardTurn = false;
+            } else if (backwardDone) {
+                forwardTurn = true;
+            }
+            SearchContext current = forwardTurn ? forward : backward;
+            SearchContext other = forwardTurn ? backward : forward;
+            int[] offsets = forwardTurn ? upOffsets : downOffsets;
+            int[] next = forwardTurn ? upTargets : downSources;
+            long[] costs = forwardTurn ? upCosts : downCosts;
+            int nodeId = current.heap.removeMin();
+            current.settle(nodeId);
+            current.settledNodes++;
+            long nodeDistance = current.distance(nodeId);
+            long otherDistance = other.distance(nodeId);
+            if (otherDistance != SearchContext.UNREACHED && nodeDistance + otherDistance < best) {
+                best = nodeDistance + otherDistance;
+                meetingId = nodeId;
+            }
+            for (int edge = offsets[nodeId]; edge < offsets[nodeId + 1]; edge++) {
+                int neighborId = next[edge];
+                long newDistance = nodeDistance + costs[edge];
+                if (!current.isKnown(neighborId) && newDistance < current.distance(neighborId)) {
+                    // edge used to reach the node, for unpacking
+                    current.reach(neighborId, newDistance, edge);
+                    if (current.heap.contains(neighborId)) {
+                        current.heap.reduceKey(neighborId, newDistance);
+                    } else {
+                        current.heap.insert(neighborId, newDistance);
+                    }
+                }
+            }
+            forwardTurn = !forwardTurn;
+        }
+        int settled = forward.settledNodes + backward.settledNodes;
+        if (meetingId == -1) {
+            into.setUnreachable(settled);
+            return;
+        }
+        into.clear();
+        into.add(originId);
+        // hierarchy edges from the meeting node down to the origin, unpacked in the opposite order
+        int[] upEdges = new int[16];
+        int count = 0;
+        for (int node = meetingId; node != originId; node = upSources[forward.previous(node)]) {
+            if (count == upEdges.length) {
+                upEdges = Arrays.copyOf(upEdges, 2 * count);
+            }
+            upEdges[count++] = forward.previous(node);
+        }
+        while (count > 0) {
+            int edge = upEdges[--count];
+            unpack(upSources[edge], upTargets[edge], upMiddle[edge], into);
+        }
+        // and from the meeting node down to the destination
+        for (int node = meetingId; node != destinationId; ) {
+            int edge = backward.previous(node);
+            unpack(downSources[edge], downTargets[edge], downMiddle[edge], into);
+            node = downTargets[edge];
+        }
+        into.setFound(best, settled);
+    }
+
+    /**
+     * Appends the original nodes of the edge from -&gt; to (excluding from) to the path,
+     * replacing every shortcut by the two edges it was made of.
+     */
+    private void unpack(int from, int to, int middle, PathBuffer path) {
+        // stack of (from, to, middle) triples still to expand, last one on top
+        int[] stack = new int[48];
+        int top = 0;
+        stack[top++] = from;
+        stack[top++] = to;
+        stack[top++] = middle;
+        while (top > 0) {
+            int m = stack[--top];
+            int t = stack[--top];
+            int f = stack[--top];
+            if (m == -1) {
+                path.add(t);
+                continue;
+            }
+            if (top + 6 > stack.length) {
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+            }
+            // the middle node was contracted before both ends: f -> m is a downward edge of m,
+            // m -> t an upward edge of m. Push the second half first so the first is expanded first.
+            int second = findEdge(upOffsets, upTargets, upCosts, m, t);
+            stack[top++] = m;
+            stack[top++] = t;
+            stack[top++] = upMiddle[second];
+            int first = findEdge(downOffsets, downSources, downCosts, m, f);
+            stack[top++] = f;
+            stack[top++] = m;
+            stack[top++] = downMiddle[first];
+        }
+    }
+
+    /** The cheapest edge of node whose other end is neighbor, in one of the two edge arrays. */
+    private static int findEdge(int[] offsets, int[] ends, long[] costs, int node, int neighbor) {
+        int found = -1;
+        for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+            if (ends[e] == neighbor && (found == -1 || costs[e] < costs[found])) {
+                found = e;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Writes the hierarchy to a binary file, with a checksum of the graph's edges and costs
+     * so that load can tell whether the file belongs to the graph it is given.
+     * @param filename name of the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(String filename) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(graph.numNodes());
+            out.writeInt(graph.numEdges());
+            out.writeLong(checksum(graph));
+            for (int[] array : new int[][]{rank, upOffsets, upSources, upTargets, upMiddle,
+                    downOffsets, downSources, downTargets, downMiddle}) {
+                out.writeInt(array.length);
+                for (int value : array) {
+                    out.writeInt(value);
+                }
+            }
+            for (long[] array : new long[][]{upCosts, downCosts}) {
+                out.writeInt(array.length);
+                for (long value : array) {
+                    out.writeLong(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a hierarchy written by save.
+     * @param filename name of the file to read
+     * @param graph the graph the hierarchy was built for
+     * @return the hierarchy
+     * @throws IOException if the file cannot be read, is not a hierarchy file of this format version,
+     * was built for a different graph (or the same graph before its edge costs changed), or is corrupt
+     */
+    public static ContractionHierarchy load(String filename, Graph graph) throws IOException {
+        long fileBytes = new File(filename).length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(filename + " is not a contraction hierarchy file");
+            }
+            int formatVersion = in.readInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException(filename + " has unsupported format version " + formatVersion
+                        + "; build the hierarchy again");
+            }
+            int numNodes = in.readInt();
+            int numEdges = in.readInt();
+            if (numNodes != graph.numNodes() || numEdges != graph.numEdges()) {
+                throw new IOException(filename + " was built for a graph with " + numNodes + " nodes and "
+                        + numEdges + " edges, not " + graph.numNodes() + " and " + graph.numEdges());
+            }
+            if (in.readLong() != checksum(graph)) {
+                throw new IOException(filename + " was built for a graph with other edges or costs");
+            }
+            long bytesLeft = fileBytes - 24; // after the header
+            int n = numNodes;
+            // rank, then {offsets, sources, targets, middles} up and down, then the two cost arrays
+            int[][] arrays = new int[9][];
+            for (int i = 0; i < arrays.length; i++) {
+                // rank and the two offset arrays have one entry per node (+1); the edge arrays
+                // have as many entries as the last offset of their side says
+                long expected = i == 0 ? n : i == 1 || i == 5 ? n + 1L : arrays[i < 5 ? 1 : 5][n];
+                int length = readLength(in, expected, 4, bytesLeft, filename, i);
+                arrays[i] = new int[length];
+                for (int j = 0; j < length; j++) {
+                    arrays[i][j] = in.readInt();
+                }
+                bytesLeft -= 4 + 4L * length;
+                if (i == 1 || i == 5) {
+                    checkOffsets(arrays[i], filename);
+                }
+            }
+            long[][] costs = new long[2][];
+            for (int i = 0; i < costs.length; i++) {
+                int length = readLength(in, arrays[i == 0 ? 1 : 5][n], 8, bytesLeft, filename, arrays.length + i);
+                costs[i] = new long[length];
+                for (int j = 0; j < length; j++) {
+                    costs[i][j] = in.readLong();
+                }
+                bytesLeft -= 4 + 8L * length;
+            }
+            return new ContractionHierarchy(graph, arrays[0], Arrays.copyOfRange(arrays, 1, 5), costs[0],
+                    Arrays.copyOfRange(arrays, 5, 9), costs[1]);
+        }
+    }
+
+    /**
+     * Reads the length of the next array and checks it before anything is allocated.
+     * @param expected number of entries the array must have
+     * @param entryBytes size of one entry in the file
+     * @param bytesLeft bytes of the file after the length
+     * @param index position of the array in the file, for the message
+     * @return the length
+     * @throws IOException if the length is not the expected one or the file is too short for it
+     */
+    private static int readLength(DataInputStream in, long expected, int entryBytes, long bytesLeft,
+                                  String filename, int index) throws IOException {
+        int length = in.readInt();
+        if (length != expected || (long) entryBytes * length > bytesLeft - 4) {
+            throw new IOException(filename + " is corrupt: array " + index + " has " + length
+                    + " entries, expected " + expected);
+        }
+        return length;
+    }
+
+    /**
+     * Checks that edge offsets start at 0 and never go down.
+     * @throws IOException if they do not
+     */
+    private static void checkOffsets(int[] offsets, String filename) throws IOException {
+        if (offsets[0] != 0) {
+            throw new IOException(filename + " is corrupt: edge offsets do not start at 0");
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i] < offsets[i - 1]) {
+                throw new IOException(filename + " is corrupt: edge offsets decrease at " + i);
+            }
+        }
+    }
+
+    /**
+     * A 64-bit checksum of the graph's direction, edge offsets, targets and costs, so a hierarchy
+     * file is only loaded for the graph (and edge costs) it was built for.
+     * @param graph loaded graph
+     * @return checksum
+     */
+    static long checksum(Graph graph) {
+        long hash = graph.isDirected() ? 1 : 0;
+        int n = graph.numNodes();
+        for (int v = 0; v < n; v++) {
+            hash = mix(hash, graph.endEdge(v));
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                hash = mix(mix(hash, graph.edgeTarget(e)), graph.edgeCost(e));
+            }
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, int value) {
+        hash = (hash ^ value) * 0x100000001B3L; // FNV-1a step over a whole int
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * Builder - contracts the nodes. While it runs, every node has growable lists of its
+     * outgoing and incoming edges to nodes that are not contracted yet.
+     */
+    private static final class Builder {
+        private final Graph graph;
+        private final int n;
+        private final int[][] outTo, outMiddle;
+        private final long[][] outCost;
+        private final int[] outSize;
+        private final int[][] inFrom, inMiddle;
+        private final long[][] inCost;
+        private final int[] inSize;
+        private final int[] deletedNeighbors; // contracted neighbors, part of the priority
+        private final int[] rank;
+        // finished hierarchy edges: {source, target, cost, middle} lists
+        private final EdgeBuffer up = new EdgeBuffer();
+        private final EdgeBuffer down = new EdgeBuffer();
+        // witness search state, cleared through the touched list
+        private final long[] witnessDistance; // Long.MAX_VALUE where not reached
+        private final int[] touched;
+        private int touchedCount;
+        private final boolean[] isTarget; // out-neighbors of the node being contracted
+        private final MinHeap witnessHeap;
+
+        Builder(Graph graph) {
+            this.graph = graph;
+            n = graph.numNodes();
+            outTo = new int[n][];
+            outCost = new long[n][];
+            outMiddle = new int[n][];
+            outSize = new int[n];
+            inFrom = new int[n][];
+            inCost = new long[n][];
+            inMiddle = new int[n][];
+            inSize = new int[n];
+            deletedNeighbors = new int[n];
+            rank = new int[n];
+            witnessDistance = new long[n];
+            Arrays.fill(witnessDistance, Long.MAX_VALUE);
+            touched = new int[n];
+            isTarget = new boolean[n];
+            witnessHeap = new MinHeap(n);
+            for (int v = 0; v < n; v++) {
+                outTo[v] = new int[4];
+                outCost[v] = new long[4];
+                outMiddle[v] = new int[4];
+                inFrom[v] = new int[4];
+                inCost[v] = new long[4];
+                inMiddle[v] = new int[4];
+            }
+            for (int v = 0; v < n; v++) {
+                for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                    if (graph.edgeTarget(e) != v) {
+                        addEdge(v, graph.edgeTarget(e), graph.edgeCost(e), -1);
+                    }
+                }
+            }
+        }
+
+        ContractionHierarchy build() {
+            MinHeap order = new MinHeap(n);
+            for (int v = 0; v < n; v++) {
+                order.insert(v, priority(v));
+            }
+            int nextRank = 0;
+            while (!order.empty()) {
+                int v = order.removeMin();
+                // priorities of the remaining nodes are updated lazily: recompute before contracting
+                int priority = priority(v);
+                if (!order.empty() && priority > order.minPriority()) {
+                    order.insert(v, priority);
+                    continue;
+                }
+                contract(v, true);
+                rank[v] = nextRank++;
+            }
+            long[] upCosts = new long[up.size];
+            long[] downCosts = new long[down.size];
+            return new ContractionHierarchy(graph, rank, up.toAdjacency(n, 0, upCosts), upCosts,
+                    down.toAdjacency(n, 1, downCosts), downCosts);
+        }
+
+        /** Twice the edge difference (shortcuts added minus edges removed) plus contracted neighbors. */
+        private int priority(int v) {
+            return 2 * (contract(v, false) - outSize[v] - inSize[v]) + deletedNeighbors[v];
+        }
+
+        /**
+         * Finds the shortcuts needed to contract v; if apply is true, adds them, removes v
+         * from its neighbors' lists and moves v's edges into the hierarchy.
+         * @return number of shortcuts
+         */
+        private int contract(int v, boolean apply) {
+            int shortcuts = 0;
+            for (int i = 0; i < inSize[v]; i++) {
+                int u = inFrom[v][i];
+                long maxCost = -1;
+                for (int j = 0; j < outSize[v]; j++) {
+                    if (outTo[v][j] != u) {
+                        maxCost = Math.max(maxCost, outCost[v][j]);
+                    }
+                }
+                if (maxCost == -1) {
+                    continue; // the only way out of v leads back to u
+                }
+                int targets = 0;
+                for (int j = 0; j < outSize[v]; j++) {
+                    if (outTo[v][j] != u) {
+                        isTarget[outTo[v][j]] = true;
+                        targets++;
+                    }
+                }
+                witnessSearch(u, v, inCost[v][i] + maxCost, targets);
+                for (int j = 0; j < outSize[v]; j++) {
+                    isTarget[outTo[v][j]] = false;
+                }
+                for (int j = 0; j < outSize[v]; j++) {
+                    int w = outTo[v][j];
+                    long cost = inCost[v][i] + outCost[v][j]; // a shortcut may not fit in an int
+                    if (w != u && witnessDistance[w] > cost) {
+                        shortcuts++;
+                        if (apply) {
+                            addEdge(u, w, cost, v);
+                        }
+                    }
+                }
+                clearWitness();
+            }
+            if (apply) {
+                for (int j = 0; j < outSize[v]; j++) {
+                    int w = outTo[v][j];
+                    up.add(v, w, outCost[v][j], outMiddle[v][j]);
+                    remove(inFrom[w], inCost[w], inMiddle[w], inSize, w, v);
+                    deletedNeighbors[w]++;
+                }
+                for (int i = 0; i < inSize[v]; i++) {
+                    int u = inFrom[v][i];
+                    down.add(u, v, inCost[v][i], inMiddle[v][i]);
+                    remove(outTo[u], outCost[u], outMiddle[u], outSize, u, v);
+                    deletedNeighbors[u]++;
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Dijkstra from source in the remaining graph, not passing through skipped, until all
+         * targets (nodes marked in isTarget) are settled, the keys exceed maxCost, or
+         * WITNESS_SETTLE_LIMIT nodes are settled. Fills witnessDistance.
+         */
+        private void witnessSearch(int source, int skipped, long maxCost, int targets) {
+            touch(source, 0);
+            witnessHeap.insert(source, 0);
+            int settled = 0;
+            while (!witnessHeap.empty() && witnessHeap.minPriority() <= maxCost
+                    && settled < WITNESS_SETTLE_LIMIT && targets > 0) {
+                int x = witnessHeap.removeMin();
+                settled++;
+                if (isTarget[x]) {
+                    targets--;
+                }
+                for (int j = 0; j < outSize[x]; j++) {
+                    int y = outTo[x][j];
+                    long newDistance = witnessDistance[x] + outCost[x][j];
+                    if (y == skipped || newDistance >= witnessDistance[y]) {
+                        continue;
+                    }
+                    if (witnessDistance[y] == Long.MAX_VALUE) {
+                        touch(y, newDistance);
+                        witnessHeap.insert(y, newDistance);
+                    } else {
+                        witnessDistance[y] = newDistance;
+                        if (witnessHeap.contains(y)) {
+                            witnessHeap.reduceKey(y, newDistance);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void touch(int node, long distance) {
+            witnessDistance[node] = distance;
+            touched[touchedCount++] = node;
+        }
+
+        private void clearWitness() {
+            for (int i = 0; i < touchedCount; i++) {
+                witnessDistance[touched[i]] = Long.MAX_VALUE;
+            }
+            touchedCount = 0;
+            witnessHeap.clear();
+        }
+
+        /** Adds u -&gt; w, or lowers the cost of an existing u -&gt; w edge if the new one is cheaper. */
+        private void addEdge(int u, int w, long cost, int middle) {
+            for (int j = 0; j < outSize[u]; j++) {
+                if (outTo[u][j] == w) {
+                    if (cost < outCost[u][j]) {
+                        outCost[u][j] = cost;
+                        outMiddle[u][j] = middle;
+                        for (int i = 0; i < inSize[w]; i++) {
+                            if (inFrom[w][i] == u) {
+                                inCost[w][i] = cost;
+                                inMiddle[w][i] = middle;
+                            }
+                        }
+                    }
+                    return;
+                }
+            }
+            if (outSize[u] == outTo[u].length) {
+                outTo[u] = Arrays.copyOf(outTo[u], 2 * outSize[u]);
+                outCost[u] = Arrays.copyOf(outCost[u], 2 * outSize[u]);
+                outMiddle[u] = Arrays.copyOf(outMiddle[u], 2 * outSize[u]);
+            }
+            outTo[u][outSize[u]] = w;
+            outCost[u][outSize[u]] = cost;
+            outMiddle[u][outSize[u]] = middle;
+            outSize[u]++;
+            if (inSize[w] == inFrom[w].length) {
+                inFrom[w] = Arrays.copyOf(inFrom[w], 2 * inSize[w]);
+                inCost[w] = Arrays.copyOf(inCost[w], 2 * inSize[w]);
+                inMiddle[w] = Arrays.copyOf(inMiddle[w], 2 * inSize[w]);
+            }
+            inFrom[w][inSize[w]] = u;
+            inCost[w][inSize[w]] = cost;
+            inMiddle[w][inSize[w]] = middle;
+            inSize[w]++;
+        }
+
+        /** Removes the entry for neighbor from node's list by moving the last entry into its place. */
+        private static void remove(int[] ends, long[] costs, int[] middles, int[] sizes, int node, int neighbor) {
+            for (int j = 0; j < sizes[node]; j++) {
+                if (ends[j] == neighbor) {
+                    int last = --sizes[node];
+                    ends[j] = ends[last];
+                    costs[j] = costs[last];
+                    middles[j] = middles[last];
+                    return;
+                }
+            }
+        }
+    }
+
+    /** EdgeBuffer - growable {source, target, cost, middle} lists turned into CSR arrays at the end. */
+    private static final class EdgeBuffer {
+        private int[] sources = new int[16];
+        private int[] targets = new int[16];
+        private long[] costs = new long[16];
+        private int[] middles = new int[16];
+        int size;
+
+        void add(int source, int target, long cost, int middle) {
+            if (size == sources.length) {
+                sources = Arrays.copyOf(sources, 2 * size);
+                targets = Arrays.copyOf(targets, 2 * size);
+                costs = Arrays.copyOf(costs, 2 * size);
+                middles = Arrays.copyOf(middles, 2 * size);
+            }
+            sources[size] = source;
+            targets[size] = target;
+            costs[size] = cost;
+            middles[size] = middle;
+            size++;
+        }
+
+        /**
+         * Groups the edges by their source (keyIndex 0) or target (keyIndex 1).
+         * @param sortedCosts array of size entries that receives the costs in the same order
+         * @return {offsets, sources, targets, middles}
+         */
+        int[][] toAdjacency(int n, int keyIndex, long[] sortedCosts) {
+            int[] keys = keyIndex == 0 ? sources : targets;
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[keys[i] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] next = Arrays.copyOf(offsets, n);
+            int[][] result = {offsets, new int[size], new int[size], new int[size]};
+            for (int i = 0; i < size; i++) {
+                int pos = next[keys[i]]++;
+                result[1][pos] = sources[i];
+                result[2][pos] = targets[i];
+                sortedCosts[pos] = costs[i];
+                result[3][pos] = middles[i];
+            }
+            return result;
+        }
+    }
+}
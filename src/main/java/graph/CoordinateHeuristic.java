@@ -0,0 +1,78 @@
+package graph;
+
+import java.awt.Point;
+
+/**
+ * CoordinateHeuristic - estimates the cost between two cities as the straight-line distance
+ * between their locations on the map, multiplied by a scale (cost per pixel).
+ * The estimate is admissible and consistent as long as no edge costs less than
+ * scale times the straight-line length of the edge; forGraph computes the largest such scale.
+ * Estimates that do not fit in an int are lowered to Integer.MAX_VALUE - 1, so a distant node is
+ * never mistaken for Heuristic.UNREACHABLE; a lower bound that is lowered further stays admissible
+ * and consistent.
+ */
+public class CoordinateHeuristic implements Heuristic {
+    private final double[] x; // x coordinate of each node
+    private final double[] y; // y coordinate of each node
+    private final double scale;
+
+    /**
+     * Constructor
+     * @param graph loaded graph; the locations of its nodes are copied
+     * @param scale cost per unit of straight-line distance
+     */
+    public CoordinateHeuristic(Graph graph, double scale) {
+        if (scale < 0) {
+            throw new IllegalArgumentException("scale must not be negative");
+        }
+        this.scale = scale;
+        x = new double[graph.numNodes()];
+        y = new double[graph.numNodes()];
+        for (int i = 0; i < graph.numNodes(); i++) {
+            x[i] = graph.getNode(i).getLocation().x;
+            y[i] = graph.getNode(i).getLocation().y;
+        }
+    }
+
+    /**
+     * Creates the heuristic with the largest scale that is still admissible for this graph:
+     * the smallest ratio of edge cost to straight-line edge length.
+     * @param graph loaded graph
+     * @return heuristic for the graph
+     */
+    public static CoordinateHeuristic forGraph(Graph graph) {
+        return new CoordinateHeuristic(graph, admissibleScale(graph));
+    }
+
+    /**
+     * Returns the smallest cost / straight-line length ratio over all edges of the graph
+     * (edges between nodes at the same location are skipped), slightly reduced for rounding.
+     * @param graph loaded graph
+     * @return largest admissible scale, 0 if the graph has no edges of positive length
+     */
+    public static double admissibleScale(Graph graph) {
+        double scale = Double.POSITIVE_INFINITY;
+        for (int v = 0; v < graph.numNodes(); v++) {
+            Point from = graph.getNode(v).getLocation();
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                double length = from.distance(graph.getNode(graph.edgeTarget(e)).getLocation());
+                if (length > 0) {
+                    scale = Math.min(scale, graph.edgeCost(e) / length);
+                }
+            }
+        }
+        // shrink slightly so that floating point rounding cannot push an estimate above a real cost
+        return scale == Double.POSITIVE_INFINITY ? 0 : scale * (1 - 1e-9);
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    @Override
+    public int estimate(int nodeId, int targetId) {
+        double dx = x[nodeId] - x[targetId];
+        double dy = y[nodeId] - y[targetId];
+        return (int) Math.min(UNREACHABLE - 1, scale * Math.sqrt(dx * dx + dy * dy));
+    }
+}
@@ -0,0 +1,66 @@
+package graph;
+
+/**
+ * CountingHeap - wraps another PriorityQueue and counts the operations done on it
+ * (inserts, decrease-keys, pops and the largest size reached) for SearchStats.
+ * SearchContext only uses it while RouteMetrics is enabled, so searches without
+ * metrics run on the bare heap and pay nothing for the counting.
+ */
+final class CountingHeap implements PriorityQueue {
+    private final PriorityQueue heap;
+    int inserts; // number of insert calls since the last clear
+    int reduceKeys; // number of reduceKey calls since the last clear
+    int pops; // number of removeMin calls since the last clear
+    int peakSize; // largest size since the last clear
+
+    /**
+     * Constructor
+     * @param heap the heap that does the work
+     */
+    CountingHeap(PriorityQueue heap) {
+        this.heap = heap;
+    }
+
+    public void insert(int nodeId, long priority) {
+        heap.insert(nodeId, priority);
+        inserts++;
+        peakSize = Math.max(peakSize, heap.getSize());
+    }
+
+    public int removeMin() {
+        pops++;
+        return heap.removeMin();
+    }
+
+    public long minPriority() {
+        return heap.minPriority();
+    }
+
+    public void reduceKey(int nodeId, long newPriority) {
+        reduceKeys++;
+        heap.reduceKey(nodeId, newPriority);
+    }
+
+    public boolean contains(int nodeId) {
+        return heap.contains(nodeId);
+    }
+
+    public int getSize() {
+        return heap.getSize();
+    }
+
+    public boolean empty() {
+        return heap.empty();
+    }
+
+    /**
+     * Removes all nodes and sets the counters back to zero.
+     */
+    public void clear() {
+        heap.clear();
+        inserts = 0;
+        reduceKeys = 0;
+        pops = 0;
+        peakSize = 0;
+    }
+}
@@ -0,0 +1,195 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * DialQueue class - Dial's bucket queue: one bucket per distance, kept in a circular array.
+ * It relies on two properties of Dijkstra's search on non-negative integer costs: removeMin never
+ * returns a smaller priority than the one before (the queue is monotone), and the queued
+ * priorities are never more than the largest edge cost apart. So with more buckets than that,
+ * bucket (priority mod buckets) only ever holds nodes of one priority, insert and reduceKey are
+ * O(1) and removeMin only has to find the next non-empty bucket, which an occupancy bitmap
+ * does 64 buckets at a time.
+ * The number of buckets is a power of two; it starts small and doubles whenever the queued
+ * priorities are too far apart, so the queue needs no maximum cost up front.
+ * A priority below the last removed minimum (only possible with an inconsistent A* heuristic)
+ * is rejected with an IllegalArgumentException instead of giving wrong distances.
+ * Use it for small maximum edge costs (see HeapType.DIAL); the window and the scan get longer
+ * as the costs grow.
+ */
+public class DialQueue implements PriorityQueue {
+    private static final int INITIAL_BUCKETS = 64;
+
+    private final long[] keys;   // priority of each node id, -1 if the node is not queued
+    private final int[] next;   // next node in the same bucket, -1 at the end
+    private final int[] previous;   // previous node in the same bucket, -1 at the head
+    private int[] heads;   // first node of each bucket, -1 if the bucket is empty
+    private long[] occupied;   // bit b is set if bucket b is not empty
+    private int mask;   // number of buckets - 1
+    private long last;   // last removed minimum, 0 after clear; smaller priorities are rejected
+    private long minimum;   // no queued priority is smaller; the scan for the next minimum starts here
+    private long maximum;   // no queued priority is larger; maximum - minimum <= mask
+    private int size;   // Current size of the queue
+
+    /**
+     * Constructor to initialize the queue for node ids 0 .. max-1.
+     * @param max - Maximum size of the queue
+     */
+    public DialQueue(int max) {
+        keys = new long[max];
+        next = new int[max];
+        previous = new int[max];
+        Arrays.fill(keys, -1);
+        createBuckets(INITIAL_BUCKETS);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean empty() {
+        return size == 0;
+    }
+
+    public boolean contains(int nodeId) {
+        return keys[nodeId] >= 0;
+    }
+
+    public long minPriority() {
+        return keys[heads[firstBucket()]];
+    }
+
+    public void insert(int nodeId, long priority) {
+        if (priority < 0) {
+            throw new IllegalArgumentException("negative priority: " + priority);
+        }
+        checkMonotone(priority);
+        if (size == 0) {
+            minimum = maximum = priority;
+        }
+        size++;
+        add(nodeId, priority);
+    }
+
+    public int removeMin() {
+        int bucket = firstBucket();
+        int min = heads[bucket];
+        last = minimum = keys[min];
+        unlink(min, bucket);
+        keys[min] = -1;
+        size--;
+        return min;
+    }
+
+    public void reduceKey(int nodeId, long newPriority) {
+        checkMonotone(newPriority);
+        unlink(nodeId, (int) (keys[nodeId] & mask));
+        add(nodeId, newPriority);
+    }
+
+    public void clear() {
+        for (int word = 0; word < occupied.length; word++) {
+            for (long bits = occupied[word]; bits != 0; bits &= bits - 1) {
+                int bucket = 64 * word + Long.numberOfTrailingZeros(bits);
+                for (int node = heads[bucket]; node != -1; node = next[node]) {
+                    keys[node] = -1;
+                }
+                heads[bucket] = -1;
+            }
+            occupied[word] = 0;
+        }
+        size = 0;
+        last = 0;
+    }
+
+    /**
+     * Rejects a priority below the last removed minimum: its bucket would be taken for a later
+     * distance, so the search would silently get a wrong order.
+     */
+    private void checkMonotone(long priority) {
+        if (priority < last) {
+            throw new IllegalArgumentException("priority " + priority + " is below the last removed minimum " + last
+                    + "; a monotone queue needs a consistent heuristic");
+        }
+    }
+
+    /**
+     * Returns the bucket of the smallest priority: the first non-empty bucket at or after the
+     * one of minimum, going around the circle.
+     */
+    private int firstBucket() {
+        int start = (int) (minimum & mask);
+        int word = start >>> 6;
+        long bits = occupied[word] & (-1L << start); // buckets of the first word before start are the end of the circle
+        for (int i = 0; i <= occupied.length; i++) {
+            if (bits != 0) {
+                return 64 * word + Long.numberOfTrailingZeros(bits);
+            }
+            word = word + 1 == occupied.length ? 0 : word + 1;
+            bits = occupied[word];
+        }
+        throw new IllegalStateException("queue is empty");
+    }
+
+    /** Puts the node in the bucket of the priority, with more buckets if the priorities are too far apart. */
+    private void add(int nodeId, long priority) {
+        minimum = Math.min(minimum, priority);
+        maximum = Math.max(maximum, priority);
+        if (maximum - minimum > mask) {
+            grow(maximum - minimum);
+        }
+        keys[nodeId] = priority;
+        int bucket = (int) (priority & mask);
+        int head = heads[bucket];
+        next[nodeId] = head;
+        previous[nodeId] = -1;
+        if (head != -1) {
+            previous[head] = nodeId;
+        } else {
+            occupied[bucket >>> 6] |= 1L << bucket;
+        }
+        heads[bucket] = nodeId;
+    }
+
+    private void unlink(int nodeId, int bucket) {
+        int before = previous[nodeId];
+        int after = next[nodeId];
+        if (before != -1) {
+            next[before] = after;
+        } else {
+            heads[bucket] = after;
+            if (after == -1) {
+                occupied[bucket >>> 6] &= ~(1L << bucket);
+            }
+        }
+        if (after != -1) {
+            previous[after] = before;
+        }
+    }
+
+    /** Replaces the buckets by enough of them for priorities up to span apart, and requeues every node. */
+    private void grow(long span) {
+        if (span >= 1 << 30) {
+            throw new IllegalStateException("priorities too far apart for a bucket queue: " + span);
+        }
+        int[] oldHeads = heads;
+        int[] queued = new int[size - 1]; // the node being added is not linked yet
+        int count = 0;
+        for (int head : oldHeads) {
+            for (int node = head; node != -1; node = next[node]) {
+                queued[count++] = node;
+            }
+        }
+        createBuckets(Integer.highestOneBit((int) span) << 1);
+        for (int i = 0; i < count; i++) {
+            add(queued[i], keys[queued[i]]);
+        }
+    }
+
+    private void createBuckets(int buckets) {
+        heads = new int[buckets];
+        Arrays.fill(heads, -1);
+        occupied = new long[buckets >>> 6];
+        mask = buckets - 1;
+    }
+}
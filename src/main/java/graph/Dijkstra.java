@@ -5,42 +5,30 @@ package graph;
  *  Fill in code. It is ok to add additional helper methods / classes.
  *  To get full credit, must add a class representing a Priority queue.
  *  You can still get 90% if you do not use a priority queue.
+ *  Queries are answered by a RouteService, which keeps the state of a query in a SearchContext
+ *  that belongs to the calling thread, so several threads can call computeShortestPath
+ *  on the same instance.
  */
 
 import java.awt.*;
-import java.sql.Array;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntConsumer;
 
 public class Dijkstra {
     private Graph graph; // stores the graph of CityNode-s and edges connecting them
-    private List<Integer> shortestPath = null; // nodes that are part of the shortest path
-    private Node[] table;
-    public class Node{
-        private int path;
-        private int distance;
-        //private boolean known;
-        public Node(){
-            this.path=-1;
-            this.distance=Integer.MAX_VALUE;
-           // this.known=false;
-        }
-        public Node(int distance, int path) {
-            this.path = path;
-            this.distance = distance;
-        }
-        public int getDistance() {
-            return distance;
-        }
-
-        public void setDistance(int distance) {
-            this.distance = distance;
-        }
+    private volatile List<Integer> shortestPath = null; // nodes that are part of the last shortest path
+    private volatile RangeResult reachable = null; // nodes within the budget of the last range query
+    private volatile SearchMode searchMode = SearchMode.EARLY_EXIT; // how far the search runs
+    private volatile HeapType heapType = HeapType.AUTO; // priority queue used by the search
+    private volatile int settledNodes; // number of nodes removed from the heap by the last query
+    private volatile SearchStats lastStats; // statistics of the last query, null unless RouteMetrics is enabled
+    private final RouteService routes; // answers the queries against the loaded graph
+    private volatile RouteTask currentTask; // last query started by computeShortestPathAsync
+    private volatile CompletableFuture<RangeResult> currentRange; // last range query started by computeReachableAsync
 
-        public void setPath(int path) {
-            this.path = path;
-        }
-    }
     /** Constructor
      *
      * @param filename name of the file that contains info about nodes and edges
@@ -49,80 +37,524 @@ public class Dijkstra {
     public Dijkstra(String filename, Graph graph) {
         this.graph = graph;
         graph.loadGraph(filename);
-        this.table=new Node[graph.numNodes()];
+        this.routes = new RouteService(graph);
+    }
+
+    /**
+     * Returns the RouteService that answers the queries of this object; it can be used
+     * to set the A* heuristic or the landmarks, or to run queries in parallel.
+     * @return the route service
+     */
+    public RouteService getRouteService() {
+        return routes;
+    }
+
+    /**
+     * Sets how the search runs: FULL settles every reachable node,
+     * EARLY_EXIT (the default) stops once the destination is settled,
+     * and BIDIRECTIONAL, ASTAR and ALT are the faster point-to-point searches.
+     * @param searchMode search mode for the next queries
+     */
+    public void setSearchMode(SearchMode searchMode) {
+        this.searchMode = searchMode;
+    }
+
+    public SearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    /**
+     * Sets the priority queue implementation used by the next queries;
+     * by default AUTO, a DialQueue or RadixHeap depending on the edge costs.
+     * @param heapType type of the heap
+     */
+    public void setHeapType(HeapType heapType) {
+        this.heapType = heapType;
+    }
+
+    public HeapType getHeapType() {
+        return heapType;
+    }
+
+    /**
+     * Returns the number of nodes that the last query removed from the heap.
+     * @return number of settled nodes
+     */
+    public int getSettledNodes() {
+        return settledNodes;
+    }
+
+    /**
+     * Returns the statistics of the last query (heap operations, edges relaxed, time)
+     * @return the statistics, or null if RouteMetrics was not enabled
+     */
+    public SearchStats getLastStats() {
+        return lastStats;
     }
 
     /**
      * Returns the shortest path between the origin vertex and the destination vertex.
      * The result is stored in shortestPathEdges.
      * This function is called from GUIApp, when the user clicks on two cities.
+     * Nodes are added to the heap only when they are first reached, and in EARLY_EXIT
+     * mode the search stops as soon as the destination is removed from the heap.
      * @param origin source node
      * @param destination destination node
      * @return the ArrayList of nodeIds (of nodes on the shortest path)
      */
     public List<Integer> computeShortestPath(CityNode origin, CityNode destination) {
-        // FILL IN CODE
-        // Create and initialize Dijkstra's table
-        // Initialize the table and the heap
-        int totalCost=0;
-        MinHeap heap=new MinHeap(graph.numNodes()+1);
         int originId=graph.getId(origin);
         int destinationId=graph.getId(destination);
-        //source vertex
-        table[originId]=new Node(0,-1);
-        heap.insert(originId,0);
-        for (int i=0 ; i<table.length;i++){
-            if(i!=originId){
-                table[i]=new Node();
-                heap.insert(i,Integer.MAX_VALUE);
+        PathResult result = routes.route(originId, destinationId, searchMode, heapType);
+        settledNodes = result.getSettledNodes();
+        lastStats = result.getStats();
+        List<Integer> path = new ArrayList<>(result.getPath());
+        shortestPath = path;
+        // Print the cost of the shortest path
+        System.out.println(result.isReachable() ? "the cost for the shortest path is "+result.getCost()
+                : "there is no path between the selected cities");
+        return path;
+    }
+
+    /**
+     * Computes the k shortest loopless paths between two cities (see AlternativeRoutes.kShortest);
+     * each path can be drawn with Graph.getPath(result.getPath()).
+     * @param origin source node
+     * @param destination destination node
+     * @param k number of paths wanted
+     * @return up to k paths with their costs, cheapest first; empty if there is no path
+     */
+    public List<PathResult> computeKShortestPaths(CityNode origin, CityNode destination, int k) {
+        return routes.kShortestPaths(graph.getId(origin), graph.getId(destination), k);
+    }
+
+    /**
+     * Computes the shortest route between two cities and up to count - 1 clearly different
+     * alternatives (see AlternativeRoutes.penalized).
+     * @param origin source node
+     * @param destination destination node
+     * @param count number of routes wanted
+     * @return the routes with their costs, cheapest first; empty if there is no path
+     */
+    public List<PathResult> computeAlternativeRoutes(CityNode origin, CityNode destination, int count) {
+        return routes.alternativeRoutes(graph.getId(origin), graph.getId(destination), count);
+    }
+
+    /**
+     * Finds the cities that can be reached from a city within a budget (see RouteService.range)
+     * and keeps them for getIsochrone.
+     * @param origin source node
+     * @param budget largest cost of interest
+     * @return the reachable nodes and their costs, closest first
+     */
+    public RangeResult computeReachable(CityNode origin, int budget) {
+        RangeResult range = routes.range(graph.getId(origin), budget);
+        reachable = range;
+        return range;
+    }
+
+    /**
+     * Starts finding the cities within the budget (see RouteService.rangeAsync) on a worker thread
+     * and returns right away. A range query that is still running is cancelled, and only the
+     * result of the latest one is kept for getIsochrone; the returned future completes after it
+     * was kept. Cancelling the future stops the search.
+     * @param origin source node
+     * @param budget largest cost of interest
+     * @return future that completes with the reachable nodes and their costs, closest first
+     */
+    public CompletableFuture<RangeResult> computeReachableAsync(CityNode origin, int budget) {
+        cancelReachable();
+        CompletableFuture<RangeResult> query = routes.rangeAsync(graph.getId(origin), budget);
+        currentRange = query;
+        CompletableFuture<RangeResult> stored = query.thenApply(range -> {
+            if (currentRange == query) { // a newer range query or a reset makes this one stale
+                reachable = range;
+            }
+            return range;
+        });
+        stored.whenComplete((range, error) -> {
+            if (stored.isCancelled()) {
+                query.cancel(false);
+            }
+        });
+        return stored;
+    }
+
+    /**
+     * Cancels the range query started by computeReachableAsync, if it is still running.
+     */
+    public void cancelReachable() {
+        CompletableFuture<RangeResult> query = currentRange;
+        if (query != null) {
+            query.cancel(false);
+            currentRange = null;
+        }
+    }
+
+    /**
+     * Starts computing the shortest path on a worker thread of the RouteService and returns
+     * right away, so the caller (e.g. the Swing event thread) is not blocked.
+     * A query that is still running when a new one is started is cancelled, and only the
+     * result of the latest query is stored for getPath; the returned future completes
+     * after it was stored. Cancelling the future stops the search.
+     * @param origin source node
+     * @param destination destination node
+     * @param progressListener called on the worker thread with the number of nodes settled so far; may be null
+     * @return future that completes with the path and cost
+     */
+    public CompletableFuture<PathResult> computeShortestPathAsync(CityNode origin, CityNode destination,
+                                                                  IntConsumer progressListener) {
+        int originId=graph.getId(origin);
+        int destinationId=graph.getId(destination);
+        cancelQuery();
+        RouteTask task = routes.submit(originId, destinationId, searchMode, heapType, progressListener);
+        currentTask = task;
+        CompletableFuture<PathResult> stored = task.thenApply(result -> {
+            if (currentTask == task) { // a newer query makes this one stale
+                settledNodes = result.getSettledNodes();
+                lastStats = result.getStats();
+                shortestPath = new ArrayList<>(result.getPath());
+                System.out.println(result.isReachable() ? "the cost for the shortest path is "+result.getCost()
+                        : "there is no path between the selected cities");
+            }
+            return result;
+        });
+        stored.whenComplete((result, error) -> {
+            if (stored.isCancelled()) {
+                task.cancel(false);
             }
+        });
+        return stored;
+    }
+
+    /**
+     * Cancels the query started by computeShortestPathAsync, if it is still running.
+     */
+    public void cancelQuery() {
+        RouteTask task = currentTask;
+        if (task != null) {
+            task.cancel(false);
+            currentTask = null;
         }
+    }
+
+    /**
+     * Answers one query with the given search mode.
+     * @param graph graph to search
+     * @param context cleared per-query state
+     * @param originId id of the source node
+     * @param destinationId id of the destination node
+     * @param searchMode how the search runs
+     * @param heuristic lower bounds used by ASTAR and ALT, ignored by the other modes
+     * @return the shortest path and its cost
+     */
+    static PathResult query(Graph graph, SearchContext context, int originId, int destinationId,
+                            SearchMode searchMode, Heuristic heuristic) {
+        int meetingId = run(graph, context, originId, destinationId, searchMode, heuristic);
+        return context.extractPath(originId, meetingId, destinationId);
+    }
+
+    /**
+     * Answers one query like query(...), but writes the answer into a reusable buffer.
+     * @param into buffer that receives the path and its cost
+     */
+    static void query(Graph graph, SearchContext context, int originId, int destinationId,
+                      SearchMode searchMode, Heuristic heuristic, PathBuffer into) {
+        int meetingId = run(graph, context, originId, destinationId, searchMode, heuristic);
+        context.extractPath(originId, meetingId, destinationId, into);
+    }
+
+    /**
+     * Runs the search of the given mode.
+     * @return node where the path is read from the table(s): the meeting node of a bidirectional
+     * search, otherwise the destination; -1 if the destination was not reached
+     */
+    private static int run(Graph graph, SearchContext context, int originId, int destinationId,
+                           SearchMode searchMode, Heuristic heuristic) {
+        switch (searchMode) {
+            case BIDIRECTIONAL:
+                return bidirectionalSearch(graph, context, originId, destinationId);
+            case ASTAR:
+            case ALT:
+                astarSearch(graph, context, originId, destinationId, heuristic);
+                break;
+            default:
+                search(graph, context, originId, destinationId, searchMode);
+        }
+        return context.distance(destinationId) == SearchContext.UNREACHED ? -1 : destinationId;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from originId, filling the table of the given context.
+     * The graph is only read, so this can run on many threads at once with different contexts.
+     * @param graph graph to search
+     * @param context cleared per-query state
+     * @param originId id of the source node
+     * @param destinationId id of the destination node, used by EARLY_EXIT
+     * @param searchMode how far the search runs
+     */
+    static void search(Graph graph, SearchContext context, int originId, int destinationId, SearchMode searchMode) {
+        PriorityQueue heap = context.heap;
+        //source vertex
+        context.reach(originId, 0, -1);
+        heap.insert(originId, 0);
         // Run Dijkstra
         while (!heap.empty()) {
             int smallestNodeId = heap.removeMin();
-            Edge edge = graph.getfirstEdge(smallestNodeId);
-            while (edge != null) {
-                int neighborId = edge.getNeighbor();
-                if (heap.getPositions()[neighborId] <= heap.getSize()) {//finalized?
-                    int newDistance = table[smallestNodeId].getDistance() + edge.getCost();
-                    if (newDistance < table[neighborId].getDistance()) {
-                        //update the table
-                        table[neighborId].setDistance(newDistance);
-                        //update the path
-                        table[neighborId].setPath(smallestNodeId);
-                        //updating the min heap
+            context.settle(smallestNodeId);
+            context.checkpoint(++context.settledNodes);
+            if (smallestNodeId == destinationId && searchMode == SearchMode.EARLY_EXIT) {
+                break;
+            }
+            long smallestDistance = context.distance(smallestNodeId);
+            for (int edge = graph.firstEdge(smallestNodeId); edge < graph.endEdge(smallestNodeId); edge++) {
+                int neighborId = graph.edgeTarget(edge);
+                if (!context.isKnown(neighborId)) {//finalized?
+                    long newDistance = smallestDistance + graph.edgeCost(edge);
+                    if (newDistance < context.distance(neighborId)) {
+                        //update the table and the path
+                        context.reach(neighborId, newDistance, smallestNodeId);
+                        //updating the min heap: first time reached -> insert, otherwise reduce the key
+                        if (heap.contains(neighborId)) {
+                            heap.reduceKey(neighborId, newDistance);
+                        } else {
+                            heap.insert(neighborId, newDistance);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from sourceId until every target is settled (or nothing
+     * more can be reached), so one search answers the costs to many destinations.
+     * @param graph graph to search
+     * @param context cleared per-query state
+     * @param sourceId id of the source node
+     * @param isTarget isTarget[v] is true for the destinations; only read
+     * @param targetCount number of nodes marked in isTarget
+     */
+    static void searchToTargets(Graph graph, SearchContext context, int sourceId, boolean[] isTarget, int targetCount) {
+        PriorityQueue heap = context.heap;
+        context.reach(sourceId, 0, -1);
+        heap.insert(sourceId, 0);
+        while (!heap.empty() && targetCount > 0) {
+            int nodeId = heap.removeMin();
+            context.settle(nodeId);
+            context.checkpoint(++context.settledNodes);
+            if (isTarget[nodeId]) {
+                targetCount--;
+            }
+            long nodeDistance = context.distance(nodeId);
+            for (int edge = graph.firstEdge(nodeId); edge < graph.endEdge(nodeId); edge++) {
+                int neighborId = graph.edgeTarget(edge);
+                long newDistance = nodeDistance + graph.edgeCost(edge);
+                if (!context.isKnown(neighborId) && newDistance < context.distance(neighborId)) {
+                    context.reach(neighborId, newDistance, nodeId);
+                    if (heap.contains(neighborId)) {
                         heap.reduceKey(neighborId, newDistance);
+                    } else {
+                        heap.insert(neighborId, newDistance);
                     }
                 }
-                edge = edge.getNext();
             }
         }
-        // Compute the nodes on the shortest path by "backtracking" using the table
-        // The result should be in an instance variable called "shortestPath" and
-        // should also be returned by the method
-        shortestPath = new ArrayList<>();
-        int currentNodeId = destinationId;
-        while (currentNodeId != -1 && currentNodeId != originId) {
-            shortestPath.add(0, currentNodeId);
-            int previousNodeId = table[currentNodeId].path;
-            if (previousNodeId != -1) {
-                Edge edge = graph.getfirstEdge(previousNodeId);
-                while (edge != null) {
-                    if (edge.getNeighbor() == currentNodeId) {
-                        totalCost += edge.getCost(); // Accumulate edge cost
-                        break;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from sourceId, settling only the nodes whose distance is at most
+     * the budget: a node is only queued if its new distance fits the budget, so the search stops
+     * as soon as the smallest key left would exceed it.
+     * @param graph graph to search
+     * @param context cleared per-query state
+     * @param sourceId id of the source node
+     * @param budget largest distance of interest, at least 0
+     * @return the settled nodes, in the order they were settled (by nondecreasing distance)
+     */
+    static int[] rangeSearch(Graph graph, SearchContext context, int sourceId, int budget) {
+        PriorityQueue heap = context.heap;
+        int[] settled = new int[16];
+        context.reach(sourceId, 0, -1);
+        heap.insert(sourceId, 0);
+        while (!heap.empty()) {
+            int nodeId = heap.removeMin();
+            context.settle(nodeId);
+            if (context.settledNodes == settled.length) {
+                settled = Arrays.copyOf(settled, 2 * settled.length);
+            }
+            settled[context.settledNodes] = nodeId;
+            context.checkpoint(++context.settledNodes);
+            long nodeDistance = context.distance(nodeId);
+            for (int edge = graph.firstEdge(nodeId); edge < graph.endEdge(nodeId); edge++) {
+                int neighborId = graph.edgeTarget(edge);
+                long newDistance = nodeDistance + graph.edgeCost(edge);
+                if (newDistance <= budget && !context.isKnown(neighborId)
+                        && newDistance < context.distance(neighborId)) {
+                    context.reach(neighborId, newDistance, nodeId);
+                    if (heap.contains(neighborId)) {
+                        heap.reduceKey(neighborId, newDistance);
+                    } else {
+                        heap.insert(neighborId, newDistance);
                     }
-                    edge = edge.getNext();
                 }
             }
-            currentNodeId = previousNodeId;
         }
-        if (currentNodeId == originId) {
-            shortestPath.add(0, originId);
+        return Arrays.copyOf(settled, context.settledNodes);
+    }
+
+    /**
+     * Settles every node reachable from sourceId, following outgoing edges,
+     * or incoming edges if reverse is true (distances to sourceId instead of from it).
+     * @param graph graph to search
+     * @param context cleared per-query state
+     * @param sourceId id of the source node
+     * @param reverse whether to follow incoming edges
+     */
+    static void fullSearch(Graph graph, SearchContext context, int sourceId, boolean reverse) {
+        if (!reverse) {
+            search(graph, context, sourceId, -1, SearchMode.FULL);
+            return;
+        }
+        PriorityQueue heap = context.heap;
+        context.reach(sourceId, 0, -1);
+        heap.insert(sourceId, 0);
+        while (!heap.empty()) {
+            int nodeId = heap.removeMin();
+            context.settle(nodeId);
+            context.checkpoint(++context.settledNodes);
+            long nodeDistance = context.distance(nodeId);
+            for (int edge = graph.firstReverseEdge(nodeId); edge < graph.endReverseEdge(nodeId); edge++) {
+                int neighborId = graph.reverseEdgeTarget(edge);
+                long newDistance = nodeDistance + graph.reverseEdgeCost(edge);
+                if (!context.isKnown(neighborId) && newDistance < context.distance(neighborId)) {
+                    context.reach(neighborId, newDistance, nodeId);
+                    if (heap.contains(neighborId)) {
+                        heap.reduceKey(neighborId, newDistance);
+                    } else {
+                        heap.insert(neighborId, newDistance);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A* search: like the EARLY_EXIT search, but the heap key of a node is its distance plus
+     * the heuristic's estimate of the remaining cost, so nodes in the direction of the
+     * destination are settled first. With a consistent heuristic the distance of a node is
+     * final when it leaves the heap, and the search stops when the destination leaves it.
+     * Nodes whose estimate is Heuristic.UNREACHABLE are never queued.
+     * @param graph graph to search
+     * @param context cleared per-query state
+     * @param originId id of the source node
+     * @param destinationId id of the destination node
+     * @param heuristic consistent lower bounds on the remaining cost
+     */
+    static void astarSearch(Graph graph, SearchContext context, int originId, int destinationId, Heuristic heuristic) {
+        PriorityQueue heap = context.heap;
+        int estimate = heuristic.estimate(originId, destinationId);
+        if (estimate == Heuristic.UNREACHABLE) {
+            return;
+        }
+        context.reach(originId, 0, -1);
+        heap.insert(originId, estimate);
+        while (!heap.empty()) {
+            int smallestNodeId = heap.removeMin();
+            context.settle(smallestNodeId);
+            context.checkpoint(++context.settledNodes);
+            if (smallestNodeId == destinationId) {
+                break;
+            }
+            long smallestDistance = context.distance(smallestNodeId);
+            for (int edge = graph.firstEdge(smallestNodeId); edge < graph.endEdge(smallestNodeId); edge++) {
+                int neighborId = graph.edgeTarget(edge);
+                if (context.isKnown(neighborId)) {
+                    continue;
+                }
+                long newDistance = smallestDistance + graph.edgeCost(edge);
+                if (newDistance < context.distance(neighborId)) {
+                    estimate = heuristic.estimate(neighborId, destinationId);
+                    if (estimate == Heuristic.UNREACHABLE) {
+                        continue; // no path to the destination goes through this neighbor
+                    }
+                    context.reach(neighborId, newDistance, smallestNodeId);
+                    long key = newDistance + estimate;
+                    if (heap.contains(neighborId)) {
+                        heap.reduceKey(neighborId, key);
+                    } else {
+                        heap.insert(neighborId, key);
+                    }
+                }
+            }
         }
-        // Print the cost of the shortest path
-        System.out.println("the cost for the shortest path is "+totalCost);
-        return shortestPath;
+    }
+
+    /**
+     * Bidirectional Dijkstra: a forward search from the origin (over outgoing edges, in context)
+     * and a backward search from the destination (over incoming edges, in context.backward())
+     * take turns settling one node each. Whenever an edge reaches a node that the other search
+     * has also reached, the sum of the two distances is a candidate path length; the best one
+     * seen so far is "best". The searches stop once the smallest keys of the two heaps add up
+     * to at least best, because no path through an unsettled node can be shorter.
+     * @param graph graph to search
+     * @param context cleared per-query state; its backward context is used for the second search
+     * @param originId id of the source node
+     * @param destinationId id of the destination node
+     * @return the node where the shortest path goes from the forward to the backward tree,
+     * or -1 if the destination cannot be reached
+     */
+    static int bidirectionalSearch(Graph graph, SearchContext context, int originId, int destinationId) {
+        SearchContext backward = context.backward();
+        context.reach(originId, 0, -1);
+        context.heap.insert(originId, 0);
+        backward.reach(destinationId, 0, -1);
+        backward.heap.insert(destinationId, 0);
+        long best = Long.MAX_VALUE;
+        int meetingId = originId == destinationId ? originId : -1;
+        if (meetingId != -1) {
+            return meetingId;
+        }
+        boolean forwardTurn = true;
+        while (!context.heap.empty() && !backward.heap.empty()) {
+            if (context.heap.minPriority() + backward.heap.minPriority() >= best) {
+                break;
+            }
+            SearchContext current = forwardTurn ? context : backward;
+            SearchContext other = forwardTurn ? backward : context;
+            int nodeId = current.heap.removeMin();
+            current.settle(nodeId);
+            current.settledNodes++;
+            context.checkpoint(context.settledNodes + backward.settledNodes);
+            long nodeDistance = current.distance(nodeId);
+            int start = forwardTurn ? graph.firstEdge(nodeId) : graph.firstReverseEdge(nodeId);
+            int end = forwardTurn ? graph.endEdge(nodeId) : graph.endReverseEdge(nodeId);
+            for (int edge = start; edge < end; edge++) {
+                int neighborId = forwardTurn ? graph.edgeTarget(edge) : graph.reverseEdgeTarget(edge);
+                if (current.isKnown(neighborId)) {
+                    continue;
+                }
+                long newDistance = nodeDistance + (forwardTurn ? graph.edgeCost(edge) : graph.reverseEdgeCost(edge));
+                if (newDistance < current.distance(neighborId)) {
+                    current.reach(neighborId, newDistance, nodeId);
+                    if (current.heap.contains(neighborId)) {
+                        current.heap.reduceKey(neighborId, newDistance);
+                    } else {
+                        current.heap.insert(neighborId, newDistance);
+                    }
+                }
+                long otherDistance = other.distance(neighborId);
+                if (otherDistance != SearchContext.UNREACHED) {
+                    long candidate = current.distance(neighborId) + otherDistance;
+                    if (candidate < best) {
+                        best = candidate;
+                        meetingId = neighborId;
+                    }
+                }
+            }
+            forwardTurn = !forwardTurn;
+        }
+        return meetingId;
     }
 
     /**
@@ -133,16 +565,30 @@ public class Dijkstra {
      */
 
     public Point[][] getPath() {
+        List<Integer> shortestPath = this.shortestPath;
         if (shortestPath == null)
             return null;
         return graph.getPath(shortestPath); // delegating this task to the Graph class
     }
 
-    /** Set the shortestPath to null.
+    /**
+     * Return the region reached by the last range query as a 2D array of Points,
+     * in the same form as getPath (see Graph.getIsochrone).
+     * @return 2D array of points, null if there was no range query since the last reset
+     */
+    public Point[][] getIsochrone() {
+        RangeResult reachable = this.reachable;
+        if (reachable == null)
+            return null;
+        return graph.getIsochrone(reachable);
+    }
+
+    /** Set the shortestPath and the reachable region to null.
      *  Called when the user presses Reset button.
      */
     public void resetPath() {
         shortestPath = null;
+        reachable = null;
     }
 
-}
\ No newline at end of file
+}
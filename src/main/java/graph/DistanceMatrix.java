@@ -0,0 +1,78 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DistanceMatrix - shortest path costs from every source to every target, as computed by
+ * RouteService.distanceMatrix. Costs are stored row by row in one long array
+ * (row = source index, column = target index); paths are kept only if they were requested.
+ */
+public final class DistanceMatrix {
+    /** Cost stored for a target that cannot be reached from the source. */
+    public static final long UNREACHABLE = -1;
+
+    private final int[] sources;
+    private final int[] targets;
+    private final long[] costs;
+    private final int[][] paths; // null if paths were not requested
+
+    DistanceMatrix(int[] sources, int[] targets, long[] costs, int[][] paths) {
+        this.sources = sources;
+        this.targets = targets;
+        this.costs = costs;
+        this.paths = paths;
+    }
+
+    public int numSources() {
+        return sources.length;
+    }
+
+    public int numTargets() {
+        return targets.length;
+    }
+
+    /**
+     * Returns the cost of the shortest path from sources[row] to targets[column]
+     * @param row index into the sources
+     * @param column index into the targets
+     * @return cost, or UNREACHABLE
+     */
+    public long getCost(int row, int column) {
+        return costs[row * targets.length + column];
+    }
+
+    /**
+     * Returns all costs, row by row. The array is not copied.
+     * @return costs[row * numTargets() + column]
+     */
+    public long[] getCosts() {
+        return costs;
+    }
+
+    /**
+     * Whether paths were computed
+     * @return true if getPath can be called
+     */
+    public boolean hasPaths() {
+        return paths != null;
+    }
+
+    /**
+     * Returns the node ids on the shortest path from sources[row] to targets[column]
+     * @param row index into the sources
+     * @param column index into the targets
+     * @return node ids from the source to the target, empty if the target cannot be reached
+     */
+    public List<Integer> getPath(int row, int column) {
+        if (paths == null) {
+            throw new IllegalStateException("paths were not requested for this matrix");
+        }
+        int[] path = paths[row * targets.length + column];
+        List<Integer> result = new ArrayList<>(path.length);
+        for (int node : path) {
+            result.add(node);
+        }
+        return result;
+    }
+}
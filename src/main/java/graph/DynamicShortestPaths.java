@@ -0,0 +1,247 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * DynamicShortestPaths - the shortest path tree from one source, kept up to date while
+ * edge costs change. After a batch of cost updates only the affected part of the tree is
+ * searched again, instead of running Dijkstra from scratch:
+ * <ul>
+ *     <li>a cost decrease on edge u-&gt;v seeds v if the cheaper edge improves it;</li>
+ *     <li>a cost increase on a tree edge invalidates the subtree below it; each node of that
+ *     subtree starts again from its best neighbor outside the subtree.</li>
+ * </ul>
+ * A Dijkstra search then runs from the seeded nodes only. The repaired distances are the same as
+ * a full recomputation; where several shortest paths reach a node, the parent may be another
+ * node on one of them. Updates must come from one thread; changes made to the graph by
+ * anything other than update are detected through the graph version and cause a full recompute.
+ */
+public class DynamicShortestPaths {
+    /** Distance of a node that cannot be reached from the source. */
+    public static final long UNREACHABLE = Long.MAX_VALUE;
+
+    private final Graph graph;
+    private final int sourceId;
+    private long[] distance; // distance from the source, UNREACHABLE if not reached
+    private int[] parent; // previous node on the shortest path, -1 for the source and unreached nodes
+    private boolean[] affected; // nodes of invalidated subtrees during a repair
+    private int[] stack; // nodes of invalidated subtrees, in the order they were found
+    private PriorityQueue heap;
+    private int version; // graph version the table is valid for
+    private int settledNodes; // nodes settled by the last computation or repair
+
+    /**
+     * Computes the shortest path tree from the source.
+     * @param graph loaded graph
+     * @param sourceId id of the source node
+     */
+    public DynamicShortestPaths(Graph graph, int sourceId) {
+        if (sourceId < 0 || sourceId >= graph.numNodes()) {
+            throw new IllegalArgumentException("No node with id " + sourceId);
+        }
+        this.graph = graph;
+        this.sourceId = sourceId;
+        recompute();
+    }
+
+    /**
+     * Throws away the table and runs Dijkstra from the source again.
+     */
+    public void recompute() {
+        version = graph.getVersion();
+        int n = graph.numNodes();
+        if (distance == null || distance.length != n) {
+            distance = new long[n];
+            parent = new int[n];
+            affected = new boolean[n];
+            stack = new int[n];
+            heap = new MinHeap(n);
+        }
+        Arrays.fill(distance, UNREACHABLE);
+        Arrays.fill(parent, -1);
+        heap.clear();
+        settledNodes = 0;
+        distance[sourceId] = 0;
+        heap.insert(sourceId, 0);
+        propagate();
+    }
+
+    /**
+     * Changes the cost of one edge in the graph and repairs the table.
+     * @param edge edge index, as used by Graph.edgeCost
+     * @param cost new cost
+     */
+    public void update(int edge, int cost) {
+        update(new int[]{edge}, new int[]{cost});
+    }
+
+    /**
+     * Changes the costs of several edges in the graph and repairs the table once for all of them.
+     * @param edges edge indices, as used by Graph.edgeCost
+     * @param costs new cost of each edge
+     */
+    public void update(int[] edges, int[] costs) {
+        if (edges.length != costs.length) {
+            throw new IllegalArgumentException("Got " + edges.length + " edges but " + costs.length + " costs");
+        }
+        int startVersion = graph.getVersion();
+        for (int i = 0; i < edges.length; i++) {
+            graph.setEdgeCost(edges[i], costs[i]);
+        }
+        if (startVersion != version || graph.getVersion() != startVersion + edges.length) {
+            recompute(); // the graph was changed behind our back
+            return;
+        }
+        version = graph.getVersion();
+        heap.clear();
+        settledNodes = 0;
+        if (!graph.isDirected()) {
+            // each cost change also changed the opposite edge
+            int k = edges.length;
+            edges = Arrays.copyOf(edges, 2 * k);
+            for (int i = 0; i < k; i++) {
+                edges[k + i] = graph.reverseEdge(edges[i]);
+            }
+        }
+
+        // a tree edge that now costs more than the distances say can no longer justify
+        // its target: invalidate the subtree below it
+        int count = 0;
+        for (int edge : edges) {
+            int from = graph.edgeSource(edge);
+            int to = graph.edgeTarget(edge);
+            if (parent[to] == from && !affected[to]
+                    && distance[from] + graph.edgeCost(edge) > distance[to]) {
+                count = collectSubtree(to, count);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            distance[stack[i]] = UNREACHABLE;
+            parent[stack[i]] = -1;
+        }
+        for (int i = 0; i < count; i++) {
+            int node = stack[i];
+            for (int r = graph.firstReverseEdge(node); r < graph.endReverseEdge(node); r++) {
+                int neighbor = graph.reverseEdgeTarget(r);
+                if (!affected[neighbor]) {
+                    relax(neighbor, node, graph.reverseEdgeCost(r));
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            affected[stack[i]] = false;
+        }
+
+        // a cheaper edge may give its target a shorter path
+        for (int edge : edges) {
+            relax(graph.edgeSource(edge), graph.edgeTarget(edge), graph.edgeCost(edge));
+        }
+        propagate();
+    }
+
+    /**
+     * Adds the node and all nodes below it in the tree to the stack and marks them affected.
+     * @param root first node of the subtree
+     * @param count number of nodes already on the stack
+     * @return new number of nodes on the stack
+     */
+    private int collectSubtree(int root, int count) {
+        int next = count;
+        affected[root] = true;
+        stack[count++] = root;
+        while (next < count) {
+            int node = stack[next++];
+            for (int e = graph.firstEdge(node); e < graph.endEdge(node); e++) {
+                int child = graph.edgeTarget(e);
+                if (parent[child] == node && !affected[child]) {
+                    affected[child] = true;
+                    stack[count++] = child;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Lowers the distance of node to through the edge from node from, and queues it, if that is shorter.
+     */
+    private void relax(int from, int to, int cost) {
+        if (distance[from] == UNREACHABLE) {
+            return;
+        }
+        long newDistance = distance[from] + cost;
+        if (newDistance < distance[to]) {
+            distance[to] = newDistance;
+            parent[to] = from;
+            if (heap.contains(to)) {
+                heap.reduceKey(to, newDistance);
+            } else {
+                heap.insert(to, newDistance);
+            }
+        }
+    }
+
+    /**
+     * Runs Dijkstra from the nodes in the heap until it is empty.
+     */
+    private void propagate() {
+        while (!heap.empty()) {
+            int node = heap.removeMin();
+            settledNodes++;
+            for (int e = graph.firstEdge(node); e < graph.endEdge(node); e++) {
+                relax(node, graph.edgeTarget(e), graph.edgeCost(e));
+            }
+        }
+    }
+
+    public int getSourceId() {
+        return sourceId;
+    }
+
+    /**
+     * Returns the cost of the shortest path from the source to the node
+     * @param nodeId id of the node
+     * @return cost, or UNREACHABLE
+     */
+    public long getDistance(int nodeId) {
+        return distance[nodeId];
+    }
+
+    /**
+     * Returns the node before the given one on its shortest path
+     * @param nodeId id of the node
+     * @return id of the previous node, -1 for the source and for unreached nodes
+     */
+    public int getParent(int nodeId) {
+        return parent[nodeId];
+    }
+
+    /**
+     * Returns the shortest path from the source to the node
+     * @param nodeId id of the destination
+     * @return the path and its cost; PathResult.unreachable if there is no path
+     */
+    public PathResult getPath(int nodeId) {
+        if (distance[nodeId] == UNREACHABLE) {
+            return PathResult.unreachable(settledNodes);
+        }
+        int length = 0;
+        for (int node = nodeId; node != -1; node = parent[node]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int node = nodeId; node != -1; node = parent[node]) {
+            path[--length] = node;
+        }
+        return new PathResult(path, distance[nodeId], settledNodes, null);
+    }
+
+    /**
+     * Returns how many nodes the last recompute or update settled, which shows
+     * how much of the tree a repair had to visit.
+     * @return number of settled nodes
+     */
+    public int getSettledNodes() {
+        return settledNodes;
+    }
+}
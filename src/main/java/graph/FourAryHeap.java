@@ -0,0 +1,130 @@
+package graph;
+
+/**
+ * FourAryHeap class - a min-heap where every element has up to four children.
+ * The tree is half as deep as a binary heap, so insert and reduceKey move fewer levels,
+ * and the four children of an element are next to each other in memory.
+ * Node ids and distances are kept in parallel int and long arrays; the root is at index 0
+ * and the children of i are at 4i+1 .. 4i+4.
+ */
+public class FourAryHeap implements PriorityQueue {
+    private final int[] ids;   // node id stored at each heap index
+    private final long[] keys;   // distance stored at each heap index
+    private final int[] positions;   // heap index + 1 of each node id, 0 if the node is not in the heap
+    private int size;   // Current size of the heap
+
+    /**
+     * Constructor to initialize the heap for node ids 0 .. max-1.
+     * @param max - Maximum size of the heap
+     */
+    public FourAryHeap(int max) {
+        ids = new int[max];
+        keys = new long[max];
+        positions = new int[max];
+        size = 0;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean empty() {
+        return size == 0;
+    }
+
+    public long minPriority() {
+        return keys[0];
+    }
+
+    public boolean contains(int nodeId) {
+        return positions[nodeId] != 0;
+    }
+
+    public void insert(int nodeId, long priority) {
+        if (size >= ids.length) {
+            throw new IllegalArgumentException("heap is full");
+        }
+        pushup(size++, nodeId, priority);
+    }
+
+    public int removeMin() {
+        int min = ids[0];
+        positions[min] = 0;
+        size--;
+        if (size > 0) {
+            pushdown(0, ids[size], keys[size]);
+        }
+        return min;
+    }
+
+    public void reduceKey(int nodeId, long newPriority) {
+        pushup(positions[nodeId] - 1, nodeId, newPriority);
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[ids[i]] = 0;
+        }
+        size = 0;
+    }
+
+    /**
+     * Places the node at the given index or above it, moving larger parents down
+     * into the hole instead of swapping at every level.
+     * @param index - index of the hole to start from
+     * @param nodeId - Node ID to place
+     * @param key - its distance
+     */
+    private void pushup(int index, int nodeId, long key) {
+        while (index > 0) {
+            int parent = (index - 1) >> 2;
+            if (keys[parent] <= key) {
+                break;
+            }
+            move(parent, index);
+            index = parent;
+        }
+        set(index, nodeId, key);
+    }
+
+    /**
+     * Places the node at the given index or below it, moving the smallest child up
+     * into the hole while it is smaller than the node.
+     * @param index - index of the hole to start from
+     * @param nodeId - Node ID to place
+     * @param key - its distance
+     */
+    private void pushdown(int index, int nodeId, long key) {
+        while (true) {
+            int first = 4 * index + 1;
+            if (first >= size) {
+                break;
+            }
+            int last = Math.min(first + 4, size);
+            int smallest = first;
+            for (int c = first + 1; c < last; c++) {
+                if (keys[c] < keys[smallest]) {
+                    smallest = c;
+                }
+            }
+            if (keys[smallest] >= key) {
+                break;
+            }
+            move(smallest, index);
+            index = smallest;
+        }
+        set(index, nodeId, key);
+    }
+
+    private void move(int from, int to) {
+        ids[to] = ids[from];
+        keys[to] = keys[from];
+        positions[ids[to]] = to + 1;
+    }
+
+    private void set(int index, int nodeId, long key) {
+        ids[index] = nodeId;
+        keys[index] = key;
+        positions[nodeId] = index + 1;
+    }
+}
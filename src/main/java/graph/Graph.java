@@ -10,7 +10,8 @@ import java.awt.*;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.sql.SQLOutput;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,12 +21,37 @@ public class Graph {
     private int numNodes;     // total number of nodes
     private int numEdges; // total number of edges
     private CityNode[] nodes; // array of nodes of the graph
-    private Edge[] adjacencyList; // adjacency list; for each vertex stores a linked list of edges
     private Map<String, Integer> labelsToIndices; // a HashMap that maps each city to the corresponding node id  // like san francisco,0 / LA, 1
 
-    public Edge[] getAdjacencyList() {
-        return adjacencyList;
-    }
+    // x and y of every node as given in the file (x0, y0, x1, y1, ...), and the adjacency in
+    // compressed sparse row (CSR) form: the outgoing edges of node v are the indices
+    // offsets[v] .. offsets[v+1]-1 into targets and costs.
+    // Built once by buildAdjacency() at the end of loadGraph (or given to setGraph); afterwards only costs change (setEdgeCost).
+    // An edge costs 8 bytes (one int in each array) and no per-edge objects are created.
+    // Incoming edges are kept in the same form; for an undirected graph they are the same arrays.
+    // The arrays are on the heap or in direct buffers, depending on storageType.
+    // Loads and updates hold the lock of this object and change version last, so a thread that
+    // reads the version (as every query does first) sees the storage and maxEdgeCost written with it.
+    private GraphStorage storage;
+    private StorageType storageType = StorageType.HEAP; // used for the next load
+    private volatile int maxEdgeCost; // no edge costs more; used to choose the heap (HeapType.AUTO)
+    private int[] reverseEdges; // reverseEdges[e] = index of forward edge e in the reverse arrays; built on first update
+    private boolean directed; // false if every arc of the file was added in both directions
+    private volatile SpatialIndex pixelIndex; // node locations on the map image, built on first getNode(Point)
+    private volatile SpatialIndex coordinateIndex; // node coordinates from the file, built on first use
+    private volatile int version; // changes every time the graph is loaded or modified
+    private volatile int geometryVersion; // changes only when the nodes or edges themselves change (a load)
+
+    // nodes (addNode), coordinates and edges (addEdge) collected while the file is being read;
+    // the graph itself only changes in buildAdjacency(), and these are released after it
+    private CityNode[] loadedNodes;
+    private int loadedNodeCount;
+    private Map<String, Integer> loadedLabels;
+    private int loadedEdgeCount;
+    private double[] coordinates;
+    private int[] edgeSources;
+    private int[] edgeTargets;
+    private int[] edgeCosts;
 
     /**
      * Read graph info from the given file, and create nodes and edges of
@@ -34,57 +60,255 @@ public class Graph {
      * after that we have the number of the nodes
      * and then check if the line is for ARCS
      * if so we read adges and add them to the graph
+     * once all the edges are read, the adjacency arrays are built
+     * Every arc is added in both directions.
      * @param filename name of the file that has nodes and edges
+     * @throws UncheckedIOException if the file cannot be read, or wrapping a GraphFormatException
+     *         if it is malformed; the graph is then left as it was
      */
     public void loadGraph(String filename) {//after adding the edge from sf to LA, then add edge from LA to SF
-        // FILL IN CODE
-        labelsToIndices=new HashMap<>();
+        loadGraph(filename, false);
+    }
+
+    /**
+     * Read graph info from the given file, like loadGraph(filename).
+     * The file is read into temporary arrays and the graph is only replaced once all of it
+     * has been read, so a bad file leaves the previous graph and version in place.
+     * Holds the same lock as setEdgeCost, so an update waits for the load to finish.
+     * @param filename name of the file that has nodes and edges
+     * @param directed if true, an arc "A B cost" is only an edge from A to B;
+     *                 otherwise it is also added from B to A
+     * @throws UncheckedIOException if the file cannot be read, or wrapping a GraphFormatException
+     *         if it is malformed (checked like ParallelGraphLoader, with the same messages)
+     */
+    public synchronized void loadGraph(String filename, boolean directed) {
+        loadedLabels=new HashMap<>();
+        loadedNodeCount=0;
+        loadedEdgeCount=0;
+        edgeSources=new int[16];
+        edgeTargets=new int[16];
+        edgeCosts=new int[16];
         try( BufferedReader bf= new BufferedReader(new FileReader(filename))){
+           // checked the same way as ParallelGraphLoader, with the same messages and line numbers
            String line= bf.readLine();
-           if(line.equals("NODES")){
-               int len=Integer.parseInt(bf.readLine());
-               nodes= new CityNode[len];
-               for(int i=0;i<len;i++){
-                    String[] info=bf.readLine().split(" ");
-                    CityNode node= new CityNode(info[0],Double.parseDouble(info[1]),Double.parseDouble(info[2]));
-                   labelsToIndices.put(info[0],i);
-                    addNode(node);
-               }
-               line=bf.readLine();
+           if(line==null || !line.trim().equals("NODES")){
+               throw new GraphFormatException(filename,1,"expected NODES");
            }
-            adjacencyList=new Edge[numNodes];
-           if(line.equals("ARCS")){
+           int len;
+           try{
                line=bf.readLine();
-               while (line!=null){
-                   String[] info=line.split(" ");
-                   int id = labelsToIndices.get(info[0]);
-                   int neighborId=labelsToIndices.get(info[1]);
-                   Edge ed= new Edge(neighborId);
-                   ed.setCost(Integer.parseInt(info[2]));
-                   Edge ed2= new Edge(id);
-                   ed2.setCost(Integer.parseInt(info[2]));
-                   addEdge(id,ed);
-                   addEdge(neighborId,ed2);
-                   line=bf.readLine();
+               len=line==null ? -1 : Integer.parseInt(line.trim());
+           }
+           catch (NumberFormatException e){
+               len=-1;
+           }
+           if(len<0){
+               throw new GraphFormatException(filename,2,"expected the number of nodes");
+           }
+           loadedNodes= new CityNode[len];
+           coordinates= new double[2*len];
+           for(int i=0;i<len;i++){
+                line=bf.readLine();
+                String[] info=fields(line);
+                if(info.length!=3){
+                    throw new GraphFormatException(filename,i+3,"expected \"city x y\" but found \""+(line==null?"":line)+"\"");
+                }
+                try{
+                    coordinates[2*i]=Double.parseDouble(info[1]);
+                    coordinates[2*i+1]=Double.parseDouble(info[2]);
+                }
+                catch (NumberFormatException e){
+                    throw new GraphFormatException(filename,i+3,"coordinates are not numbers: \""+line+"\"");
+                }
+                if(loadedLabels.putIfAbsent(info[0],i)!=null){
+                    throw new GraphFormatException(filename,i+3,"duplicate city \""+info[0]+"\"");
+                }
+                CityNode node= new CityNode(info[0],coordinates[2*i],coordinates[2*i+1]);
+                addNode(node);
+           }
+           line=bf.readLine();
+           if(line!=null && !line.trim().equals("ARCS")){
+               throw new GraphFormatException(filename,len+3,"expected ARCS but found \""+line+"\"");
+           }
+           int lineNumber=len+4; // NODES, count, the nodes and ARCS come first
+           line=line==null ? null : bf.readLine();
+           while (line!=null){
+               String[] info=fields(line);
+               if(info.length==3){
+                   Integer id = loadedLabels.get(info[0]);
+                   Integer neighborId=loadedLabels.get(info[1]);
+                   if(id==null || neighborId==null){
+                       throw new GraphFormatException(filename,lineNumber,"unknown city \""+(id==null?info[0]:info[1])+"\"");
+                   }
+                   int cost=parseCost(info[2]);
+                   if(cost<0){
+                       throw new GraphFormatException(filename,lineNumber,"cost \""+info[2]+"\" is not a non-negative integer");
+                   }
+                   addEdge(id,neighborId,cost);
+                   if(!directed){
+                       addEdge(neighborId,id,cost);
+                   }
+               }
+               else if(info.length!=0){ // empty lines are skipped
+                   throw new GraphFormatException(filename,lineNumber,"expected \"city city cost\" but found \""+line.trim()+"\"");
                }
+               line=bf.readLine();
+               lineNumber++;
            }
+           buildAdjacency(directed);
        }
        catch (IOException e){
-           System.err.println(e);
+           throw new UncheckedIOException(e);
+       }
+       finally {
+           // released whether or not the file could be read
+           loadedNodes=null;
+           loadedLabels=null;
+           coordinates=null;
+           edgeSources=null;
+           edgeTargets=null;
+           edgeCosts=null;
        }
+    }
 
+    /**
+     * Splits a line of the graph file at spaces, tabs and carriage returns.
+     * @param line the line, may be null at the end of the file
+     * @return the fields, none for an empty line
+     */
+    private static String[] fields(String line) {
+        String trimmed = line == null ? "" : line.trim();
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("[ \t\r]+");
     }
 
     /**
-     * Add a node to the array of nodes.
-     * Increment numNodes variable.
-     * Called from loadGraph.
+     * Parses an edge cost: only digits, no sign, at most Integer.MAX_VALUE.
+     * @param text the cost field
+     * @return the cost, or -1 if the field is not such a number
+     */
+    private static int parseCost(String text) {
+        if (text.length() > 10) {
+            return -1;
+        }
+        long cost = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            cost = 10 * cost + digit;
+        }
+        return cost > Integer.MAX_VALUE ? -1 : (int) cost;
+    }
+
+    /**
+     * Read the graph from a binary file written by GraphFile (see GraphFile.convert).
+     * The file is memory-mapped and its arrays are copied in bulk, so no text is parsed.
+     * @param filename name of the binary graph file
+     * @throws IOException if the file cannot be read or is not a binary graph file
+     */
+    public void loadBinaryGraph(String filename) throws IOException {
+        GraphFile.read(this, filename);
+    }
+
+    /**
+     * Replaces the whole graph with already built arrays. Called by GraphFile and ParallelGraphLoader.
+     * @param nodes the nodes
+     * @param coordinates x and y of every node, as given in the original file
+     * @param adjacency {offsets, targets, costs}
+     * @param reverseAdjacency {offsets, targets, costs} of the incoming edges; ignored if not directed
+     * @param directed whether the edges were loaded in one direction only
+     */
+    synchronized void setGraph(CityNode[] nodes, double[] coordinates, int[][] adjacency, int[][] reverseAdjacency, boolean directed) {
+        setGraph(nodes, GraphStorage.create(storageType, coordinates, adjacency, directed ? reverseAdjacency : null), directed);
+    }
+
+    /**
+     * Replaces the whole graph with an already built storage. Called by GraphFile.
+     * @param nodes the nodes
+     * @param storage coordinates and edges of the nodes; has reverse arrays if directed
+     * @param directed whether the edges were loaded in one direction only
+     */
+    synchronized void setGraph(CityNode[] nodes, GraphStorage storage, boolean directed) {
+        this.nodes = nodes;
+        this.numNodes = nodes.length;
+        this.labelsToIndices = new HashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            labelsToIndices.put(nodes[i].getCity(), i);
+        }
+        this.directed = directed;
+        this.reverseEdges = null;
+        this.pixelIndex = null;
+        this.coordinateIndex = null;
+        this.storage = storage;
+        this.numEdges = storage.offset(numNodes);
+        this.maxEdgeCost = findMaxEdgeCost();
+        geometryVersion++;
+        version++; // last: publishes the new graph
+    }
+
+    /**
+     * Chooses where the coordinates and edge arrays are kept (see StorageType). A loaded graph is
+     * copied to the new storage right away, and the following loads use it too. Queries that are
+     * running keep reading the old arrays, which stay valid until they are garbage collected.
+     * @param storageType HEAP (the default) or OFF_HEAP
+     */
+    public synchronized void setStorageType(StorageType storageType) {
+        if (storageType == null) {
+            throw new IllegalArgumentException("storageType must not be null");
+        }
+        this.storageType = storageType;
+        if (storage != null && storage.type() != storageType) {
+            storage = storage.convert(storageType);
+            version++;
+        }
+    }
+
+    /**
+     * Returns where the coordinates and edge arrays are kept
+     * @return the storage type of the graph
+     */
+    public StorageType getStorageType() {
+        return storageType;
+    }
+
+    /**
+     * Returns the memory taken by the coordinates and the edge arrays (not by the CityNodes),
+     * on the heap or outside it depending on the storage type.
+     * @return number of bytes, 0 if no graph is loaded
+     */
+    public long getStorageBytes() {
+        GraphStorage current = storage;
+        return current == null ? 0 : current.bytes();
+    }
+
+    /**
+     * Returns the x coordinate of the node as given in the graph file (not the pixel location).
+     * @param nodeId id of the node
+     * @return x coordinate
+     */
+    public double getX(int nodeId) {
+        return storage.coordinate(2 * nodeId);
+    }
+
+    /**
+     * Returns the y coordinate of the node as given in the graph file (not the pixel location).
+     * @param nodeId id of the node
+     * @return y coordinate
+     */
+    public double getY(int nodeId) {
+        return storage.coordinate(2 * nodeId + 1);
+    }
+
+    /**
+     * Add a node to the nodes being loaded.
+     * Called from loadGraph; the node is part of the graph once the whole file has been read.
      * @param node a CityNode to add to the graph
      */
-    public void addNode(CityNode node) {
+    private void addNode(CityNode node) {
         // FILL IN CODE
-        nodes[numNodes] = node;
-        numNodes++;
+        loadedNodes[loadedNodeCount] = node;
+        loadedNodeCount++;
     }
 
     /**
@@ -96,21 +320,316 @@ public class Graph {
     }
 
     /**
-     * Adds the edge to the linked list for the given nodeId
+     * Adds a directed edge from nodeId to neighborId.
      * Called from loadGraph.
-     * this method adds to the beginning of the linked list
-     * and increment the number of edges
+     * The edge is kept in a temporary list until buildAdjacency() is called,
+     * and the number of loaded edges is incremented
+     * @param nodeId id of the node where the edge starts
+     * @param neighborId id of the node where the edge goes
+     * @param cost cost of the edge
+     */
+    private void addEdge(int nodeId, int neighborId, int cost) {
+        if (loadedEdgeCount == edgeSources.length) {
+            int newLength = 2 * edgeSources.length;
+            edgeSources = Arrays.copyOf(edgeSources, newLength);
+            edgeTargets = Arrays.copyOf(edgeTargets, newLength);
+            edgeCosts = Arrays.copyOf(edgeCosts, newLength);
+        }
+        edgeSources[loadedEdgeCount] = nodeId;
+        edgeTargets[loadedEdgeCount] = neighborId;
+        edgeCosts[loadedEdgeCount] = cost;
+        loadedEdgeCount++;
+    }
+
+    /**
+     * Builds the offsets/targets/costs arrays from the edges added by addEdge,
+     * and the reverse arrays if the graph is directed, and replaces the graph with them (setGraph).
+     * @param directed whether the edges were loaded in one direction only
+     */
+    private void buildAdjacency(boolean directed) {
+        int n = loadedNodeCount;
+        int m = loadedEdgeCount;
+        int[][] adjacency = {new int[n + 1], new int[m], new int[m]};
+        fillAdjacency(edgeSources, edgeTargets, adjacency[0], adjacency[1], adjacency[2]);
+        int[][] reverseAdjacency = null;
+        if (directed) {
+            reverseAdjacency = new int[][]{new int[n + 1], new int[m], new int[m]};
+            fillAdjacency(edgeTargets, edgeSources, reverseAdjacency[0], reverseAdjacency[1], reverseAdjacency[2]);
+        }
+        setGraph(loadedNodes, coordinates, adjacency, reverseAdjacency, directed);
+    }
+
+    /**
+     * Counts the out-degree of every node, turns the counts into start offsets
+     * (prefix sum) and then places every edge into its node's range.
+     * Edges of a node keep the order in which they were added.
+     * @param from node where each collected edge is stored
+     * @param to node each collected edge points to
+     * @param offsets array of loadedNodeCount+1 zeros to fill
+     * @param targets array of loadedEdgeCount to fill
+     * @param costs array of loadedEdgeCount to fill
+     */
+    private void fillAdjacency(int[] from, int[] to, int[] offsets, int[] targets, int[] costs) {
+        int n = loadedNodeCount;
+        for (int i = 0; i < loadedEdgeCount; i++) {
+            offsets[from[i] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < loadedEdgeCount; i++) {
+            int pos = next[from[i]]++;
+            targets[pos] = to[i];
+            costs[pos] = edgeCosts[i];
+        }
+    }
+
+    /**
+     * Return the number of (directed) edges in the graph
+     * @return number of edges
+     */
+    public int numEdges() {
+        return numEdges;
+    }
+
+    private int findMaxEdgeCost() {
+        int max = 0;
+        for (int e = 0; e < numEdges; e++) {
+            max = Math.max(max, storage.cost(e));
+        }
+        return max;
+    }
+
+    /**
+     * Returns the largest edge cost of the graph, as found by loadGraph. After setEdgeCost it is
+     * an upper bound: it grows with the new costs but does not go down.
+     * @return largest edge cost, 0 if there are no edges
+     */
+    public int getMaxEdgeCost() {
+        return maxEdgeCost;
+    }
+
+    /**
+     * Index of the first outgoing edge of the node. The outgoing edges of nodeId are
+     * firstEdge(nodeId) .. endEdge(nodeId)-1, and are read with edgeTarget and edgeCost:
+     * <pre>
+     * for (int e = graph.firstEdge(v); e &lt; graph.endEdge(v); e++) {
+     *     int neighbor = graph.edgeTarget(e);
+     *     int cost = graph.edgeCost(e);
+     * }
+     * </pre>
      * @param nodeId id of the node
-     * @param edge edge to add
+     * @return index of the first edge of the node
      */
-    public void addEdge(int nodeId, Edge edge) {
-        // FILL IN CODE
-        Edge head= adjacencyList[nodeId];
-        adjacencyList[nodeId]=edge;
-        if (head != null) {
-            edge.setNext(head);
+    public int firstEdge(int nodeId) {
+        return storage.offset(nodeId);
+    }
+
+    /**
+     * Index one past the last outgoing edge of the node.
+     * @param nodeId id of the node
+     * @return end index of the edges of the node
+     */
+    public int endEdge(int nodeId) {
+        return storage.offset(nodeId + 1);
+    }
+
+    /**
+     * Return the id of the node where the given edge goes
+     * @param edge edge index
+     * @return id of the neighbor
+     */
+    public int edgeTarget(int edge) {
+        return storage.target(edge);
+    }
+
+    /**
+     * Return the cost of the given edge
+     * @param edge edge index
+     * @return cost of the edge
+     */
+    public int edgeCost(int edge) {
+        return storage.cost(edge);
+    }
+
+    /**
+     * Return the id of the node where the given edge starts (binary search over the offsets)
+     * @param edge edge index
+     * @return id of the node the edge belongs to
+     */
+    public int edgeSource(int edge) {
+        int low = 0;
+        int high = numNodes - 1;
+        while (low < high) { // last node whose first edge is <= edge
+            int mid = (low + high + 1) >>> 1;
+            if (storage.offset(mid) <= edge) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
         }
-        numEdges++;
+        return low;
+    }
+
+    /**
+     * Index of the first incoming edge of the node. The incoming edges of nodeId are
+     * firstReverseEdge(nodeId) .. endReverseEdge(nodeId)-1; reverseEdgeTarget gives the
+     * node each of them comes from. Used by searches that go backward from a destination.
+     * @param nodeId id of the node
+     * @return index of the first incoming edge
+     */
+    public int firstReverseEdge(int nodeId) {
+        return storage.reverseOffset(nodeId);
+    }
+
+    /**
+     * Index one past the last incoming edge of the node.
+     * @param nodeId id of the node
+     * @return end index of the incoming edges
+     */
+    public int endReverseEdge(int nodeId) {
+        return storage.reverseOffset(nodeId + 1);
+    }
+
+    /**
+     * Return the id of the node where the given incoming edge comes from
+     * @param edge incoming edge index
+     * @return id of the neighbor
+     */
+    public int reverseEdgeTarget(int edge) {
+        return storage.reverseTarget(edge);
+    }
+
+    /**
+     * Return the cost of the given incoming edge
+     * @param edge incoming edge index
+     * @return cost of the edge
+     */
+    public int reverseEdgeCost(int edge) {
+        return storage.reverseCost(edge);
+    }
+
+    /**
+     * Returns a number that changes whenever the graph is loaded or modified,
+     * so that cached results computed for an older graph can be recognized.
+     * @return version of the graph
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns a number that changes whenever the graph is loaded, but not when only edge costs
+     * change (setEdgeCost) or the storage moves (setStorageType), so that drawings and indexes of
+     * the node locations and edges can be kept across cost updates.
+     * @return version of the nodes and edges of the graph
+     */
+    public int getGeometryVersion() {
+        return geometryVersion;
+    }
+
+    /**
+     * Whether edges were loaded in one direction only
+     * @return true for a directed graph
+     */
+    public boolean isDirected() {
+        return directed;
+    }
+
+    /**
+     * Changes the cost of an existing edge, e.g. from a live traffic feed. The copy of the edge
+     * in the reverse arrays is updated too; in an undirected graph that is the opposite edge,
+     * since each arc of the file is one two-way edge with a single cost. Queries running at
+     * the same time see either the old or the new cost; the version changes so cached
+     * results are dropped.
+     * @param edge edge index, as used by edgeCost
+     * @param cost new cost, must not be negative
+     * @return the previous cost of the edge
+     */
+    public synchronized int setEdgeCost(int edge, int cost) {
+        if (cost < 0) {
+            throw new IllegalArgumentException("Edge cost must not be negative: " + cost);
+        }
+        int old = storage.cost(edge);
+        storage.setCost(edge, cost);
+        maxEdgeCost = Math.max(maxEdgeCost, cost);
+        storage.setReverseCost(reverseEdge(edge), cost);
+        version++;
+        return old;
+    }
+
+    /**
+     * Changes the cost of the edge from nodeId to neighborId (the cheapest one, if there are several).
+     * @param nodeId id of the node where the edge starts
+     * @param neighborId id of the node where the edge goes
+     * @param cost new cost, must not be negative
+     * @param bothDirections if true, the edge from neighborId to nodeId is changed as well
+     *                       (always the case in an undirected graph)
+     * @return false if one of the edges does not exist; nothing is changed in that case
+     */
+    public synchronized boolean updateEdgeCost(int nodeId, int neighborId, int cost, boolean bothDirections) {
+        int edge = findEdge(nodeId, neighborId);
+        int back = bothDirections && directed ? findEdge(neighborId, nodeId) : -1;
+        if (edge == -1 || (bothDirections && directed && back == -1)) {
+            return false;
+        }
+        setEdgeCost(edge, cost);
+        if (back != -1) {
+            setEdgeCost(back, cost);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index of the given edge in the reverse arrays (among the incoming edges of
+     * its target). In an undirected graph this is the opposite edge, going back to its source.
+     * @param edge edge index
+     * @return index for reverseEdgeTarget and reverseEdgeCost
+     */
+    public synchronized int reverseEdge(int edge) {
+        if (reverseEdges == null) {
+            reverseEdges = matchReverseEdges();
+        }
+        return reverseEdges[edge];
+    }
+
+    /**
+     * For every edge u->v, finds its copy in the reverse arrays (the incoming edges of v).
+     * Both lists keep the order the edges were added in, so the k-th edge u->v among the
+     * outgoing edges of u is the k-th edge from u among the incoming edges of v.
+     */
+    private int[] matchReverseEdges() {
+        int[] result = new int[numEdges];
+        boolean[] matched = new boolean[numEdges];
+        for (int v = 0; v < numNodes; v++) {
+            for (int r = firstReverseEdge(v); r < endReverseEdge(v); r++) {
+                int u = reverseEdgeTarget(r);
+                int e = firstEdge(u);
+                while (edgeTarget(e) != v || matched[e]) {
+                    e++;
+                }
+                matched[e] = true;
+                result[e] = r;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the cheapest edge going from nodeId to neighborId
+     * @param nodeId id of the node where the edge starts
+     * @param neighborId id of the node where the edge goes
+     * @return edge index, or -1 if there is no such edge
+     */
+    public int findEdge(int nodeId, int neighborId) {
+        int found = -1;
+        for (int e = firstEdge(nodeId); e < endEdge(nodeId); e++) {
+            if (edgeTarget(e) == neighborId && (found == -1 || edgeCost(e) < edgeCost(found))) {
+                found = e;
+            }
+        }
+        return found;
     }
 
     /**
@@ -119,7 +638,16 @@ public class Graph {
      * @return its integer id
      */
     public int getId(CityNode city) {
-        Integer id = labelsToIndices.get(city.getCity());
+        return getId(city.getCity());
+    }
+
+    /**
+     * Returns the integer id of the city with the given name
+     * @param city name of the city, as in the graph file
+     * @return its integer id, or -1 if there is no such city
+     */
+    public int getId(String city) {
+        Integer id = labelsToIndices.get(city);
         if (id != null) {
             return id;
         } else {
@@ -139,22 +667,17 @@ public class Graph {
      * we get the location of the current city and its neighbors and store them in the 2 dimension array
      */
     public Point[][] getEdges() {
-        if (adjacencyList == null || adjacencyList.length == 0) {
+        if (storage == null || numNodes == 0) {
             System.out.println("Adjacency list is empty. Load the graph first.");
             return null;
         }
         Point[][] edges2D = new Point[numEdges][2];
-        // FILL IN CODE
-        Edge[] list = adjacencyList;
         int index=0;
-        for(int i=0;i<adjacencyList.length;i++){
-            Edge curr=list[i];
-            CityNode city=getNode(i);
-            while (curr!=null && index<numEdges){
-                CityNode neighbor=getNode(curr.getNeighbor());
-                edges2D[index][0]=city.getLocation();
-                edges2D[index][1]=neighbor.getLocation();
-                curr=curr.getNext();
+        for(int i=0;i<numNodes;i++){
+            Point city=getNode(i).getLocation();
+            for(int e=firstEdge(i);e<endEdge(i);e++){
+                edges2D[index][0]=city;
+                edges2D[index][1]=getNode(edgeTarget(e)).getLocation();
                 index++;
             }
         }
@@ -207,7 +730,7 @@ public class Graph {
             System.out.println("there are no nods on the path");
             return null;
         }
-        Point[][] edges2D = new Point[pathOfNodes.size() - 1][2];
+        Point[][] edges2D = new Point[Math.max(0, pathOfNodes.size() - 1)][2]; // no edges if unreachable
         // Each "edge" is an array of size two (one Point is origin, one Point is destination)
         // FILL IN CODE
         for (int i = 0; i < pathOfNodes.size()-1 ; i++) {
@@ -221,6 +744,42 @@ public class Graph {
         return edges2D;
     }
 
+    /**
+     * Return the part of the graph that can be reached within a range query's budget as line
+     * segments, like getEdges, so the GUI can shade the reachable region.
+     * Every edge out of a reached node gives one segment: the whole edge if its far end is
+     * reached through it within the budget, otherwise the part the remaining budget covers
+     * (e.g. half of the edge if the budget left at its start is half of its cost).
+     * @param range result of RouteService.range on this graph
+     * @return array where each element is an array of 2 points, from the reached node onward
+     */
+    public Point[][] getIsochrone(RangeResult range) {
+        int segments = 0;
+        for (int i = 0; i < range.size(); i++) {
+            segments += endEdge(range.node(i)) - firstEdge(range.node(i));
+        }
+        Point[][] edges2D = new Point[segments][2];
+        int index = 0;
+        for (int i = 0; i < range.size(); i++) {
+            int nodeId = range.node(i);
+            int left = range.getBudget() - range.cost(i); // budget left at this node
+            Point city = getNode(nodeId).getLocation();
+            for (int e = firstEdge(nodeId); e < endEdge(nodeId); e++) {
+                Point neighbor = getNode(edgeTarget(e)).getLocation();
+                edges2D[index][0] = city;
+                if (edgeCost(e) <= left) {
+                    edges2D[index][1] = neighbor;
+                } else {
+                    double part = (double) left / edgeCost(e);
+                    edges2D[index][1] = new Point((int) Math.round(city.x + part * (neighbor.x - city.x)),
+                            (int) Math.round(city.y + part * (neighbor.y - city.y)));
+                }
+                index++;
+            }
+        }
+        return edges2D;
+    }
+
     /**
      * Return the CityNode for the given nodeId
      * @param nodeId id of the node
@@ -229,13 +788,12 @@ public class Graph {
     public CityNode getNode(int nodeId) {
         return nodes[nodeId];
     }
-    public Edge getfirstEdge(int id){
-        return adjacencyList[id];
-    }
 
     /**
      * Take the location of the mouse click as a parameter, and return the node
-     * of the graph at this location. Needed in GUIApp class. No need to modify.
+     * of the graph at this location. Needed in GUIApp class.
+     * Uses a SpatialIndex of the node locations instead of looking at every node;
+     * among the nodes less than EPS_DIST away in x and y, the closest one is returned.
      * @param loc the location of the mouse click
      * @return reference to the corresponding CityNode
      */
@@ -244,12 +802,39 @@ public class Graph {
             System.out.println("No node at this location. ");
             return null;
         }
-        for (CityNode v : nodes) {
-            Point p = v.getLocation();
-            if ((Math.abs(loc.x - p.x) < EPS_DIST) && (Math.abs(loc.y - p.y) < EPS_DIST))
-                return v;
+        SpatialIndex index = pixelIndex;
+        if (index == null) {
+            index = SpatialIndex.forPixels(this);
+            pixelIndex = index;
+        }
+        CityNode found = null;
+        long bestDistance = Long.MAX_VALUE;
+        for (int id : index.withinRadius(loc.x, loc.y, EPS_DIST * Math.sqrt(2))) {
+            Point p = nodes[id].getLocation();
+            long dx = loc.x - p.x;
+            long dy = loc.y - p.y;
+            long distance = dx * dx + dy * dy;
+            if (Math.abs(dx) < EPS_DIST && Math.abs(dy) < EPS_DIST
+                    && (distance < bestDistance || (distance == bestDistance && id < getId(found)))) {
+                found = nodes[id];
+                bestDistance = distance;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns a spatial index over the node coordinates given in the graph file,
+     * for snapping GPS positions: nearest, k nearest, within a radius, or many points at once.
+     * @return the index, built on first use
+     */
+    public SpatialIndex getSpatialIndex() {
+        SpatialIndex index = coordinateIndex;
+        if (index == null) {
+            index = SpatialIndex.forCoordinates(this);
+            coordinateIndex = index;
         }
-        return null;
+        return index;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,278 @@
+package graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * GraphFile - a compact binary graph format that loads without any parsing.
+ * Layout (little endian, every section starts at a multiple of 8 bytes):
+ * <pre>
+ * header       int magic "DGR1", int format version, int flags (1 = directed),
+ *              int numNodes, int numEdges, int nameBytes
+ * node table   int nameOffsets[numNodes + 1], then nameBytes bytes of UTF-8 city names
+ * coordinates  double x0, y0, x1, y1, ... as given in the NODES section
+ * edges        int offsets[numNodes + 1], int targets[numEdges], int costs[numEdges]  (CSR)
+ * reverse      the same three arrays for the incoming edges, only for a directed graph
+ * </pre>
+ * The loader memory-maps the file with FileChannel.map, so the bytes come straight from the
+ * operating system's page cache (shared by every process that loads the same file), and copies
+ * each array with one bulk get. If the graph uses StorageType.OFF_HEAP, the coordinate and edge
+ * sections are copied from the mapping into direct buffers instead, without any Java arrays.
+ */
+public class GraphFile {
+    private static final int MAGIC = 0x31524744; // "DGR1" read as a little endian int
+    private static final int FORMAT_VERSION = 1;
+    private static final int FLAG_DIRECTED = 1;
+    private static final int HEADER_BYTES = 24;
+
+    /**
+     * Converts a graph from the NODES/ARCS text format to the binary format.
+     * The text file is read with a ParallelGraphLoader, so a missing or malformed file is
+     * reported instead of being written as an empty graph.
+     * @param textFile name of the text file
+     * @param binaryFile name of the binary file to write
+     * @param directed whether arcs are one-way (see Graph.loadGraph(String, boolean))
+     * @throws IOException if a file cannot be read or written
+     * @throws GraphFormatException if the text file does not follow the NODES/ARCS format
+     */
+    public static void convert(String textFile, String binaryFile, boolean directed) throws IOException {
+        Graph graph = new Graph();
+        ParallelGraphLoader loader = new ParallelGraphLoader();
+        try {
+            loader.load(graph, textFile, directed);
+        } finally {
+            loader.shutdown();
+        }
+        write(graph, binaryFile);
+    }
+
+    /**
+     * Writes a loaded graph in the binary format.
+     * @param graph loaded graph
+     * @param filename name of the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Graph graph, String filename) throws IOException {
+        int n = graph.numNodes();
+        int m = graph.numEdges();
+        byte[][] names = new byte[n][];
+        int nameBytes = 0;
+        for (int i = 0; i < n; i++) {
+            names[i] = graph.getNode(i).getCity().getBytes(StandardCharsets.UTF_8);
+            nameBytes += names[i].length;
+        }
+        long size = fileSize(n, m, nameBytes, graph.isDirected());
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("graph is too large for one mapped buffer: " + size + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(graph.isDirected() ? FLAG_DIRECTED : 0)
+                .putInt(n).putInt(m).putInt(nameBytes);
+        int offset = 0;
+        for (int i = 0; i < n; i++) {
+            buffer.putInt(offset);
+            offset += names[i].length;
+        }
+        buffer.putInt(offset);
+        for (byte[] name : names) {
+            buffer.put(name);
+        }
+        align(buffer);
+        for (int i = 0; i < n; i++) {
+            buffer.putDouble(graph.getX(i)).putDouble(graph.getY(i));
+        }
+        for (int v = 0; v <= n; v++) {
+            buffer.putInt(v < n ? graph.firstEdge(v) : m);
+        }
+        for (int e = 0; e < m; e++) {
+            buffer.putInt(graph.edgeTarget(e));
+        }
+        for (int e = 0; e < m; e++) {
+            buffer.putInt(graph.edgeCost(e));
+        }
+        if (graph.isDirected()) {
+            align(buffer);
+            for (int v = 0; v <= n; v++) {
+                buffer.putInt(v < n ? graph.firstReverseEdge(v) : m);
+            }
+            for (int e = 0; e < m; e++) {
+                buffer.putInt(graph.reverseEdgeTarget(e));
+            }
+            for (int e = 0; e < m; e++) {
+                buffer.putInt(graph.reverseEdgeCost(e));
+            }
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Loads a binary graph file into the given graph, replacing its contents.
+     * @param graph graph to fill
+     * @param filename name of the binary file
+     * @throws IOException if the file cannot be read or is not a valid binary graph file
+     */
+    static void read(Graph graph, String filename) throws IOException {
+        ByteBuffer buffer = map(filename);
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException(filename + " is not a binary graph file");
+        }
+        int formatVersion = buffer.getInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException(filename + " has unsupported format version " + formatVersion);
+        }
+        boolean directed = (buffer.getInt() & FLAG_DIRECTED) != 0;
+        int n = buffer.getInt();
+        int m = buffer.getInt();
+        int nameBytes = buffer.getInt();
+        if (n < 0 || m < 0 || nameBytes < 0 || buffer.capacity() != fileSize(n, m, nameBytes, directed)) {
+            throw new IOException(filename + " is truncated or corrupt");
+        }
+        int[] nameOffsets = readInts(buffer, n + 1);
+        checkOffsets(IntBuffer.wrap(nameOffsets), n, nameBytes, filename, "name");
+        byte[] names = new byte[nameBytes];
+        buffer.get(names);
+        align(buffer);
+        if (graph.getStorageType() == StorageType.OFF_HEAP) {
+            ByteBuffer coordinates = section(buffer, 16 * n);
+            CityNode[] nodes = new CityNode[n];
+            for (int i = 0; i < n; i++) {
+                nodes[i] = new CityNode(name(names, nameOffsets, i), coordinates.getDouble(16 * i), coordinates.getDouble(16 * i + 8));
+            }
+            ByteBuffer[] adjacency = {section(buffer, 4 * (n + 1)), section(buffer, 4 * m), section(buffer, 4 * m)};
+            checkAdjacency(adjacency[0].asIntBuffer(), adjacency[1].asIntBuffer(), adjacency[2].asIntBuffer(), n, m, filename);
+            ByteBuffer[] reverseAdjacency = null;
+            if (directed) {
+                align(buffer);
+                reverseAdjacency = new ByteBuffer[]{section(buffer, 4 * (n + 1)), section(buffer, 4 * m), section(buffer, 4 * m)};
+                checkAdjacency(reverseAdjacency[0].asIntBuffer(), reverseAdjacency[1].asIntBuffer(),
+                        reverseAdjacency[2].asIntBuffer(), n, m, filename);
+            }
+            graph.setGraph(nodes, new GraphStorage.OffHeap(coordinates, adjacency, reverseAdjacency), directed);
+            return;
+        }
+        double[] coordinates = new double[2 * n];
+        buffer.asDoubleBuffer().get(coordinates);
+        buffer.position(buffer.position() + 16 * n);
+        CityNode[] nodes = new CityNode[n];
+        for (int i = 0; i < n; i++) {
+            nodes[i] = new CityNode(name(names, nameOffsets, i), coordinates[2 * i], coordinates[2 * i + 1]);
+        }
+        int[][] adjacency = {readInts(buffer, n + 1), readInts(buffer, m), readInts(buffer, m)};
+        checkAdjacency(IntBuffer.wrap(adjacency[0]), IntBuffer.wrap(adjacency[1]), IntBuffer.wrap(adjacency[2]), n, m, filename);
+        int[][] reverseAdjacency = null;
+        if (directed) {
+            align(buffer);
+            reverseAdjacency = new int[][]{readInts(buffer, n + 1), readInts(buffer, m), readInts(buffer, m)};
+            checkAdjacency(IntBuffer.wrap(reverseAdjacency[0]), IntBuffer.wrap(reverseAdjacency[1]),
+                    IntBuffer.wrap(reverseAdjacency[2]), n, m, filename);
+        }
+        graph.setGraph(nodes, coordinates, adjacency, reverseAdjacency, directed);
+    }
+
+    /**
+     * Converts a text graph file to a binary one.
+     * Usage: GraphFile input.txt output.bin [directed]
+     * @param args input file, output file, and optionally "directed"
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: GraphFile input.txt output.bin [directed]");
+            return;
+        }
+        convert(args[0], args[1], args.length > 2 && args[2].equals("directed"));
+    }
+
+    private static MappedByteBuffer map(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(filename + " is too large for one mapped buffer");
+            }
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    /**
+     * Checks that count + 1 offsets start at 0, never go down and end at total,
+     * so every range they describe lies inside an array of total elements.
+     * @throws IOException if they do not
+     */
+    private static void checkOffsets(IntBuffer offsets, int count, int total, String filename, String what) throws IOException {
+        if (offsets.get(0) != 0 || offsets.get(count) != total) {
+            throw new IOException(filename + " is corrupt: " + what + " offsets do not span 0.." + total);
+        }
+        for (int i = 0; i < count; i++) {
+            if (offsets.get(i) > offsets.get(i + 1)) {
+                throw new IOException(filename + " is corrupt: " + what + " offsets decrease at " + i);
+            }
+        }
+    }
+
+    /**
+     * Checks one CSR section before the graph reads it without bounds checks of its own:
+     * monotone offsets from 0 to m, targets that are node ids and costs that are not negative.
+     * @throws IOException if the section is corrupt
+     */
+    private static void checkAdjacency(IntBuffer offsets, IntBuffer targets, IntBuffer costs, int n, int m,
+                                       String filename) throws IOException {
+        checkOffsets(offsets, n, m, filename, "edge");
+        for (int e = 0; e < m; e++) {
+            int target = targets.get(e);
+            if (target < 0 || target >= n) {
+                throw new IOException(filename + " is corrupt: edge " + e + " goes to node " + target + " of " + n);
+            }
+            if (costs.get(e) < 0) {
+                throw new IOException(filename + " is corrupt: edge " + e + " has negative cost " + costs.get(e));
+            }
+        }
+    }
+
+    private static String name(byte[] names, int[] nameOffsets, int i) {
+        return new String(names, nameOffsets[i], nameOffsets[i + 1] - nameOffsets[i], StandardCharsets.UTF_8);
+    }
+
+    /** Returns the next bytes of the buffer as a little endian buffer of their own and skips them. */
+    private static ByteBuffer section(ByteBuffer buffer, int bytes) {
+        ByteBuffer section = buffer.slice(buffer.position(), bytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(buffer.position() + bytes);
+        return section;
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * count);
+        return values;
+    }
+
+    private static void align(ByteBuffer buffer) {
+        buffer.position((buffer.position() + 7) & ~7);
+    }
+
+    private static long fileSize(int n, int m, int nameBytes, boolean directed) {
+        long size = HEADER_BYTES + 4L * (n + 1) + nameBytes;
+        size = (size + 7) & ~7L;
+        size += 16L * n + 4L * (n + 1) + 8L * m;
+        if (directed) {
+            size = (size + 7) & ~7L;
+            size += 4L * (n + 1) + 8L * m;
+        }
+        return size;
+    }
+}
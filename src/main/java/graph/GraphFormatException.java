@@ -0,0 +1,29 @@
+package graph;
+
+import java.io.IOException;
+
+/**
+ * GraphFormatException - thrown when a graph file does not follow the NODES/ARCS format,
+ * for example a line with missing fields, a cost that is not a number, or an arc
+ * that names a city missing from the NODES section.
+ */
+public class GraphFormatException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final long lineNumber;
+
+    /**
+     * Constructor
+     * @param filename name of the file
+     * @param lineNumber 1-based number of the bad line
+     * @param message what is wrong with the line
+     */
+    public GraphFormatException(String filename, long lineNumber, String message) {
+        super(filename + ", line " + lineNumber + ": " + message);
+        this.lineNumber = lineNumber;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+}
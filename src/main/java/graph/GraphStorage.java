@@ -0,0 +1,347 @@
+package graph;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * GraphStorage - the arrays behind a Graph: x and y of every node, and the CSR arrays
+ * (offsets, targets, costs) of the outgoing and the incoming edges.
+ * Graph reads them only through this class, so every search runs unchanged on either kind:
+ * Heap keeps Java arrays, OffHeap keeps direct byte buffers (see StorageType).
+ * For an undirected graph the incoming arrays are the outgoing ones, as in Graph.
+ * Only the costs ever change after a storage is created (setCost, setReverseCost).
+ */
+abstract class GraphStorage {
+
+    /** x of node i is coordinate(2 * i), y is coordinate(2 * i + 1). */
+    abstract double coordinate(int index);
+
+    /** First outgoing edge of the node; offset(numNodes) is the number of edges. */
+    abstract int offset(int nodeId);
+
+    abstract int target(int edge);
+
+    abstract int cost(int edge);
+
+    abstract void setCost(int edge, int cost);
+
+    abstract int reverseOffset(int nodeId);
+
+    abstract int reverseTarget(int edge);
+
+    abstract int reverseCost(int edge);
+
+    abstract void setReverseCost(int edge, int cost);
+
+    /** Whether the incoming edges are stored separately (directed graph). */
+    abstract boolean hasReverse();
+
+    abstract StorageType type();
+
+    /**
+     * Returns the memory taken by the arrays
+     * @return number of bytes, on the heap or outside it depending on type()
+     */
+    abstract long bytes();
+
+    /** Returns the coordinates as a Java array (the array itself for Heap, a copy for OffHeap). */
+    abstract double[] coordinates();
+
+    /** Returns {offsets, targets, costs} as Java arrays. */
+    abstract int[][] adjacency();
+
+    /** Returns {offsets, targets, costs} of the incoming edges as Java arrays, null if !hasReverse(). */
+    abstract int[][] reverseAdjacency();
+
+    /**
+     * Creates a storage of the given type from Java arrays.
+     * @param type where to keep the arrays
+     * @param coordinates x and y of every node
+     * @param adjacency {offsets, targets, costs}
+     * @param reverseAdjacency {offsets, targets, costs} of the incoming edges, null for an undirected graph
+     * @return the storage; a Heap storage uses the arrays as they are, without copying
+     */
+    static GraphStorage create(StorageType type, double[] coordinates, int[][] adjacency, int[][] reverseAdjacency) {
+        if (type == StorageType.OFF_HEAP) {
+            return new OffHeap(coordinates, adjacency, reverseAdjacency);
+        }
+        return new Heap(coordinates, adjacency, reverseAdjacency);
+    }
+
+    /**
+     * Returns a storage of the given type with the same contents
+     * @param type where to keep the arrays
+     * @return this storage if it already has that type, otherwise a copy
+     */
+    GraphStorage convert(StorageType type) {
+        if (type() == type) {
+            return this;
+        }
+        return create(type, coordinates(), adjacency(), reverseAdjacency());
+    }
+
+    /** Java arrays on the heap. */
+    static final class Heap extends GraphStorage {
+        private final double[] coordinates;
+        private final int[] offsets;
+        private final int[] targets;
+        private final int[] costs;
+        private final int[] reverseOffsets;
+        private final int[] reverseTargets;
+        private final int[] reverseCosts;
+
+        Heap(double[] coordinates, int[][] adjacency, int[][] reverseAdjacency) {
+            this.coordinates = coordinates;
+            offsets = adjacency[0];
+            targets = adjacency[1];
+            costs = adjacency[2];
+            int[][] reverse = reverseAdjacency != null ? reverseAdjacency : adjacency;
+            reverseOffsets = reverse[0];
+            reverseTargets = reverse[1];
+            reverseCosts = reverse[2];
+        }
+
+        @Override
+        double coordinate(int index) {
+            return coordinates[index];
+        }
+
+        @Override
+        int offset(int nodeId) {
+            return offsets[nodeId];
+        }
+
+        @Override
+        int target(int edge) {
+            return targets[edge];
+        }
+
+        @Override
+        int cost(int edge) {
+            return costs[edge];
+        }
+
+        @Override
+        void setCost(int edge, int cost) {
+            costs[edge] = cost;
+        }
+
+        @Override
+        int reverseOffset(int nodeId) {
+            return reverseOffsets[nodeId];
+        }
+
+        @Override
+        int reverseTarget(int edge) {
+            return reverseTargets[edge];
+        }
+
+        @Override
+        int reverseCost(int edge) {
+            return reverseCosts[edge];
+        }
+
+        @Override
+        void setReverseCost(int edge, int cost) {
+            reverseCosts[edge] = cost;
+        }
+
+        @Override
+        boolean hasReverse() {
+            return reverseOffsets != offsets;
+        }
+
+        @Override
+        StorageType type() {
+            return StorageType.HEAP;
+        }
+
+        @Override
+        long bytes() {
+            long ints = offsets.length + targets.length + costs.length;
+            if (hasReverse()) {
+                ints += reverseOffsets.length + reverseTargets.length + reverseCosts.length;
+            }
+            return 8L * coordinates.length + 4 * ints;
+        }
+
+        @Override
+        double[] coordinates() {
+            return coordinates;
+        }
+
+        @Override
+        int[][] adjacency() {
+            return new int[][]{offsets, targets, costs};
+        }
+
+        @Override
+        int[][] reverseAdjacency() {
+            return hasReverse() ? new int[][]{reverseOffsets, reverseTargets, reverseCosts} : null;
+        }
+    }
+
+    /**
+     * Direct byte buffers, little endian like GraphFile, read through int and double views.
+     * The memory is released when the storage is garbage collected.
+     */
+    static final class OffHeap extends GraphStorage {
+        private final DoubleBuffer coordinates;
+        private final IntBuffer offsets;
+        private final IntBuffer targets;
+        private final IntBuffer costs;
+        private final IntBuffer reverseOffsets;
+        private final IntBuffer reverseTargets;
+        private final IntBuffer reverseCosts;
+        private final long bytes;
+
+        OffHeap(double[] coordinates, int[][] adjacency, int[][] reverseAdjacency) {
+            this.coordinates = allocate(8L * coordinates.length).asDoubleBuffer().put(coordinates);
+            offsets = copy(adjacency[0]);
+            targets = copy(adjacency[1]);
+            costs = copy(adjacency[2]);
+            if (reverseAdjacency != null) {
+                reverseOffsets = copy(reverseAdjacency[0]);
+                reverseTargets = copy(reverseAdjacency[1]);
+                reverseCosts = copy(reverseAdjacency[2]);
+            } else {
+                reverseOffsets = offsets;
+                reverseTargets = targets;
+                reverseCosts = costs;
+            }
+            bytes = countBytes();
+        }
+
+        /**
+         * Copies the sections of a binary graph file straight into direct buffers, so the
+         * arrays never exist on the heap. Every buffer holds exactly its section (little endian).
+         * @param coordinates x and y of every node
+         * @param adjacency {offsets, targets, costs}
+         * @param reverseAdjacency incoming edges, null for an undirected graph
+         */
+        OffHeap(ByteBuffer coordinates, ByteBuffer[] adjacency, ByteBuffer[] reverseAdjacency) {
+            this.coordinates = copy(coordinates).asDoubleBuffer();
+            offsets = copy(adjacency[0]).asIntBuffer();
+            targets = copy(adjacency[1]).asIntBuffer();
+            costs = copy(adjacency[2]).asIntBuffer();
+            if (reverseAdjacency != null) {
+                reverseOffsets = copy(reverseAdjacency[0]).asIntBuffer();
+                reverseTargets = copy(reverseAdjacency[1]).asIntBuffer();
+                reverseCosts = copy(reverseAdjacency[2]).asIntBuffer();
+            } else {
+                reverseOffsets = offsets;
+                reverseTargets = targets;
+                reverseCosts = costs;
+            }
+            bytes = countBytes();
+        }
+
+        private static ByteBuffer allocate(long bytes) {
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Array of " + bytes + " bytes is too large for a direct buffer");
+            }
+            return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        private static IntBuffer copy(int[] values) {
+            return allocate(4L * values.length).asIntBuffer().put(values);
+        }
+
+        private static ByteBuffer copy(ByteBuffer source) {
+            return allocate(source.remaining()).put(source.duplicate()).clear();
+        }
+
+        private long countBytes() {
+            long ints = offsets.capacity() + targets.capacity() + costs.capacity();
+            if (hasReverse()) {
+                ints += reverseOffsets.capacity() + reverseTargets.capacity() + reverseCosts.capacity();
+            }
+            return 8L * coordinates.capacity() + 4 * ints;
+        }
+
+        @Override
+        double coordinate(int index) {
+            return coordinates.get(index);
+        }
+
+        @Override
+        int offset(int nodeId) {
+            return offsets.get(nodeId);
+        }
+
+        @Override
+        int target(int edge) {
+            return targets.get(edge);
+        }
+
+        @Override
+        int cost(int edge) {
+            return costs.get(edge);
+        }
+
+        @Override
+        void setCost(int edge, int cost) {
+            costs.put(edge, cost);
+        }
+
+        @Override
+        int reverseOffset(int nodeId) {
+            return reverseOffsets.get(nodeId);
+        }
+
+        @Override
+        int reverseTarget(int edge) {
+            return reverseTargets.get(edge);
+        }
+
+        @Override
+        int reverseCost(int edge) {
+            return reverseCosts.get(edge);
+        }
+
+        @Override
+        void setReverseCost(int edge, int cost) {
+            reverseCosts.put(edge, cost);
+        }
+
+        @Override
+        boolean hasReverse() {
+            return reverseOffsets != offsets;
+        }
+
+        @Override
+        StorageType type() {
+            return StorageType.OFF_HEAP;
+        }
+
+        @Override
+        long bytes() {
+            return bytes;
+        }
+
+        @Override
+        double[] coordinates() {
+            double[] values = new double[coordinates.capacity()];
+            coordinates.get(0, values);
+            return values;
+        }
+
+        @Override
+        int[][] adjacency() {
+            return new int[][]{toArray(offsets), toArray(targets), toArray(costs)};
+        }
+
+        @Override
+        int[][] reverseAdjacency() {
+            return hasReverse() ? new int[][]{toArray(reverseOffsets), toArray(reverseTargets), toArray(reverseCosts)} : null;
+        }
+
+        private static int[] toArray(IntBuffer buffer) {
+            int[] values = new int[buffer.capacity()];
+            buffer.get(0, values);
+            return values;
+        }
+    }
+}
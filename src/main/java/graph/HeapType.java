@@ -0,0 +1,61 @@
+package graph;
+
+/**
+ * HeapType - the priority queue implementations Dijkstra can use as its frontier.
+ * DIAL and RADIX are monotone queues: they rely on the priorities removed by a search never going
+ * down, as in Dijkstra's search and in A* with a consistent heuristic, and throw an
+ * IllegalArgumentException otherwise. AUTO picks one of them from the largest edge cost of the
+ * graph (see forGraph); RouteService uses a BINARY heap instead for A* with a heuristic set by
+ * the caller, which it cannot check for consistency.
+ */
+public enum HeapType {
+    /** Binary heap (MinHeap). */
+    BINARY,
+    /** 4-ary heap: shallower than a binary heap, so decrease-key moves fewer levels. */
+    FOUR_ARY,
+    /** Pairing heap: O(1) insert and cheap decrease-key. */
+    PAIRING,
+    /** Dial's bucket queue (DialQueue): O(1) operations, for small integer edge costs. */
+    DIAL,
+    /** Radix heap (RadixHeap): O(1) insert and decrease-key, O(log C) amortized removeMin for any int costs. */
+    RADIX,
+    /** DIAL if the largest edge cost of the graph is at most DIAL_MAX_EDGE_COST, RADIX otherwise. */
+    AUTO;
+
+    /** Largest edge cost for which AUTO uses a DialQueue. */
+    public static final int DIAL_MAX_EDGE_COST = 1 << 16;
+
+    /**
+     * Returns the type AUTO stands for on the given graph; other types are returned as they are.
+     * @param graph graph that will be searched
+     * @return DIAL or RADIX for AUTO, this type otherwise
+     */
+    public HeapType forGraph(Graph graph) {
+        if (this != AUTO) {
+            return this;
+        }
+        return graph.getMaxEdgeCost() <= DIAL_MAX_EDGE_COST ? DIAL : RADIX;
+    }
+
+    /**
+     * Creates an empty queue of this type for node ids 0 .. capacity-1.
+     * AUTO, without a graph to look at, creates a RadixHeap.
+     * @param capacity number of node ids
+     * @return new priority queue
+     */
+    public PriorityQueue create(int capacity) {
+        switch (this) {
+            case FOUR_ARY:
+                return new FourAryHeap(capacity);
+            case PAIRING:
+                return new PairingHeap(capacity);
+            case DIAL:
+                return new DialQueue(capacity);
+            case RADIX:
+            case AUTO:
+                return new RadixHeap(capacity);
+            default:
+                return new MinHeap(capacity);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package graph;
+
+/**
+ * Heuristic - a lower bound on the cost of the shortest path between two nodes, used by A*.
+ * Estimates must never be larger than the real cost (admissible), and should satisfy
+ * estimate(u, t) &lt;= cost(u, v) + estimate(v, t) for every edge (u, v) (consistent),
+ * so that a node's distance is final when it is removed from the heap.
+ * A consistent heuristic also makes the heap keys of A* never go down, which the monotone
+ * queues (HeapType.DIAL, RADIX) rely on.
+ */
+public interface Heuristic {
+    /** Estimate of a node that is known not to reach the target; A* does not search on from it. */
+    int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * Returns a lower bound on the cost of the shortest path from nodeId to targetId.
+     * @param nodeId id of the node
+     * @param targetId id of the destination
+     * @return lower bound, 0 if nothing is known, UNREACHABLE if there is no path;
+     *         a bound of UNREACHABLE or more must be given as UNREACHABLE - 1
+     */
+    int estimate(int nodeId, int targetId);
+}
@@ -0,0 +1,183 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Landmarks - the ALT heuristic (A*, Landmarks, Triangle inequality).
+ * For a few landmark nodes L the exact distances d(L, v) and d(v, L) to and from every node
+ * are computed once. By the triangle inequality
+ * d(v, t) &gt;= d(L, t) - d(L, v) and d(v, t) &gt;= d(v, L) - d(t, L),
+ * and the best of these bounds over all landmarks is the estimate.
+ * If L reaches v but not t, or t reaches L but v does not, v cannot reach t, and the estimate is
+ * Heuristic.UNREACHABLE. Returning 0 for such a landmark instead would keep the estimate
+ * admissible but not consistent on a directed graph.
+ * Unlike CoordinateHeuristic it only uses edge costs, so no coordinate scaling is needed,
+ * and it is usually much tighter when landmarks lie "behind" the origin or the destination.
+ * The tables are longs like the search distances; a bound that does not fit in an int estimate
+ * is lowered to Integer.MAX_VALUE - 1, which keeps it admissible and consistent.
+ */
+public class Landmarks implements Heuristic {
+    /** How landmarks are chosen. */
+    public enum Selection {
+        /** Each new landmark is the node farthest from the landmarks chosen so far. */
+        FARTHEST,
+        /**
+         * Goldberg and Werneck's "avoid": grow a shortest path tree from a random root and
+         * put the next landmark at the end of the branch where the current landmarks give
+         * the worst bounds.
+         */
+        AVOID
+    }
+
+    private final int[] landmarkIds;
+    private final long[][] fromLandmark; // fromLandmark[i][v] = d(landmark i, v), SearchContext.UNREACHED if none
+    private final long[][] toLandmark; // toLandmark[i][v] = d(v, landmark i); same arrays if undirected
+
+    private Landmarks(int[] landmarkIds, long[][] fromLandmark, long[][] toLandmark) {
+        this.landmarkIds = landmarkIds;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+
+    /**
+     * Chooses landmarks and computes their distance tables.
+     * @param graph loaded graph
+     * @param count number of landmarks (at most the number of nodes)
+     * @param selection how to choose them
+     * @param seed seed for the random start nodes
+     * @return the landmark heuristic
+     */
+    public static Landmarks select(Graph graph, int count, Selection selection, long seed) {
+        int n = graph.numNodes();
+        count = Math.min(count, n);
+        Random random = new Random(seed);
+        SearchContext context = new SearchContext(n, HeapType.AUTO.forGraph(graph));
+        int[] ids = new int[count];
+        long[][] from = new long[count][];
+        long[][] to = graph.isDirected() ? new long[count][] : from;
+        for (int i = 0; i < count; i++) {
+            Landmarks chosen = new Landmarks(Arrays.copyOf(ids, i), from, to);
+            ids[i] = selection == Selection.FARTHEST
+                    ? chosen.farthestNode(graph, context, random)
+                    : chosen.avoidNode(graph, context, random);
+            from[i] = distancesFrom(graph, context, ids[i], false);
+            if (graph.isDirected()) {
+                to[i] = distancesFrom(graph, context, ids[i], true);
+            }
+        }
+        return new Landmarks(ids, from, to);
+    }
+
+    public int[] getLandmarkIds() {
+        return landmarkIds.clone();
+    }
+
+    @Override
+    public int estimate(int nodeId, int targetId) {
+        long best = 0;
+        for (int i = 0; i < landmarkIds.length; i++) {
+            long[] from = fromLandmark[i];
+            long[] to = toLandmark[i];
+            if (from[nodeId] != SearchContext.UNREACHED) {
+                if (from[targetId] == SearchContext.UNREACHED) {
+                    return UNREACHABLE;
+                }
+                best = Math.max(best, from[targetId] - from[nodeId]);
+            }
+            if (to[targetId] != SearchContext.UNREACHED) {
+                if (to[nodeId] == SearchContext.UNREACHED) {
+                    return UNREACHABLE;
+                }
+                best = Math.max(best, to[nodeId] - to[targetId]);
+            }
+        }
+        return (int) Math.min(best, UNREACHABLE - 1);
+    }
+
+    /**
+     * Full search from the source over outgoing (or incoming) edges.
+     * @return copy of the distance table
+     */
+    private static long[] distancesFrom(Graph graph, SearchContext context, int sourceId, boolean reverse) {
+        context.reset(context.heapType);
+        Dijkstra.fullSearch(graph, context, sourceId, reverse);
+        return context.distanceTable();
+    }
+
+    /**
+     * The node whose distance to the closest landmark chosen so far is largest.
+     * The first landmark is the node farthest from a random start node.
+     * Nodes that cannot be reached are skipped.
+     */
+    private int farthestNode(Graph graph, SearchContext context, Random random) {
+        int start = random.nextInt(graph.numNodes());
+        long[] closest;
+        if (landmarkIds.length == 0) {
+            closest = distancesFrom(graph, context, start, false);
+        } else {
+            closest = fromLandmark[0].clone();
+            for (int i = 1; i < landmarkIds.length; i++) {
+                for (int v = 0; v < closest.length; v++) {
+                    closest[v] = Math.min(closest[v], fromLandmark[i][v]);
+                }
+            }
+        }
+        int best = start;
+        for (int v = 0; v < closest.length; v++) {
+            if (closest[v] != SearchContext.UNREACHED && (closest[best] == SearchContext.UNREACHED || closest[v] > closest[best])) {
+                best = v;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The "avoid" rule: builds the shortest path tree from a random root r and gives each node
+     * the weight d(r, v) - estimate(r, v), how badly the current landmarks bound it.
+     * A subtree's size is the sum of its weights, or 0 if it already holds a landmark.
+     * Starting at r, the walk moves to the child with the largest size until it reaches a leaf.
+     */
+    private int avoidNode(Graph graph, SearchContext context, Random random) {
+        int n = graph.numNodes();
+        int root = random.nextInt(n);
+        long[] distance = distancesFrom(graph, context, root, false);
+        int[] parent = context.pathTable();
+        Integer[] order = new Integer[n];
+        for (int v = 0; v < n; v++) {
+            order[v] = v;
+        }
+        // children before parents: decreasing distance from the root
+        Arrays.sort(order, (a, b) -> Long.compare(distance[b], distance[a]));
+        long[] size = new long[n];
+        boolean[] hasLandmark = new boolean[n];
+        for (int id : landmarkIds) {
+            hasLandmark[id] = true;
+        }
+        int[] bestChild = new int[n];
+        Arrays.fill(bestChild, -1);
+        for (int v : order) {
+            if (distance[v] == SearchContext.UNREACHED) {
+                continue;
+            }
+            size[v] = hasLandmark[v] ? 0 : size[v] + distance[v] - estimate(root, v);
+            int p = parent[v];
+            if (p == -1) {
+                continue;
+            }
+            if (hasLandmark[v]) {
+                hasLandmark[p] = true;
+            } else {
+                size[p] += size[v];
+                if (bestChild[p] == -1 || size[v] > size[bestChild[p]]) {
+                    bestChild[p] = v;
+                }
+            }
+        }
+        int node = root;
+        while (bestChild[node] != -1 && !hasLandmark[bestChild[node]]) {
+            node = bestChild[node];
+        }
+        return node;
+    }
+}
@@ -0,0 +1,158 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * PairingHeap class - a heap-ordered multiway tree stored in arrays indexed by node id.
+ * Insert and reduceKey just link a single tree to the root; removeMin combines the
+ * children of the root with the usual two-pass pairing (left to right, then right to left).
+ * Each node stores its first child, its next sibling and "prev", which is the previous
+ * sibling or, for a first child, the parent.
+ */
+public class PairingHeap implements PriorityQueue {
+    private static final int NONE = -1;
+    private static final int NOT_QUEUED = -2; // value of prev for nodes that are not in the heap
+
+    private final long[] keys;   // distance of each node id
+    private final int[] child;   // first child of each node
+    private final int[] sibling;   // next sibling of each node
+    private final int[] prev;   // previous sibling or parent, NONE for the root
+    private final int[] pass;   // scratch array used by removeMin to pair up subtrees
+    private int root = NONE;
+    private int size;   // Current size of the heap
+
+    /**
+     * Constructor to initialize the heap for node ids 0 .. max-1.
+     * @param max - Maximum size of the heap
+     */
+    public PairingHeap(int max) {
+        keys = new long[max];
+        child = new int[max];
+        sibling = new int[max];
+        prev = new int[max];
+        pass = new int[max];
+        Arrays.fill(prev, NOT_QUEUED);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean empty() {
+        return size == 0;
+    }
+
+    public long minPriority() {
+        return keys[root];
+    }
+
+    public boolean contains(int nodeId) {
+        return prev[nodeId] != NOT_QUEUED;
+    }
+
+    public void insert(int nodeId, long priority) {
+        keys[nodeId] = priority;
+        child[nodeId] = NONE;
+        sibling[nodeId] = NONE;
+        prev[nodeId] = NONE;
+        root = link(root, nodeId);
+        size++;
+    }
+
+    public int removeMin() {
+        int min = root;
+        root = combine(child[min]);
+        if (root != NONE) {
+            prev[root] = NONE;
+        }
+        prev[min] = NOT_QUEUED;
+        size--;
+        return min;
+    }
+
+    public void reduceKey(int nodeId, long newPriority) {
+        keys[nodeId] = newPriority;
+        if (nodeId == root) {
+            return;
+        }
+        // cut the subtree of nodeId out of its sibling list and link it to the root
+        int p = prev[nodeId];
+        if (child[p] == nodeId) {
+            child[p] = sibling[nodeId];
+        } else {
+            sibling[p] = sibling[nodeId];
+        }
+        if (sibling[nodeId] != NONE) {
+            prev[sibling[nodeId]] = p;
+        }
+        sibling[nodeId] = NONE;
+        prev[nodeId] = NONE;
+        root = link(root, nodeId);
+    }
+
+    public void clear() {
+        // walk the whole tree, marking every node as not queued
+        int top = 0;
+        if (root != NONE) {
+            pass[top++] = root;
+        }
+        while (top > 0) {
+            int node = pass[--top];
+            for (int c = child[node]; c != NONE; c = sibling[c]) {
+                pass[top++] = c;
+            }
+            prev[node] = NOT_QUEUED;
+        }
+        root = NONE;
+        size = 0;
+    }
+
+    /**
+     * Links two trees whose roots have no siblings: the root with the larger key
+     * becomes the first child of the other one.
+     * @return root of the linked tree
+     */
+    private int link(int a, int b) {
+        if (a == NONE) {
+            return b;
+        }
+        if (keys[b] < keys[a]) {
+            int tmp = a;
+            a = b;
+            b = tmp;
+        }
+        int first = child[a];
+        sibling[b] = first;
+        if (first != NONE) {
+            prev[first] = b;
+        }
+        prev[b] = a;
+        child[a] = b;
+        return a;
+    }
+
+    /**
+     * Two-pass pairing of a sibling list.
+     * @param first first node of the list
+     * @return root of the combined tree
+     */
+    private int combine(int first) {
+        int count = 0;
+        int node = first;
+        while (node != NONE) {
+            int a = node;
+            int b = sibling[a];
+            node = b == NONE ? NONE : sibling[b];
+            sibling[a] = NONE;
+            if (b != NONE) {
+                sibling[b] = NONE;
+            }
+            pass[count++] = b == NONE ? a : link(a, b);
+        }
+        int result = NONE;
+        for (int i = count - 1; i >= 0; i--) {
+            result = link(result, pass[i]);
+        }
+        return result;
+    }
+}
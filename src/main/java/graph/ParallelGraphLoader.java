@@ -0,0 +1,528 @@
+package graph;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * ParallelGraphLoader - loads large NODES/ARCS text files using several threads.
+ * The NODES section is read once, sequentially, into a hash table of city names kept as bytes.
+ * The ARCS section is split into chunks of whole lines; the chunks are memory-mapped and
+ * parsed in parallel straight from the bytes, with no String created per line.
+ * The adjacency arrays are then built with a parallel degree count and a parallel prefix sum,
+ * and every edge is placed in file order, so the result is the same as Graph.loadGraph.
+ * Bad lines and unknown cities are reported with a GraphFormatException naming the line.
+ */
+public class ParallelGraphLoader {
+    private static final int CHUNK_BYTES = 8 << 20; // size of the ARCS pieces parsed in parallel
+
+    private final ForkJoinPool pool;
+    private long bytesLoaded; // size of the last file loaded
+    private long loadNanos; // time the last load took
+
+    /**
+     * Creates a loader with one thread per available processor.
+     */
+    public ParallelGraphLoader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor
+     * @param threads number of threads that parse the ARCS section
+     */
+    public ParallelGraphLoader(int threads) {
+        pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Reads the file into the graph, replacing its contents.
+     * @param graph graph to fill
+     * @param filename name of the NODES/ARCS text file
+     * @param directed if false, every arc is added in both directions (like Graph.loadGraph)
+     * @throws IOException if the file cannot be read
+     * @throws GraphFormatException if a line is malformed or names an unknown city
+     */
+    public void load(Graph graph, String filename, boolean directed) throws IOException {
+        long start = System.nanoTime();
+        Path file = Paths.get(filename);
+        NodeSection nodes = readNodes(file, filename);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<long[]> chunks = new ArrayList<>(); // {first byte, end byte} of each chunk
+            for (long from = nodes.arcsStart; from < size; ) {
+                long to = from + CHUNK_BYTES >= size ? size : nextLineStart(channel, from + CHUNK_BYTES);
+                chunks.add(new long[]{from, to});
+                from = to;
+            }
+            ArcChunk[] arcs = new ArcChunk[chunks.size()];
+            try {
+                pool.submit(() -> IntStream.range(0, arcs.length).parallel().forEach(i -> {
+                    try {
+                        arcs[i] = parseChunk(channel, chunks.get(i)[0], chunks.get(i)[1], nodes.names);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })).join();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            for (ArcChunk chunk : arcs) {
+                if (chunk.errorOffset >= 0) {
+                    throw new GraphFormatException(filename, lineNumber(channel, chunk.errorOffset), chunk.error);
+                }
+            }
+            int n = nodes.cities.length;
+            int[][] adjacency = buildAdjacency(n, arcs, directed, false);
+            int[][] reverseAdjacency = directed ? buildAdjacency(n, arcs, true, true) : null;
+            graph.setGraph(nodes.cities, nodes.coordinates, adjacency, reverseAdjacency, directed);
+            bytesLoaded = size;
+        }
+        loadNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Returns the read speed of the last load, in megabytes (10^6 bytes) per second.
+     * @return throughput of the last load
+     */
+    public double getMegabytesPerSecond() {
+        return loadNanos == 0 ? 0 : bytesLoaded / 1e6 / (loadNanos / 1e9);
+    }
+
+    /**
+     * Returns how long the last load took
+     * @return milliseconds
+     */
+    public double getLoadMillis() {
+        return loadNanos / 1e6;
+    }
+
+    /** Stops the parsing threads. */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /** The NODES section: cities, coordinates, the name table and where ARCS starts. */
+    private static final class NodeSection {
+        CityNode[] cities;
+        double[] coordinates;
+        NameTable names;
+        long arcsStart; // offset of the first arc line
+    }
+
+    /**
+     * Reads the NODES section line by line; it is small compared to the arcs.
+     */
+    private static NodeSection readNodes(Path file, String filename) throws IOException {
+        NodeSection section = new NodeSection();
+        try (InputStream in = Files.newInputStream(file)) {
+            LineInput lines = new LineInput(in);
+            if (!lines.next() || !"NODES".equals(lines.text().trim())) {
+                throw new GraphFormatException(filename, 1, "expected NODES");
+            }
+            int count;
+            try {
+                count = lines.next() ? Integer.parseInt(lines.text().trim()) : -1;
+            } catch (NumberFormatException e) {
+                count = -1;
+            }
+            if (count < 0) {
+                throw new GraphFormatException(filename, 2, "expected the number of nodes");
+            }
+            section.cities = new CityNode[count];
+            section.coordinates = new double[2 * count];
+            section.names = new NameTable(count);
+            int[] fields = new int[6];
+            for (int i = 0; i < count; i++) {
+                if (!lines.next() || splitFields(lines.bytes(), lines.start(), lines.end(), fields) != 3) {
+                    throw new GraphFormatException(filename, i + 3, "expected \"city x y\" but found \"" + lines.text() + "\"");
+                }
+                byte[] line = lines.bytes();
+                try {
+                    section.coordinates[2 * i] = Double.parseDouble(text(line, fields[2], fields[3]));
+                    section.coordinates[2 * i + 1] = Double.parseDouble(text(line, fields[4], fields[5]));
+                } catch (NumberFormatException e) {
+                    throw new GraphFormatException(filename, i + 3, "coordinates are not numbers: \"" + lines.text() + "\"");
+                }
+                String city = text(line, fields[0], fields[1]);
+                if (!section.names.add(line, fields[0], fields[1], i)) {
+                    throw new GraphFormatException(filename, i + 3, "duplicate city \"" + city + "\"");
+                }
+                section.cities[i] = new CityNode(city, section.coordinates[2 * i], section.coordinates[2 * i + 1]);
+            }
+            if (lines.next() && !lines.text().trim().equals("ARCS")) {
+                throw new GraphFormatException(filename, count + 3, "expected ARCS but found \"" + lines.text() + "\"");
+            }
+            section.arcsStart = lines.position();
+        }
+        return section;
+    }
+
+    /**
+     * Finds the whitespace separated fields in line[from .. to-1].
+     * @param fields receives the [start, end) of the first three fields
+     * @return number of fields, or 4 if there are more than three
+     */
+    private static int splitFields(byte[] line, int from, int to, int[] fields) {
+        int count = 0;
+        int i = from;
+        while (i < to) {
+            byte b = line[i];
+            if (b == ' ' || b == '\t' || b == '\r') {
+                i++;
+                continue;
+            }
+            if (count == 3) {
+                return 4;
+            }
+            fields[2 * count] = i;
+            while (i < to && (b = line[i]) != ' ' && b != '\t' && b != '\r') {
+                i++;
+            }
+            fields[2 * count + 1] = i;
+            count++;
+        }
+        return count;
+    }
+
+    /** Offset of the first byte after the next newline at or after pos (or the file size). */
+    private static long nextLineStart(FileChannel channel, long pos) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, pos);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+    }
+
+    /** 1-based line number of the byte at offset, found by counting newlines (only used for errors). */
+    private static long lineNumber(FileChannel channel, long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        long line = 1;
+        for (long pos = 0; pos < offset; ) {
+            buffer.clear();
+            int read = channel.read(buffer, pos);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read && pos + i < offset; i++) {
+                if (buffer.get(i) == '\n') {
+                    line++;
+                }
+            }
+            pos += read;
+        }
+        return line;
+    }
+
+    /** The arcs of one chunk: parallel int arrays, and the first error found, if any. */
+    private static final class ArcChunk {
+        int[] sources;
+        int[] targets;
+        int[] costs;
+        int size;
+        long errorOffset = -1; // file offset of the bad line
+        String error;
+
+        ArcChunk(int capacity) {
+            capacity = Math.max(16, capacity);
+            sources = new int[capacity];
+            targets = new int[capacity];
+            costs = new int[capacity];
+        }
+
+        void add(int source, int target, int cost) {
+            if (size == sources.length) {
+                sources = Arrays.copyOf(sources, 2 * size);
+                targets = Arrays.copyOf(targets, 2 * size);
+                costs = Arrays.copyOf(costs, 2 * size);
+            }
+            sources[size] = source;
+            targets[size] = target;
+            costs[size] = cost;
+            size++;
+        }
+
+        ArcChunk fail(long offset, String message) {
+            errorOffset = offset;
+            error = message;
+            return this;
+        }
+    }
+
+    /**
+     * Parses the lines "city city cost" in bytes from .. to-1 of the file.
+     * Stops at the first bad line and records its offset and the problem.
+     */
+    private static ArcChunk parseChunk(FileChannel channel, long from, long to, NameTable names) throws IOException {
+        ArcChunk chunk = new ArcChunk((int) ((to - from) / 16));
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        byte[] bytes = new byte[mapped.limit()];
+        mapped.get(bytes);
+        int[] fields = new int[6];
+        int pos = 0;
+        while (pos < bytes.length) {
+            int lineStart = pos;
+            int lineEnd = lineStart;
+            while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            pos = lineEnd + 1;
+            int count = splitFields(bytes, lineStart, lineEnd, fields);
+            if (count == 0) {
+                continue; // empty line
+            }
+            if (count != 3) {
+                return chunk.fail(from + lineStart, "expected \"city city cost\" but found \""
+                        + text(bytes, lineStart, lineEnd).trim() + "\"");
+            }
+            int source = names.find(bytes, fields[0], fields[1]);
+            int target = names.find(bytes, fields[2], fields[3]);
+            if (source < 0 || target < 0) {
+                int bad = source < 0 ? 0 : 2;
+                return chunk.fail(from + lineStart, "unknown city \"" + text(bytes, fields[bad], fields[bad + 1]) + "\"");
+            }
+            long cost = 0;
+            boolean digits = fields[5] - fields[4] <= 10;
+            for (int d = fields[4]; d < fields[5] && digits; d++) {
+                int digit = bytes[d] - '0';
+                digits = digit >= 0 && digit <= 9;
+                cost = 10 * cost + digit;
+            }
+            if (!digits || cost > Integer.MAX_VALUE) {
+                return chunk.fail(from + lineStart, "cost \"" + text(bytes, fields[4], fields[5])
+                        + "\" is not a non-negative integer");
+            }
+            chunk.add(source, target, (int) cost);
+        }
+        return chunk;
+    }
+
+    private static String text(byte[] bytes, int from, int to) {
+        return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Builds CSR arrays from the parsed arcs. Degrees are counted in parallel and turned into
+     * offsets with a parallel prefix sum; edges are then placed chunk by chunk in file order,
+     * so every node's edges are in the same order as with Graph.loadGraph.
+     * @param n number of nodes
+     * @param arcs parsed chunks
+     * @param directed if false, every arc also gives the opposite edge
+     * @param reverse if true, build the incoming edges (arcs turned around)
+     * @return {offsets, targets, costs}
+     */
+    private int[][] buildAdjacency(int n, ArcChunk[] arcs, boolean directed, boolean reverse) {
+        AtomicIntegerArray degrees = new AtomicIntegerArray(n);
+        pool.submit(() -> Arrays.stream(arcs).parallel().forEach(chunk -> {
+            for (int i = 0; i < chunk.size; i++) {
+                degrees.incrementAndGet(reverse ? chunk.targets[i] : chunk.sources[i]);
+                if (!directed) {
+                    degrees.incrementAndGet(chunk.targets[i]);
+                }
+            }
+        })).join();
+        int[] offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] = degrees.get(v);
+        }
+        pool.submit(() -> Arrays.parallelPrefix(offsets, Integer::sum)).join();
+        int m = offsets[n];
+        int[] targets = new int[m];
+        int[] costs = new int[m];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (ArcChunk chunk : arcs) {
+            for (int i = 0; i < chunk.size; i++) {
+                int from = reverse ? chunk.targets[i] : chunk.sources[i];
+                int to = reverse ? chunk.sources[i] : chunk.targets[i];
+                int pos = next[from]++;
+                targets[pos] = to;
+                costs[pos] = chunk.costs[i];
+                if (!directed) {
+                    pos = next[to]++;
+                    targets[pos] = from;
+                    costs[pos] = chunk.costs[i];
+                }
+            }
+        }
+        return new int[][]{offsets, targets, costs};
+    }
+
+    /**
+     * NameTable - open addressing hash table from city names (as UTF-8 bytes) to node ids,
+     * so arc lines can be resolved without creating Strings. Read-only once NODES is read,
+     * so the parsing threads share it.
+     */
+    private static final class NameTable {
+        private byte[] bytes = new byte[1 << 12]; // all names, one after the other
+        private final int[] starts; // starts[id] .. starts[id+1]-1 is the name of node id
+        private final int[] slots; // pairs {hash, node id + 1}; id 0 marks an empty slot
+        private final int mask; // number of slots - 1
+        private int used; // bytes used
+
+        NameTable(int count) {
+            starts = new int[count + 1];
+            int capacity = Integer.highestOneBit(Math.max(4, 2 * count) - 1) << 1;
+            slots = new int[2 * capacity];
+            mask = capacity - 1;
+        }
+
+        /** Adds line[from .. to-1] as the name of the next id (ids come in order); false if it is already there. */
+        boolean add(byte[] line, int from, int to, int id) {
+            if (find(line, from, to) >= 0) {
+                return false;
+            }
+            int length = to - from;
+            if (used + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, used + length));
+            }
+            System.arraycopy(line, from, bytes, used, length);
+            starts[id] = used;
+            used += length;
+            starts[id + 1] = used;
+            int hash = hash(line, from, to);
+            int slot = hash & mask;
+            while (slots[2 * slot + 1] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[2 * slot] = hash;
+            slots[2 * slot + 1] = id + 1;
+            return true;
+        }
+
+        /** Node id of the name in line[from .. to-1], or -1. */
+        int find(byte[] line, int from, int to) {
+            int hash = hash(line, from, to);
+            int slot = hash & mask;
+            while (slots[2 * slot + 1] != 0) {
+                int id = slots[2 * slot + 1] - 1;
+                if (slots[2 * slot] == hash && equals(id, line, from, to)) {
+                    return id;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private boolean equals(int id, byte[] line, int from, int to) {
+            int start = starts[id];
+            if (starts[id + 1] - start != to - from) {
+                return false;
+            }
+            for (int i = from; i < to; i++) {
+                if (bytes[start + i - from] != line[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int hash(byte[] line, int from, int to) {
+            int h = 0x811C9DC5; // FNV-1a
+            for (int i = from; i < to; i++) {
+                h = (h ^ line[i]) * 0x01000193;
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * LineInput - reads lines from a stream into a byte buffer and keeps track of the byte
+     * offset, so the arcs can be mapped starting right after the NODES section.
+     */
+    private static final class LineInput {
+        private final InputStream in;
+        private byte[] buffer = new byte[1 << 16];
+        private int start; // current line is buffer[start .. end-1], without the line terminator
+        private int end;
+        private int next; // first byte after the current line
+        private int limit; // bytes in buffer
+        private long position; // file offset of buffer[next]
+
+        LineInput(InputStream in) {
+            this.in = in;
+        }
+
+        /** Moves to the next line; false at the end of the stream. */
+        boolean next() throws IOException {
+            int i = next;
+            while (true) {
+                while (i < limit && buffer[i] != '\n') {
+                    i++;
+                }
+                if (i < limit) {
+                    break;
+                }
+                // keep the partial line at the front and read more
+                int kept = limit - next;
+                if (kept == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+                }
+                System.arraycopy(buffer, next, buffer, 0, kept);
+                i -= next;
+                next = 0;
+                limit = kept;
+                int read = in.read(buffer, limit, buffer.length - limit);
+                if (read <= 0) {
+                    if (kept == 0) {
+                        start = end = 0;
+                        return false;
+                    }
+                    break; // last line without a newline
+                }
+                limit += read;
+            }
+            start = next;
+            end = i;
+            int consumed = Math.min(i + 1, limit) - next;
+            next += consumed;
+            position += consumed;
+            if (end > start && buffer[end - 1] == '\r') {
+                end--;
+            }
+            return true;
+        }
+
+        byte[] bytes() {
+            return buffer;
+        }
+
+        int start() {
+            return start;
+        }
+
+        int end() {
+            return end;
+        }
+
+        String text() {
+            return ParallelGraphLoader.text(buffer, start, end);
+        }
+
+        long position() {
+            return position;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * PathBuffer - a reusable, mutable holder for the answer to a route query, for callers that
+ * answer many queries and do not want to allocate anything per query
+ * (see RouteService.route(originId, destinationId, searchMode, heapType, into)).
+ * The node array only grows, so once it is as long as the longest path no more memory is used.
+ * A buffer must not be shared between threads while a query fills it.
+ */
+public final class PathBuffer {
+    private int[] nodes; // nodes[0 .. length-1] is the path, origin first
+    private int length;
+    private long cost = PathResult.UNREACHABLE;
+    private int settledNodes;
+
+    /** Creates an empty buffer. */
+    public PathBuffer() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty buffer with room for paths of the given length.
+     * @param capacity initial number of nodes
+     */
+    public PathBuffer(int capacity) {
+        nodes = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Checks whether the last query found a path
+     * @return false if the destination could not be reached
+     */
+    public boolean isReachable() {
+        return cost != PathResult.UNREACHABLE;
+    }
+
+    /**
+     * Returns the cost of the path
+     * @return total cost, or PathResult.UNREACHABLE
+     */
+    public long getCost() {
+        return cost;
+    }
+
+    /**
+     * Returns the number of nodes on the path
+     * @return number of nodes, 0 if unreachable
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns a node of the path
+     * @param index position on the path, 0 for the origin
+     * @return id of the node
+     */
+    public int node(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return nodes[index];
+    }
+
+    public int getSettledNodes() {
+        return settledNodes;
+    }
+
+    /**
+     * Returns a copy of the path
+     * @return node ids, origin first
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(nodes, length);
+    }
+
+    /**
+     * Returns an immutable copy of the answer
+     * @return the path result
+     */
+    public PathResult toPathResult() {
+        return isReachable() ? new PathResult(toArray(), cost, settledNodes, null)
+                : PathResult.unreachable(settledNodes);
+    }
+
+    /**
+     * Makes the buffer hold a path of the given length and returns the array to fill
+     * (positions 0 .. length-1); the old contents are not kept.
+     */
+    int[] reserve(int length) {
+        if (nodes.length < length) {
+            nodes = new int[Math.max(length, 2 * nodes.length)];
+        }
+        this.length = length;
+        return nodes;
+    }
+
+    /** Empties the path so that nodes can be appended with add. */
+    void clear() {
+        length = 0;
+        cost = PathResult.UNREACHABLE;
+    }
+
+    /** Appends a node to the path. */
+    void add(int nodeId) {
+        if (length == nodes.length) {
+            nodes = Arrays.copyOf(nodes, 2 * length);
+        }
+        nodes[length++] = nodeId;
+    }
+
+    /** Sets the cost and work of a path that was found. */
+    void setFound(long cost, int settledNodes) {
+        this.cost = cost;
+        this.settledNodes = settledNodes;
+    }
+
+    /** Records that the destination could not be reached. */
+    void setUnreachable(int settledNodes) {
+        this.length = 0;
+        this.cost = PathResult.UNREACHABLE;
+        this.settledNodes = settledNodes;
+    }
+}
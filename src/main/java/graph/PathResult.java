@@ -0,0 +1,164 @@
+package graph;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * PathResult - the answer to one route query: the node ids on the shortest path
+ * (origin first), the cost of the path and how many nodes the search settled,
+ * plus the SearchStats of the search when RouteMetrics is enabled.
+ * The path is kept as an int array and the cost as a long; the searches keep their distances as
+ * longs too, so the cost of a long path of large edge costs does not overflow in any search mode.
+ * If the destination cannot be reached, isReachable() is false, the path is empty and the
+ * cost is UNREACHABLE.
+ * Instances are immutable, so they can be handed between threads.
+ */
+public final class PathResult {
+    /** Cost of a result whose destination cannot be reached. */
+    public static final long UNREACHABLE = -1;
+
+    private static final int[] NO_NODES = new int[0];
+
+    private final int[] nodes;
+    private final long cost;
+    private final int settledNodes;
+    private final SearchStats stats; // null if metrics were disabled
+
+    /**
+     * Constructor
+     * @param path node ids on the path, from the origin to the destination
+     * @param cost total cost of the path
+     * @param settledNodes number of nodes removed from the heap by the search
+     */
+    public PathResult(List<Integer> path, long cost, int settledNodes) {
+        this(path.stream().mapToInt(Integer::intValue).toArray(), cost, settledNodes, null);
+    }
+
+    /**
+     * Constructor
+     * @param path node ids on the path, from the origin to the destination; copied
+     * @param cost total cost of the path
+     * @param settledNodes number of nodes removed from the heap by the search
+     */
+    public PathResult(int[] path, long cost, int settledNodes) {
+        this(path.clone(), cost, settledNodes, null);
+    }
+
+    /** Takes ownership of the nodes array. */
+    PathResult(int[] nodes, long cost, int settledNodes, SearchStats stats) {
+        if (cost < 0 && cost != UNREACHABLE) {
+            throw new IllegalArgumentException("Negative path cost: " + cost);
+        }
+        this.nodes = nodes;
+        this.cost = cost;
+        this.settledNodes = settledNodes;
+        this.stats = stats;
+    }
+
+    /**
+     * Returns the result of a query whose destination cannot be reached
+     * @param settledNodes number of nodes the search settled before giving up
+     * @return the result, with an empty path
+     */
+    public static PathResult unreachable(int settledNodes) {
+        return new PathResult(NO_NODES, UNREACHABLE, settledNodes, null);
+    }
+
+    /**
+     * Returns the same result with the statistics of the search that produced it.
+     * @param stats statistics of the search
+     * @return the new result
+     */
+    PathResult withStats(SearchStats stats) {
+        return new PathResult(nodes, cost, settledNodes, stats);
+    }
+
+    /**
+     * Returns the same route walked from the destination to the origin
+     * @param settledNodes work to report for the new result
+     * @return the reversed result
+     */
+    PathResult reversed(int settledNodes) {
+        int[] reversed = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            reversed[i] = nodes[nodes.length - 1 - i];
+        }
+        return new PathResult(reversed, cost, settledNodes, null);
+    }
+
+    /**
+     * Checks whether a path was found
+     * @return false if the destination cannot be reached from the origin
+     */
+    public boolean isReachable() {
+        return cost != UNREACHABLE;
+    }
+
+    /**
+     * Returns the node ids on the path as a read-only list backed by the result (nothing is copied)
+     * @return node ids, origin first; empty if unreachable
+     */
+    public List<Integer> getPath() {
+        return new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                return nodes[index];
+            }
+
+            @Override
+            public int size() {
+                return nodes.length;
+            }
+        };
+    }
+
+    /**
+     * Returns a copy of the node ids on the path
+     * @return node ids, origin first; empty if unreachable
+     */
+    public int[] getNodes() {
+        return nodes.clone();
+    }
+
+    /**
+     * Returns the number of nodes on the path
+     * @return number of nodes, 0 if unreachable
+     */
+    public int length() {
+        return nodes.length;
+    }
+
+    /**
+     * Returns a node of the path without copying the path
+     * @param index position on the path, 0 for the origin
+     * @return id of the node
+     */
+    public int node(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * Returns the cost of the path
+     * @return total cost, or UNREACHABLE
+     */
+    public long getCost() {
+        return cost;
+    }
+
+    public int getSettledNodes() {
+        return settledNodes;
+    }
+
+    /**
+     * Returns what the search did, if RouteMetrics was enabled when it ran
+     * @return the statistics, or null if metrics were disabled
+     */
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return isReachable() ? "PathResult{cost=" + cost + ", path=" + getPath() + "}" : "PathResult{unreachable}";
+    }
+}
@@ -0,0 +1,59 @@
+package graph;
+
+/**
+ * PriorityQueue - a min priority queue of node ids used by Dijkstra's algorithm.
+ * Every node id (0 .. capacity-1) is in the queue at most once, and its priority
+ * (distance) can only go down while it is queued.
+ * Priorities are longs, so the sum of many large int edge costs never wraps around.
+ */
+public interface PriorityQueue {
+    /**
+     * Inserts a node that is not in the queue yet.
+     * @param nodeId - Node ID
+     * @param priority - Priority (distance) of the node
+     */
+    void insert(int nodeId, long priority);
+
+    /**
+     * Removes the node with the smallest priority.
+     * @return - Node ID of the removed node
+     */
+    int removeMin();
+
+    /**
+     * Returns the smallest priority in the queue without removing it.
+     * @return - priority of the node removeMin would return
+     */
+    long minPriority();
+
+    /**
+     * Lowers the priority of a node that is in the queue.
+     * @param nodeId - Node ID
+     * @param newPriority - New priority, not larger than the current one
+     */
+    void reduceKey(int nodeId, long newPriority);
+
+    /**
+     * Checks whether the node is currently in the queue (inserted and not removed yet).
+     * @param nodeId - Node ID
+     * @return true if the node is queued
+     */
+    boolean contains(int nodeId);
+
+    /**
+     * Returns the number of queued nodes.
+     * @return size of the queue
+     */
+    int getSize();
+
+    /**
+     * Checks whether the queue has no nodes.
+     * @return true if the queue is empty
+     */
+    boolean empty();
+
+    /**
+     * Removes all nodes, so the queue can be used for another search.
+     */
+    void clear();
+}
@@ -0,0 +1,162 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * RadixHeap class - a monotone priority queue for non-negative long priorities: removeMin never returns a smaller
+ * priority than the one before, which is always the case in Dijkstra's search with non-negative costs.
+ * A node is kept in bucket b when the highest bit in which its priority differs from "last"
+ * (the last removed minimum, 0 after clear) is bit b-1; bucket 0 holds the priorities equal to last.
+ * So insert and reduceKey are O(1), and when bucket 0 is empty removeMin takes the first
+ * non-empty bucket, makes its smallest priority the new last and spreads the bucket over the
+ * lower buckets. A node only moves to lower buckets, so at most 63 times in all.
+ * Unlike DialQueue it does not depend on how large the edge costs are.
+ * A priority below last (only possible with an inconsistent A* heuristic) is rejected with an
+ * IllegalArgumentException instead of giving wrong distances.
+ */
+public class RadixHeap implements PriorityQueue {
+    private static final int BUCKETS = 64; // a priority below 2^63 differs from last at most in bit 62
+
+    private final long[] keys;   // priority of each node id, -1 if the node is not queued
+    private final int[] buckets;   // bucket of each queued node id
+    private final int[] next;   // next node in the same bucket, -1 at the end
+    private final int[] previous;   // previous node in the same bucket, -1 at the head
+    private final int[] heads = new int[BUCKETS];   // first node of each bucket, -1 if the bucket is empty
+    private long occupied;   // bit b is set if bucket b is not empty
+    private long last;   // last removed minimum; no queued priority is smaller
+    private int size;   // Current size of the heap
+
+    /**
+     * Constructor to initialize the heap for node ids 0 .. max-1.
+     * @param max - Maximum size of the heap
+     */
+    public RadixHeap(int max) {
+        keys = new long[max];
+        buckets = new int[max];
+        next = new int[max];
+        previous = new int[max];
+        Arrays.fill(keys, -1);
+        Arrays.fill(heads, -1);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean empty() {
+        return size == 0;
+    }
+
+    public boolean contains(int nodeId) {
+        return keys[nodeId] >= 0;
+    }
+
+    public long minPriority() {
+        settleMinimum();
+        return last;
+    }
+
+    public void insert(int nodeId, long priority) {
+        if (priority < 0) {
+            throw new IllegalArgumentException("negative priority: " + priority);
+        }
+        checkMonotone(priority);
+        size++;
+        add(nodeId, priority);
+    }
+
+    public int removeMin() {
+        settleMinimum();
+        int min = heads[0];
+        unlink(min);
+        keys[min] = -1;
+        size--;
+        return min;
+    }
+
+    public void reduceKey(int nodeId, long newPriority) {
+        checkMonotone(newPriority);
+        unlink(nodeId);
+        add(nodeId, newPriority);
+    }
+
+    public void clear() {
+        for (long bits = occupied; bits != 0; bits &= bits - 1) {
+            int bucket = Long.numberOfTrailingZeros(bits);
+            for (int node = heads[bucket]; node != -1; node = next[node]) {
+                keys[node] = -1;
+            }
+            heads[bucket] = -1;
+        }
+        occupied = 0;
+        size = 0;
+        last = 0;
+    }
+
+    /** Rejects a priority below last, which has no bucket relative to it. */
+    private void checkMonotone(long priority) {
+        if (priority < last) {
+            throw new IllegalArgumentException("priority " + priority + " is below the last removed minimum " + last
+                    + "; a monotone queue needs a consistent heuristic");
+        }
+    }
+
+    /**
+     * Makes sure bucket 0 holds the smallest priority: if it is empty, the smallest priority of
+     * the first non-empty bucket becomes last and the nodes of that bucket are put in the
+     * buckets of their priorities relative to it, which are all lower.
+     */
+    private void settleMinimum() {
+        if (heads[0] != -1) {
+            return;
+        }
+        if (occupied == 0) {
+            throw new IllegalStateException("heap is empty");
+        }
+        int bucket = Long.numberOfTrailingZeros(occupied);
+        long min = Long.MAX_VALUE;
+        for (int node = heads[bucket]; node != -1; node = next[node]) {
+            min = Math.min(min, keys[node]);
+        }
+        last = min;
+        int node = heads[bucket];
+        heads[bucket] = -1;
+        occupied &= ~(1L << bucket);
+        while (node != -1) {
+            int following = next[node];
+            add(node, keys[node]);
+            node = following;
+        }
+    }
+
+    private void add(int nodeId, long priority) {
+        keys[nodeId] = priority;
+        int bucket = 64 - Long.numberOfLeadingZeros(priority ^ last);
+        buckets[nodeId] = bucket;
+        int head = heads[bucket];
+        next[nodeId] = head;
+        previous[nodeId] = -1;
+        if (head != -1) {
+            previous[head] = nodeId;
+        }
+        heads[bucket] = nodeId;
+        occupied |= 1L << bucket;
+    }
+
+    private void unlink(int nodeId) {
+        int bucket = buckets[nodeId];
+        int before = previous[nodeId];
+        int after = next[nodeId];
+        if (before != -1) {
+            next[before] = after;
+        } else {
+            heads[bucket] = after;
+            if (after == -1) {
+                occupied &= ~(1L << bucket);
+            }
+        }
+        if (after != -1) {
+            previous[after] = before;
+        }
+    }
+}
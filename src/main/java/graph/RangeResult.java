@@ -0,0 +1,117 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * RangeResult - the nodes that can be reached from one source within a budget, as computed by
+ * RouteService.range: their ids and costs in two int arrays, in the order the search settled
+ * them, so by nondecreasing cost. The nodes within a smaller budget are a prefix of the same
+ * arrays (see within), which is how one search answers many budgets from the same source.
+ * Instances are not modified after they are created.
+ */
+public final class RangeResult {
+    private final int sourceId;
+    private final int budget;
+    private final int[] nodes; // shared with the results of smaller budgets from the same search
+    private final int[] costs; // costs[i] is the cost of nodes[i]; nondecreasing
+    private final int size; // number of entries of nodes and costs within the budget
+
+    RangeResult(int sourceId, int budget, int[] nodes, int[] costs, int size) {
+        this.sourceId = sourceId;
+        this.budget = budget;
+        this.nodes = nodes;
+        this.costs = costs;
+        this.size = size;
+    }
+
+    public int getSourceId() {
+        return sourceId;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    /**
+     * Returns the number of nodes within the budget, the source included
+     * @return number of nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the i-th closest node
+     * @param i index, 0 for the source
+     * @return id of the node
+     */
+    public int node(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for " + size + " nodes");
+        }
+        return nodes[i];
+    }
+
+    /**
+     * Returns the cost of the shortest path from the source to the i-th closest node
+     * @param i index, 0 for the source
+     * @return cost, at most the budget
+     */
+    public int cost(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for " + size + " nodes");
+        }
+        return costs[i];
+    }
+
+    /**
+     * Returns the ids of the nodes within the budget, closest first
+     * @return a new array of size() node ids
+     */
+    public int[] getNodes() {
+        return Arrays.copyOf(nodes, size);
+    }
+
+    /**
+     * Returns the costs of the nodes within the budget, in the order of getNodes
+     * @return a new array of size() costs
+     */
+    public int[] getCosts() {
+        return Arrays.copyOf(costs, size);
+    }
+
+    /**
+     * Returns how many nodes are within a smaller budget, by binary search over the costs
+     * @param smallerBudget budget, at most getBudget()
+     * @return number of nodes whose cost is at most smallerBudget
+     */
+    public int count(int smallerBudget) {
+        int low = 0, high = size; // costs[0 .. low-1] <= smallerBudget < costs[high .. size-1]
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (costs[middle] <= smallerBudget) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the nodes within a smaller budget, without searching again; the arrays are shared.
+     * @param smallerBudget budget, at most getBudget()
+     * @return the result for that budget
+     */
+    public RangeResult within(int smallerBudget) {
+        if (smallerBudget > budget) {
+            throw new IllegalArgumentException("Budget " + smallerBudget + " is larger than the searched budget " + budget);
+        }
+        return new RangeResult(sourceId, smallerBudget, nodes, costs, count(smallerBudget));
+    }
+
+    @Override
+    public String toString() {
+        return "RangeResult{source=" + sourceId + ", budget=" + budget + ", nodes=" + size + "}";
+    }
+}
@@ -0,0 +1,131 @@
+package graph;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * RouteCache - a size-bounded cache of route results keyed by (originId, destinationId),
+ * evicting the least recently used entry when it is full.
+ * On an undirected graph the reverse of a cached route is also a shortest path, so a query
+ * for (destination, origin) is answered from the stored (origin, destination) entry.
+ * The cache remembers the version of the graph its entries were computed for and empties
+ * itself as soon as the graph is reloaded or modified.
+ * All methods are synchronized, so one cache can be shared by many threads.
+ */
+public class RouteCache {
+    private final Graph graph;
+    private final int maxSize;
+    private final LinkedHashMap<Long, PathResult> entries;
+    private int graphVersion;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructor
+     * @param graph the graph the routes are computed on
+     * @param maxSize maximum number of cached routes
+     */
+    public RouteCache(Graph graph, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.graph = graph;
+        this.maxSize = maxSize;
+        this.graphVersion = graph.getVersion();
+        // access order: every get moves the entry to the end, the eldest entry is the least recently used
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, PathResult> eldest) {
+                if (size() > RouteCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Looks up a route, trying the reversed pair on an undirected graph.
+     * @param originId id of the origin
+     * @param destinationId id of the destination
+     * @return the cached route, or null (counted as a miss)
+     */
+    public synchronized PathResult get(int originId, int destinationId) {
+        checkVersion();
+        PathResult result = entries.get(key(originId, destinationId));
+        if (result == null && !graph.isDirected()) {
+            PathResult reverse = entries.get(key(destinationId, originId));
+            if (reverse != null) {
+                result = reversed(reverse);
+            }
+        }
+        if (result == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return result;
+    }
+
+    /**
+     * Stores a route, evicting the least recently used one if the cache is full.
+     * A route computed for an older version of the graph is not stored, even if the graph
+     * changed only after the caller's last check.
+     * @param originId id of the origin
+     * @param destinationId id of the destination
+     * @param result route
+     * @param version Graph.getVersion() read before the route was computed
+     */
+    public synchronized void put(int originId, int destinationId, PathResult result, int version) {
+        checkVersion();
+        if (version == graphVersion) {
+            entries.put(key(originId, destinationId), result);
+        }
+    }
+
+    /** Removes all routes. The counters are kept. */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        checkVersion();
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /** Drops every entry if the graph changed since they were stored. */
+    private void checkVersion() {
+        int version = graph.getVersion();
+        if (version != graphVersion) {
+            entries.clear();
+            graphVersion = version;
+        }
+    }
+
+    private static long key(int originId, int destinationId) {
+        return ((long) originId << 32) | (destinationId & 0xFFFFFFFFL);
+    }
+
+    /** The same route walked from the destination to the origin (no search was needed). */
+    private static PathResult reversed(PathResult result) {
+        return result.reversed(0);
+    }
+}
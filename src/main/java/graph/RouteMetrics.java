@@ -0,0 +1,263 @@
+package graph;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RouteMetrics - process-wide statistics of the route queries answered by every RouteService:
+ * query count and rate, a latency histogram, and the average work per query.
+ * Metrics are off by default. While they are off the searches run exactly as before: the heaps
+ * are not wrapped, nothing is timed or recorded, and the only cost is one volatile read per query.
+ * Turn them on with -Dgraph.metrics=true, with RouteMetrics.get().setEnabled(true), or through JMX
+ * (the MBean "graph:type=RouteMetrics" is registered the first time they are turned on).
+ * While they are on, every query also gets its SearchStats in the PathResult and is
+ * reported as a RouteQueryEvent to Java Flight Recorder.
+ */
+public final class RouteMetrics implements RouteMetricsMBean {
+    /** Name of the MBean in the platform MBean server. */
+    public static final String OBJECT_NAME = "graph:type=RouteMetrics";
+
+    private static final int SUB_BITS = 3; // 8 buckets per power of two, so a bucket is at most 12.5% wide
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = SUB_BUCKETS * (64 - SUB_BITS);
+    private static final int RATE_SECONDS = 60; // window of getQueriesPerSecond
+
+    private static final RouteMetrics INSTANCE = new RouteMetrics();
+    private static volatile boolean enabled;
+    private static boolean registered;
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder settledNodes = new LongAdder();
+    private final LongAdder edgesRelaxed = new LongAdder();
+    private final LongAdder heapOperations = new LongAdder();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray secondCounts = new AtomicLongArray(RATE_SECONDS); // queries per second, a ring
+    private final AtomicLongArray secondStamps = new AtomicLongArray(RATE_SECONDS); // which second each slot holds
+
+    static {
+        if (Boolean.getBoolean("graph.metrics")) {
+            INSTANCE.setEnabled(true);
+        }
+    }
+
+    private RouteMetrics() {
+    }
+
+    /**
+     * Returns the metrics of this process
+     * @return the only instance
+     */
+    public static RouteMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Checked by RouteService and SearchContext before every query.
+     * @return whether metrics are on
+     */
+    static boolean active() {
+        return enabled;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns the metrics on or off; queries already running are not affected.
+     * @param enabled whether the next queries collect statistics
+     */
+    @Override
+    public void setEnabled(boolean enabled) {
+        if (enabled) {
+            register();
+        }
+        RouteMetrics.enabled = enabled;
+    }
+
+    private static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Could not register " + OBJECT_NAME + ": " + e);
+        }
+    }
+
+    /**
+     * Adds one query to the statistics.
+     * @param stats what the query did
+     */
+    void record(SearchStats stats) {
+        long nanos = stats.getWallNanos();
+        queries.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        settledNodes.add(stats.getSettledNodes());
+        edgesRelaxed.add(stats.getEdgesRelaxed());
+        heapOperations.add((long) stats.getHeapInserts() + stats.getDecreaseKeys() + stats.getHeapPops());
+        histogram.incrementAndGet(bucket(nanos));
+        long second = (System.nanoTime() - startNanos) / 1_000_000_000L;
+        int slot = (int) (second % RATE_SECONDS);
+        long stamp = secondStamps.get(slot);
+        if (stamp != second && secondStamps.compareAndSet(slot, stamp, second)) {
+            secondCounts.set(slot, 0); // the slot held an older second; a few concurrent counts may be lost
+        }
+        secondCounts.incrementAndGet(slot);
+    }
+
+    /** Index of the histogram bucket of a latency: exact below 8 ns, then 8 buckets per power of two. */
+    static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(0, nanos);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int mantissa = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS * (exponent - SUB_BITS + 1) + mantissa;
+    }
+
+    /** Largest latency that falls in the bucket. */
+    static long bucketBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        int mantissa = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + mantissa + 1) << (exponent - SUB_BITS)) - 1;
+    }
+
+    @Override
+    public long getQueryCount() {
+        return queries.sum();
+    }
+
+    @Override
+    public double getQueriesPerSecond() {
+        long now = (System.nanoTime() - startNanos) / 1_000_000_000L;
+        long window = Math.min(RATE_SECONDS, now); // full seconds only
+        if (window == 0) {
+            return 0;
+        }
+        long count = 0;
+        for (int slot = 0; slot < RATE_SECONDS; slot++) {
+            long stamp = secondStamps.get(slot);
+            if (stamp < now && stamp >= now - window) {
+                count += secondCounts.get(slot);
+            }
+        }
+        return (double) count / window;
+    }
+
+    @Override
+    public double getMeanLatencyMillis() {
+        long count = queries.sum();
+        return count == 0 ? 0 : totalNanos.sum() / 1e6 / count;
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return percentileNanos(0.50) / 1e6;
+    }
+
+    @Override
+    public double getLatencyP90Millis() {
+        return percentileNanos(0.90) / 1e6;
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return percentileNanos(0.99) / 1e6;
+    }
+
+    @Override
+    public double getMaxLatencyMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /**
+     * Returns the latency below which the given fraction of the queries fall.
+     * @param fraction between 0 and 1
+     * @return upper bound of the bucket holding that query, in nanoseconds; 0 if there were no queries
+     */
+    public long percentileNanos(double fraction) {
+        long[] counts = getLatencyHistogram();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketBound(i), maxNanos.get());
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public double getMeanSettledNodes() {
+        return mean(settledNodes);
+    }
+
+    @Override
+    public double getMeanEdgesRelaxed() {
+        return mean(edgesRelaxed);
+    }
+
+    @Override
+    public double getMeanHeapOperations() {
+        return mean(heapOperations);
+    }
+
+    private double mean(LongAdder sum) {
+        long count = queries.sum();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    @Override
+    public long[] getLatencyHistogram() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram.get(i);
+        }
+        return counts;
+    }
+
+    @Override
+    public long[] getLatencyBucketBoundsNanos() {
+        long[] bounds = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            bounds[i] = bucketBound(i);
+        }
+        return bounds;
+    }
+
+    @Override
+    public void reset() {
+        queries.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        settledNodes.reset();
+        edgesRelaxed.reset();
+        heapOperations.reset();
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram.set(i, 0);
+        }
+        for (int i = 0; i < RATE_SECONDS; i++) {
+            secondCounts.set(i, 0);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package graph;
+
+/**
+ * RouteMetricsMBean - the JMX view of RouteMetrics, registered as "graph:type=RouteMetrics".
+ * Latencies are in milliseconds; percentiles are the upper bounds of histogram buckets,
+ * so they are at most 12.5% above the exact value.
+ */
+public interface RouteMetricsMBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getQueryCount();
+
+    /** Queries recorded in the last full minute, per second. */
+    double getQueriesPerSecond();
+
+    double getMeanLatencyMillis();
+
+    double getLatencyP50Millis();
+
+    double getLatencyP90Millis();
+
+    double getLatencyP99Millis();
+
+    double getMaxLatencyMillis();
+
+    double getMeanSettledNodes();
+
+    double getMeanEdgesRelaxed();
+
+    double getMeanHeapOperations();
+
+    /** Number of queries in each latency bucket; see getLatencyBucketBoundsNanos. */
+    long[] getLatencyHistogram();
+
+    /** Upper bound (inclusive) of each latency bucket, in nanoseconds. */
+    long[] getLatencyBucketBoundsNanos();
+
+    /** Sets every counter and the histogram back to zero. */
+    void reset();
+}
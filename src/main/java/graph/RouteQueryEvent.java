@@ -0,0 +1,74 @@
+package graph;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * RouteQueryEvent - a JFR event for one route query answered while RouteMetrics is enabled.
+ * Its duration is the time of the search; the fields are those of SearchStats.
+ * Record it with e.g. java -XX:StartFlightRecording=filename=routes.jfr and
+ * look at it with jfr print --events graph.RouteQuery routes.jfr.
+ */
+@Name("graph.RouteQuery")
+@Label("Route Query")
+@Category("Graph")
+@Description("A shortest path query answered by RouteService")
+final class RouteQueryEvent extends Event {
+    @Label("Origin")
+    int origin;
+
+    @Label("Destination")
+    int destination;
+
+    @Label("Search Mode")
+    String searchMode;
+
+    @Label("Cost")
+    long cost;
+
+    @Label("Settled Nodes")
+    int settledNodes;
+
+    @Label("Edges Relaxed")
+    int edgesRelaxed;
+
+    @Label("Heap Inserts")
+    int heapInserts;
+
+    @Label("Decrease Keys")
+    int decreaseKeys;
+
+    @Label("Heap Pops")
+    int heapPops;
+
+    @Label("Peak Heap Size")
+    int peakHeapSize;
+
+    /**
+     * Fills in the fields and commits the event, if a recording wants it.
+     * @param originId id of the origin
+     * @param destinationId id of the destination
+     * @param mode how the search ran
+     * @param pathCost cost of the path found, PathResult.UNREACHABLE if none
+     * @param stats what the search did
+     */
+    void commit(int originId, int destinationId, SearchMode mode, long pathCost, SearchStats stats) {
+        end();
+        if (shouldCommit()) {
+            origin = originId;
+            destination = destinationId;
+            searchMode = mode.name();
+            cost = pathCost;
+            settledNodes = stats.getSettledNodes();
+            edgesRelaxed = stats.getEdgesRelaxed();
+            heapInserts = stats.getHeapInserts();
+            decreaseKeys = stats.getDecreaseKeys();
+            heapPops = stats.getHeapPops();
+            peakHeapSize = stats.getPeakHeapSize();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,532 @@
+package graph;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * RouteService - answers shortest path queries from many threads against one shared, loaded Graph.
+ * The graph is never modified by a query; every worker thread keeps its own SearchContext
+ * (distance table and heap) in a ThreadLocal and reuses it for all of its queries.
+ * Queries can run on the caller's thread (route), on the service's ForkJoinPool (routeAsync,
+ * or submit for a cancellable query with progress), or as a parallel batch (routeAll).
+ */
+public class RouteService implements AutoCloseable {
+    /** Number of landmarks chosen when ALT is used before setLandmarks was called. */
+    public static final int DEFAULT_LANDMARKS = 8;
+
+    private final Graph graph;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<SearchContext> contexts = new ThreadLocal<>();
+    private final ThreadLocal<AlternativeRoutes> alternatives = new ThreadLocal<>();
+    private volatile Heuristic coordinateHeuristic; // used by SearchMode.ASTAR, created on first use
+    private volatile boolean customHeuristic; // coordinateHeuristic came from the caller: may be inconsistent, kept on cost updates
+    private volatile Landmarks landmarks; // used by SearchMode.ALT, created on first use
+    private volatile ContractionHierarchy hierarchy; // used by SearchMode.CONTRACTION_HIERARCHY
+    // graph version the three above were made for; edge cost updates make them invalid
+    private volatile int heuristicVersion;
+    private volatile int landmarksVersion;
+    private volatile int hierarchyVersion;
+    private volatile RouteCache cache; // consulted before every route query, null if disabled
+
+    /**
+     * Creates a service with one worker thread per available processor.
+     * @param graph loaded graph; it must not be reloaded while the service is in use
+     */
+    public RouteService(Graph graph) {
+        this(graph, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor
+     * @param graph loaded graph; it must not be reloaded while the service is in use
+     * @param threads number of worker threads for routeAsync and routeAll
+     */
+    public RouteService(Graph graph, int threads) {
+        this.graph = graph;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Sets the heuristic used by SearchMode.ASTAR. Since it may not be consistent, A* queries
+     * with HeapType.AUTO then use a BINARY heap instead of a monotone queue. The heuristic is
+     * kept when edge costs change; the caller must replace it if a lower cost makes it inadmissible.
+     * @param heuristic admissible, consistent heuristic, e.g. a CoordinateHeuristic with a chosen scale,
+     *                  or null to go back to the default heuristic
+     */
+    public synchronized void setCoordinateHeuristic(Heuristic heuristic) {
+        this.heuristicVersion = graph.getVersion();
+        this.customHeuristic = heuristic != null;
+        this.coordinateHeuristic = heuristic;
+    }
+
+    /**
+     * Returns the heuristic used by SearchMode.ASTAR: the one given to setCoordinateHeuristic,
+     * or by default a CoordinateHeuristic with the largest admissible scale for the graph.
+     * The default one is made again after edge costs change.
+     * @return the A* heuristic
+     */
+    public synchronized Heuristic getCoordinateHeuristic() {
+        if (coordinateHeuristic == null || (!customHeuristic && heuristicVersion != graph.getVersion())) {
+            heuristicVersion = graph.getVersion();
+            coordinateHeuristic = CoordinateHeuristic.forGraph(graph);
+        }
+        return coordinateHeuristic;
+    }
+
+    /**
+     * Sets the landmarks used by SearchMode.ALT.
+     * @param landmarks precomputed landmarks of this graph
+     */
+    public void setLandmarks(Landmarks landmarks) {
+        this.landmarksVersion = graph.getVersion();
+        this.landmarks = landmarks;
+    }
+
+    /**
+     * Returns the landmarks used by SearchMode.ALT; by default DEFAULT_LANDMARKS landmarks
+     * chosen with the "avoid" rule, computed on first use and again after edge costs change.
+     * @return the ALT heuristic
+     */
+    public synchronized Landmarks getLandmarks() {
+        if (landmarks == null || landmarksVersion != graph.getVersion()) {
+            landmarksVersion = graph.getVersion();
+            landmarks = Landmarks.select(graph, DEFAULT_LANDMARKS, Landmarks.Selection.AVOID, 1);
+        }
+        return landmarks;
+    }
+
+    /**
+     * Sets the hierarchy used by SearchMode.CONTRACTION_HIERARCHY, e.g. one read with
+     * ContractionHierarchy.load so it does not have to be rebuilt.
+     * @param hierarchy hierarchy built for this graph
+     */
+    public void setContractionHierarchy(ContractionHierarchy hierarchy) {
+        this.hierarchyVersion = graph.getVersion();
+        this.hierarchy = hierarchy;
+    }
+
+    /**
+     * Returns the hierarchy used by SearchMode.CONTRACTION_HIERARCHY, building it on first use
+     * and again after edge costs change.
+     * @return the contraction hierarchy
+     */
+    public synchronized ContractionHierarchy getContractionHierarchy() {
+        if (hierarchy == null || hierarchyVersion != graph.getVersion()) {
+            hierarchyVersion = graph.getVersion();
+            hierarchy = ContractionHierarchy.build(graph);
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Puts a cache in front of route, routeAsync and routeAll; null disables caching.
+     * @param cache cache created for this service's graph
+     */
+    public void setCache(RouteCache cache) {
+        this.cache = cache;
+    }
+
+    public RouteCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Computes the shortest path on the calling thread, stopping at the destination,
+     * with the heap chosen for the graph (HeapType.AUTO).
+     * @param originId id of the origin
+     * @param destinationId id of the destination
+     * @return path and cost
+     */
+    public PathResult route(int originId, int destinationId) {
+        return route(originId, destinationId, SearchMode.EARLY_EXIT, HeapType.AUTO);
+    }
+
+    /**
+     * Computes the shortest path on the calling thread.
+     * @param originId id of the origin
+     * @param destinationId id of the destination
+     * @param searchMode how far the search runs
+     * @param heapType priority queue to use
+     * @return path and cost
+     */
+    public PathResult route(int originId, int destinationId, SearchMode searchMode, HeapType heapType) {
+        return route(originId, destinationId, searchMode, heapType, (RouteTask) null);
+    }
+
+    /**
+     * Computes the shortest path on the calling thread, checking the task while searching.
+     * @throws java.util.concurrent.CancellationException if the task is cancelled during the search
+     */
+    private PathResult route(int originId, int destinationId, SearchMode searchMode, HeapType heapType, RouteTask task) {
+        RouteCache cache = this.cache;
+        if (cache == null) {
+            return compute(originId, destinationId, searchMode, heapType, task);
+        }
+        PathResult result = cache.get(originId, destinationId);
+        if (result == null) {
+            int version = graph.getVersion();
+            result = compute(originId, destinationId, searchMode, heapType, task);
+            cache.put(originId, destinationId, result, version); // dropped if the graph changed meanwhile
+        }
+        return result;
+    }
+
+    /**
+     * Computes the shortest path on the calling thread and writes it into a reusable buffer.
+     * Once the buffer is as long as the path and the thread has answered a query before,
+     * nothing is allocated, so this suits callers that answer many queries in a tight loop.
+     * The RouteCache is not used.
+     * @param originId id of the origin
+     * @param destinationId id of the destination
+     * @param searchMode how far the search runs
+     * @param heapType priority queue to use
+     * @param into buffer that receives the path, its cost, or that the destination is unreachable
+     * @return the buffer
+     */
+    public PathBuffer route(int originId, int destinationId, SearchMode searchMode, HeapType heapType, PathBuffer into) {
+        compute(originId, destinationId, searchMode, heapType, null, into);
+        return into;
+    }
+
+    private PathResult compute(int originId, int destinationId, SearchMode searchMode, HeapType heapType, RouteTask task) {
+        return compute(originId, destinationId, searchMode, heapType, task, null);
+    }
+
+    /**
+     * Runs the search for one query, without the cache. While RouteMetrics is enabled the search
+     * is timed, its SearchStats are recorded and attached to the result, and a JFR event is emitted.
+     * @return the result, or null if it was written into the buffer
+     */
+    private PathResult compute(int originId, int destinationId, SearchMode searchMode, HeapType heapType,
+                               RouteTask task, PathBuffer into) {
+        if (!RouteMetrics.active()) {
+            return search(originId, destinationId, searchMode, heapType, task, into);
+        }
+        prepare(searchMode); // landmarks or the hierarchy built on first use are not part of the query
+        RouteQueryEvent event = new RouteQueryEvent();
+        event.begin();
+        long start = System.nanoTime();
+        PathResult result = search(originId, destinationId, searchMode, heapType, task, into);
+        long nanos = System.nanoTime() - start;
+        SearchContext context = searchMode == SearchMode.CONTRACTION_HIERARCHY
+                ? hierarchy.lastContext() : contexts.get();
+        SearchStats stats = context.stats(result != null ? result.getSettledNodes() : into.getSettledNodes(), nanos);
+        RouteMetrics.get().record(stats);
+        event.commit(originId, destinationId, searchMode, result != null ? result.getCost() : into.getCost(), stats);
+        return result != null ? result.withStats(stats) : null;
+    }
+
+    /**
+     * Builds the heuristic or hierarchy the search mode needs, if it is missing or out of date.
+     */
+    private void prepare(SearchMode searchMode) {
+        int version = graph.getVersion();
+        if (searchMode == SearchMode.ASTAR && (coordinateHeuristic == null || (!customHeuristic && heuristicVersion != version))) {
+            getCoordinateHeuristic();
+        } else if (searchMode == SearchMode.ALT && (landmarks == null || landmarksVersion != version)) {
+            getLandmarks();
+        } else if (searchMode == SearchMode.CONTRACTION_HIERARCHY && (hierarchy == null || hierarchyVersion != version)) {
+            getContractionHierarchy();
+        }
+    }
+
+    /**
+     * Runs the search, returning a new PathResult or, if into is not null, filling into and returning null.
+     */
+    private PathResult search(int originId, int destinationId, SearchMode searchMode, HeapType heapType,
+                              RouteTask task, PathBuffer into) {
+        int version = graph.getVersion();
+        if (searchMode == SearchMode.CONTRACTION_HIERARCHY) {
+            ContractionHierarchy ch = hierarchy;
+            if (ch == null || hierarchyVersion != version) {
+                ch = getContractionHierarchy();
+            }
+            if (into == null) {
+                return ch.query(originId, destinationId);
+            }
+            ch.query(originId, destinationId, into);
+            return null;
+        }
+        if (searchMode == SearchMode.ASTAR && heapType == HeapType.AUTO && customHeuristic) {
+            heapType = HeapType.BINARY; // the caller's heuristic may be inconsistent, which monotone queues reject
+        }
+        SearchContext context = SearchContext.forThread(contexts, graph, heapType);
+        Heuristic heuristic = null;
+        if (searchMode == SearchMode.ASTAR) {
+            heuristic = coordinateHeuristic;
+            if (heuristic == null || (!customHeuristic && heuristicVersion != version)) {
+                heuristic = getCoordinateHeuristic();
+            }
+        } else if (searchMode == SearchMode.ALT) {
+            heuristic = landmarks;
+            if (heuristic == null || landmarksVersion != version) {
+                heuristic = getLandmarks();
+            }
+        }
+        context.task = task;
+        try {
+            if (into == null) {
+                return Dijkstra.query(graph, context, originId, destinationId, searchMode, heuristic);
+            }
+            Dijkstra.query(graph, context, originId, destinationId, searchMode, heuristic, into);
+            return null;
+        } finally {
+            context.task = null;
+        }
+    }
+
+    /**
+     * Computes the shortest path tree from the source and keeps it up to date through
+     * DynamicShortestPaths.update, for callers that follow one source while costs change.
+     * @param sourceId id of the source
+     * @return the shortest path tree
+     */
+    public DynamicShortestPaths shortestPathTree(int sourceId) {
+        return new DynamicShortestPaths(graph, sourceId);
+    }
+
+    /**
+     * Computes the k shortest loopless paths (see AlternativeRoutes.kShortest).
+     * @param originId id of the origin
+     * @param destinationId id of the destination
+     * @param k number of paths wanted
+     * @return up to k paths, cheapest first; empty if the destination cannot be reached
+     */
+    public List<PathResult> kShortestPaths(int originId, int destinationId, int k) {
+        return alternativesForThread().kShortest(originId, destinationId, k);
+    }
+
+    /**
+     * Computes the shortest route and up to count - 1 clearly different alternatives with the
+     * default settings of AlternativeRoutes.penalized, which bound the number of searches.
+     * @param originId id of the origin
+     * @param destinationId id of the destination
+     * @param count number of routes wanted
+     * @return the routes, cheapest first; empty if the destination cannot be reached
+     */
+    public List<PathResult> alternativeRoutes(int originId, int destinationId, int count) {
+        return alternativesForThread().penalized(originId, destinationId, count);
+    }
+
+    /**
+     * Finds every node that can be reached from the source within the budget, on the calling
+     * thread. The search stops at the budget instead of settling the whole graph.
+     * @param sourceId id of the source
+     * @param budget largest cost of interest, at least 0
+     * @return the nodes within the budget and their costs, closest first
+     */
+    public RangeResult range(int sourceId, int budget) {
+        return range(sourceId, budget, null);
+    }
+
+    /**
+     * Finds the nodes within the budget like range(sourceId, budget), checking the task while searching.
+     * @throws java.util.concurrent.CancellationException if the task is cancelled during the search
+     */
+    private RangeResult range(int sourceId, int budget, RouteTask task) {
+        if (sourceId < 0 || sourceId >= graph.numNodes()) {
+            throw new IllegalArgumentException("No node with id " + sourceId);
+        }
+        if (budget < 0) {
+            throw new IllegalArgumentException("The budget must not be negative: " + budget);
+        }
+        SearchContext context = SearchContext.forThread(contexts, graph, HeapType.AUTO);
+        context.task = task;
+        int[] nodes;
+        try {
+            nodes = Dijkstra.rangeSearch(graph, context, sourceId, budget);
+        } finally {
+            context.task = null;
+        }
+        int[] costs = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            costs[i] = (int) context.distance(nodes[i]); // at most the int budget
+        }
+        return new RangeResult(sourceId, budget, nodes, costs, nodes.length);
+    }
+
+    /**
+     * Starts a range query (see range) on one of the worker threads and returns right away.
+     * Cancelling the returned future stops the search within RouteTask.CHECK_INTERVAL settled
+     * nodes, so a large budget that is no longer wanted does not keep a worker busy.
+     * @param sourceId id of the source
+     * @param budget largest cost of interest, at least 0
+     * @return future that completes with the nodes within the budget and their costs
+     */
+    public CompletableFuture<RangeResult> rangeAsync(int sourceId, int budget) {
+        RouteTask task = new RouteTask(null); // only checked by the search, to see if it was cancelled
+        CompletableFuture<RangeResult> future = new CompletableFuture<>();
+        future.whenComplete((range, error) -> {
+            if (future.isCancelled()) {
+                task.cancel(false);
+            }
+        });
+        pool.execute(() -> {
+            if (future.isDone()) {
+                return; // cancelled before it started
+            }
+            try {
+                future.complete(range(sourceId, budget, task));
+            } catch (CancellationException e) {
+                future.cancel(false);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Answers several budgets from the same source with one search up to the largest of them
+     * (see RangeResult.within).
+     * @param sourceId id of the source
+     * @param budgets budgets, in any order, each at least 0
+     * @return one result per budget, in the same order as the budgets
+     */
+    public RangeResult[] ranges(int sourceId, int... budgets) {
+        int largest = 0;
+        for (int budget : budgets) {
+            if (budget < 0) {
+                throw new IllegalArgumentException("The budget must not be negative: " + budget);
+            }
+            largest = Math.max(largest, budget);
+        }
+        RangeResult range = range(sourceId, largest);
+        RangeResult[] results = new RangeResult[budgets.length];
+        for (int i = 0; i < budgets.length; i++) {
+            results[i] = range.within(budgets[i]);
+        }
+        return results;
+    }
+
+    private AlternativeRoutes alternativesForThread() {
+        AlternativeRoutes routes = alternatives.get();
+        if (routes == null || routes.capacity() != graph.numNodes()) {
+            routes = new AlternativeRoutes(graph);
+            alternatives.set(routes);
+        }
+        return routes;
+    }
+
+    /**
+     * Computes the shortest path on one of the worker threads.
+     * @param originId id of the origin
+     * @param destinationId id of the destination
+     * @return future that completes with the path and cost
+     */
+    public CompletableFuture<PathResult> routeAsync(int originId, int destinationId) {
+        return CompletableFuture.supplyAsync(() -> route(originId, destinationId), pool);
+    }
+
+    /**
+     * Starts a query on one of the worker threads and returns right away. The returned task
+     * completes with the result; cancelling it stops the search within RouteTask.CHECK_INTERVAL
+     * settled nodes, so a query that is no longer wanted (e.g. the user clicked elsewhere)
+     * does not keep a worker busy.
+     * @param originId id of the origin
+     * @param destinationId id of the destination
+     * @param searchMode how the search runs
+     * @param heapType priority queue to use
+     * @param progressListener called on the worker thread with the number of settled nodes so far; may be null
+     * @return the running query
+     */
+    public RouteTask submit(int originId, int destinationId, SearchMode searchMode, HeapType heapType,
+                            IntConsumer progressListener) {
+        RouteTask task = new RouteTask(progressListener);
+        pool.execute(() -> {
+            if (task.isDone()) {
+                return; // cancelled before it started
+            }
+            try {
+                PathResult result = route(originId, destinationId, searchMode, heapType, task);
+                task.checkpoint(result.getSettledNodes());
+                task.complete(result);
+            } catch (CancellationException e) {
+                task.cancel(false);
+            } catch (Throwable e) {
+                task.completeExceptionally(e);
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Computes the shortest paths for many (origin, destination) pairs in parallel.
+     * @param originIds ids of the origins
+     * @param destinationIds ids of the destinations, same length as originIds
+     * @return one result per pair, in the same order as the pairs
+     */
+    public PathResult[] routeAll(int[] originIds, int[] destinationIds) {
+        if (originIds.length != destinationIds.length) {
+            throw new IllegalArgumentException("origins and destinations must have the same length");
+        }
+        PathResult[] results = new PathResult[originIds.length];
+        pool.submit(() -> IntStream.range(0, originIds.length).parallel()
+                .forEach(i -> results[i] = route(originIds[i], destinationIds[i]))).join();
+        return results;
+    }
+
+    /**
+     * Computes the costs of the shortest paths from every source to every target.
+     * @param sourceIds ids of the sources (rows)
+     * @param targetIds ids of the targets (columns)
+     * @return the cost matrix, without paths
+     */
+    public DistanceMatrix distanceMatrix(int[] sourceIds, int[] targetIds) {
+        return distanceMatrix(sourceIds, targetIds, false);
+    }
+
+    /**
+     * Computes the shortest paths from every source to every target. Each source gets one
+     * Dijkstra search that stops when all the targets are settled, and the sources are
+     * searched in parallel on the worker threads.
+     * @param sourceIds ids of the sources (rows)
+     * @param targetIds ids of the targets (columns)
+     * @param withPaths whether to keep the node ids of every path as well as the costs
+     * @return the cost matrix
+     */
+    public DistanceMatrix distanceMatrix(int[] sourceIds, int[] targetIds, boolean withPaths) {
+        int[] sources = sourceIds.clone();
+        int[] targets = targetIds.clone();
+        boolean[] isTarget = new boolean[graph.numNodes()];
+        int distinctTargets = 0;
+        for (int target : targets) {
+            if (!isTarget[target]) {
+                isTarget[target] = true;
+                distinctTargets++;
+            }
+        }
+        int targetCount = distinctTargets;
+        long[] costs = new long[sources.length * targets.length];
+        int[][] paths = withPaths ? new int[costs.length][] : null;
+        pool.submit(() -> IntStream.range(0, sources.length).parallel().forEach(row -> {
+            SearchContext context = SearchContext.forThread(contexts, graph, HeapType.AUTO);
+            Dijkstra.searchToTargets(graph, context, sources[row], isTarget, targetCount);
+            for (int column = 0; column < targets.length; column++) {
+                int cell = row * targets.length + column;
+                long distance = context.distance(targets[column]);
+                costs[cell] = distance == SearchContext.UNREACHED ? DistanceMatrix.UNREACHABLE : distance;
+                if (withPaths) {
+                    paths[cell] = context.pathTo(sources[row], targets[column]);
+                }
+            }
+        })).join();
+        return new DistanceMatrix(sources, targets, costs, paths);
+    }
+
+    /**
+     * Stops the worker threads. Queries on the caller's thread (route) still work afterwards.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,52 @@
+package graph;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntConsumer;
+
+/**
+ * RouteTask - a route query running in the background (see RouteService.submit).
+ * It is a CompletableFuture of the result, so callers can wait for it or attach callbacks.
+ * Cancelling it stops the search cooperatively: the search loop checks the task every
+ * CHECK_INTERVAL settled nodes, reports its progress and gives up if the task was cancelled.
+ */
+public class RouteTask extends CompletableFuture<PathResult> {
+    /** Number of settled nodes between two checks of the search loop; a power of two. */
+    public static final int CHECK_INTERVAL = 1024;
+
+    private final IntConsumer progressListener; // may be null
+    private volatile int settledNodes; // progress of the search so far
+
+    /**
+     * Constructor
+     * @param progressListener called on the worker thread with the number of nodes settled so far,
+     *                         every CHECK_INTERVAL settled nodes; may be null
+     */
+    public RouteTask(IntConsumer progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Returns how many nodes the search had settled at its last check
+     * (or in total, once the task is done)
+     * @return number of settled nodes
+     */
+    public int getSettledNodes() {
+        return settledNodes;
+    }
+
+    /**
+     * Called by the search loop: records the progress and stops the search if the task was cancelled.
+     * @param settled number of nodes settled so far
+     * @throws CancellationException if the task was cancelled
+     */
+    void checkpoint(int settled) {
+        settledNodes = settled;
+        if (isCancelled()) {
+            throw new CancellationException("Route query was cancelled");
+        }
+        if (progressListener != null) {
+            progressListener.accept(settled);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * SearchContext - the per-query state of Dijkstra's algorithm: the table of distances and
+ * previous nodes, the settled flags and the heap.
+ * The graph itself is only read during a search, so one loaded Graph can be searched by many
+ * threads at once, as long as every thread uses its own SearchContext.
+ * A context is reused from query to query (see forThread) instead of being allocated each time.
+ * The table is never cleared: every query gets a new generation number, and an entry only
+ * counts if the node was stamped with the current generation, so starting a query costs
+ * nothing however large the graph is, and a short query only touches the nodes it reaches.
+ * Distances and heap keys are longs: a path of int edge costs cannot exceed 2^62, so no sum
+ * wraps around and every search mode gives the same cost for the same query.
+ */
+public class SearchContext {
+    /** Distance of a node the current query has not reached. */
+    static final long UNREACHED = Long.MAX_VALUE;
+
+    private final long[] distance; // distance from the origin, valid if stamp >= generation
+    private final int[] path; // previous node on the shortest path, valid if stamp >= generation
+    // generation: reached by the current query; generation + 1: also settled; lower: untouched
+    private final int[] stamp;
+    private int generation = 1; // goes up by 2, so a node settled in one query is untouched in the next
+    PriorityQueue heap;
+    HeapType heapType;
+    private boolean counting; // whether heap is a CountingHeap, i.e. RouteMetrics was enabled at the last reset
+    int settledNodes; // number of nodes removed from the heap by the current query
+    RouteTask task; // background task of the current query, checked by the search loops; null if none
+    private SearchContext backward; // table of the backward search of a bidirectional query
+    private boolean backwardUsed; // whether backward() was called since the last reset
+
+    /**
+     * Constructor
+     * @param numNodes number of nodes of the graph that will be searched
+     * @param heapType type of the heap to use
+     */
+    public SearchContext(int numNodes, HeapType heapType) {
+        distance = new long[numNodes];
+        path = new int[numNodes];
+        stamp = new int[numNodes];
+        this.heapType = heapType;
+        this.counting = RouteMetrics.active();
+        heap = createHeap();
+    }
+
+    /**
+     * Returns the context of the calling thread stored in the given ThreadLocal,
+     * creating a new one if there is none yet or the graph has a different number of nodes.
+     * @param contexts per-thread contexts
+     * @param graph graph that will be searched
+     * @param heapType heap the query needs; AUTO is resolved for the graph (HeapType.forGraph)
+     * @return context ready for a new query
+     */
+    static SearchContext forThread(ThreadLocal<SearchContext> contexts, Graph graph, HeapType heapType) {
+        heapType = heapType.forGraph(graph);
+        SearchContext context = contexts.get();
+        if (context == null || context.capacity() != graph.numNodes()) {
+            context = new SearchContext(graph.numNodes(), heapType);
+            contexts.set(context);
+        }
+        context.reset(heapType);
+        return context;
+    }
+
+    /**
+     * Returns the number of nodes this context was created for
+     * @return number of nodes
+     */
+    public int capacity() {
+        return distance.length;
+    }
+
+    /**
+     * Returns the distance of the node in the current query
+     * @param nodeId id of the node
+     * @return distance from the origin, UNREACHED if the query has not reached the node
+     */
+    long distance(int nodeId) {
+        return stamp[nodeId] >= generation ? distance[nodeId] : UNREACHED;
+    }
+
+    /**
+     * Returns the previous node on the shortest path found so far
+     * @param nodeId id of the node
+     * @return id of the previous node (an edge index in a ContractionHierarchy query),
+     *         -1 if the query has not reached the node
+     */
+    int previous(int nodeId) {
+        return stamp[nodeId] >= generation ? path[nodeId] : -1;
+    }
+
+    /**
+     * Whether the node was removed from the heap in the current query, so its distance is final
+     * @param nodeId id of the node
+     * @return true if settled
+     */
+    boolean isKnown(int nodeId) {
+        return stamp[nodeId] == generation + 1;
+    }
+
+    /**
+     * Records a shorter path to a node that is not settled yet.
+     * @param nodeId id of the node
+     * @param newDistance its new distance
+     * @param previousId previous node on the path, -1 for the origin
+     */
+    void reach(int nodeId, long newDistance, int previousId) {
+        distance[nodeId] = newDistance;
+        path[nodeId] = previousId;
+        stamp[nodeId] = generation;
+    }
+
+    /**
+     * Marks a reached node as settled.
+     * @param nodeId id of the node
+     */
+    void settle(int nodeId) {
+        stamp[nodeId] = generation + 1;
+    }
+
+    /**
+     * Returns a copy of the distances of the current query, for callers that keep the whole table
+     * @return distance of every node, UNREACHED where it was not reached
+     */
+    long[] distanceTable() {
+        long[] table = new long[capacity()];
+        for (int v = 0; v < table.length; v++) {
+            table[v] = distance(v);
+        }
+        return table;
+    }
+
+    /**
+     * Same as distanceTable(), for the tables that keep distances as ints (ShortestPathTree)
+     * @return distance of every node, Integer.MAX_VALUE where it was not reached
+     * @throws ArithmeticException if a reached node is Integer.MAX_VALUE or more away
+     */
+    int[] intDistanceTable() {
+        int[] table = new int[capacity()];
+        for (int v = 0; v < table.length; v++) {
+            long d = distance(v);
+            if (d != UNREACHED && d >= Integer.MAX_VALUE) {
+                throw new ArithmeticException("Distance to node " + v + " exceeds " + (Integer.MAX_VALUE - 1));
+            }
+            table[v] = d == UNREACHED ? Integer.MAX_VALUE : (int) d;
+        }
+        return table;
+    }
+
+    /**
+     * Returns a copy of the previous nodes of the current query
+     * @return previous node of every node, -1 where there is none
+     */
+    int[] pathTable() {
+        int[] table = new int[capacity()];
+        for (int v = 0; v < table.length; v++) {
+            table[v] = previous(v);
+        }
+        return table;
+    }
+
+    /**
+     * Clears the table and the heap for a new query.
+     * @param heapType heap the query needs; the heap is replaced if the type is different,
+     *                 or if RouteMetrics was switched on or off since the last query
+     */
+    void reset(HeapType heapType) {
+        if (generation > Integer.MAX_VALUE - 4) { // after about a billion queries: start again from clean stamps
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        } else {
+            generation += 2;
+        }
+        boolean counting = RouteMetrics.active();
+        if (this.heapType != heapType || this.counting != counting) {
+            this.heapType = heapType;
+            this.counting = counting;
+            heap = createHeap();
+        } else {
+            heap.clear();
+        }
+        settledNodes = 0;
+        backwardUsed = false;
+    }
+
+    /** Creates an empty heap of heapType, wrapped in a CountingHeap if counting. */
+    private PriorityQueue createHeap() {
+        PriorityQueue queue = heapType.create(capacity());
+        return counting ? new CountingHeap(queue) : queue;
+    }
+
+    /**
+     * Returns what the last query did, read from the counters of its heaps
+     * (all zero if RouteMetrics was not enabled when the query started).
+     * @param settled number of nodes the query settled
+     * @param wallNanos time the query took
+     * @return the statistics of the query
+     */
+    SearchStats stats(int settled, long wallNanos) {
+        int inserts = 0, reduceKeys = 0, pops = 0, peak = 0, relaxed = 0;
+        for (SearchContext context : backwardUsed ? new SearchContext[]{this, backward} : new SearchContext[]{this}) {
+            if (context.heap instanceof CountingHeap) {
+                CountingHeap counted = (CountingHeap) context.heap;
+                inserts += counted.inserts;
+                reduceKeys += counted.reduceKeys;
+                pops += counted.pops;
+                peak += counted.peakSize;
+                // every insert but the first one (the start of the search) and every reduceKey lowered a distance
+                relaxed += Math.max(0, counted.inserts - 1) + counted.reduceKeys;
+            }
+        }
+        return new SearchStats(settled, relaxed, inserts, reduceKeys, pops, peak, wallNanos);
+    }
+
+    /**
+     * Called by the search loops after every settled node: every RouteTask.CHECK_INTERVAL
+     * nodes the task of the query (if any) gets the progress and a chance to cancel the search.
+     * @param settled number of nodes settled so far by the query
+     */
+    void checkpoint(int settled) {
+        if ((settled & (RouteTask.CHECK_INTERVAL - 1)) == 0 && task != null) {
+            task.checkpoint(settled);
+        }
+    }
+
+    /**
+     * Returns a second, cleared context for the backward half of a bidirectional query.
+     * Its path array points toward the destination instead of toward the origin.
+     * @return the backward context
+     */
+    SearchContext backward() {
+        backwardUsed = true;
+        if (backward == null) {
+            backward = new SearchContext(capacity(), heapType);
+        } else {
+            backward.reset(heapType);
+        }
+        return backward;
+    }
+
+    /**
+     * Builds the result of the last query from the table: the path is found by backtracking
+     * from the destination and written back to front into an array of the right size.
+     * For a bidirectional query the origin .. meeting node part comes from this context and
+     * the meeting node .. destination part from the backward one.
+     * @param originId id of the origin
+     * @param meetingId node where the searches met (the destination itself for a one-way search),
+     *                  -1 if the destination was not reached
+     * @param destinationId id of the destination
+     * @return the path and its cost
+     */
+    PathResult extractPath(int originId, int meetingId, int destinationId) {
+        if (meetingId == -1) {
+            return PathResult.unreachable(totalSettledNodes());
+        }
+        int forwardLength = forwardLength(originId, meetingId);
+        int[] nodes = new int[forwardLength + backwardLength(meetingId, destinationId)];
+        fillPath(originId, meetingId, destinationId, nodes, forwardLength);
+        return new PathResult(nodes, pathCost(meetingId, destinationId), totalSettledNodes(), null);
+    }
+
+    /**
+     * Same as extractPath(originId, meetingId, destinationId), but writes the answer into a
+     * caller's buffer, so nothing is allocated once the buffer is large enough.
+     */
+    void extractPath(int originId, int meetingId, int destinationId, PathBuffer into) {
+        if (meetingId == -1) {
+            into.setUnreachable(totalSettledNodes());
+            return;
+        }
+        int forwardLength = forwardLength(originId, meetingId);
+        int[] nodes = into.reserve(forwardLength + backwardLength(meetingId, destinationId));
+        fillPath(originId, meetingId, destinationId, nodes, forwardLength);
+        into.setFound(pathCost(meetingId, destinationId), totalSettledNodes());
+    }
+
+    private int totalSettledNodes() {
+        return backwardUsed ? settledNodes + backward.settledNodes : settledNodes;
+    }
+
+    /** Number of nodes from the origin to the meeting node, both included. */
+    private int forwardLength(int originId, int meetingId) {
+        int length = 1;
+        for (int node = meetingId; node != originId; node = path[node]) {
+            length++;
+        }
+        return length;
+    }
+
+    /** Number of nodes after the meeting node up to the destination, 0 for a one-way search. */
+    private int backwardLength(int meetingId, int destinationId) {
+        int length = 0;
+        for (int node = meetingId; node != destinationId; node = backward.path[node]) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Writes the path into nodes: the origin .. meeting part back to front into the first
+     * forwardLength positions, then the rest of the way from the backward table.
+     */
+    private void fillPath(int originId, int meetingId, int destinationId, int[] nodes, int forwardLength) {
+        int i = forwardLength;
+        for (int node = meetingId; node != destinationId; ) {
+            node = backward.path[node];
+            nodes[i++] = node;
+        }
+        i = forwardLength;
+        for (int node = meetingId; ; node = path[node]) {
+            nodes[--i] = node;
+            if (node == originId) {
+                break;
+            }
+        }
+    }
+
+    private long pathCost(int meetingId, int destinationId) {
+        long cost = distance[meetingId];
+        return meetingId == destinationId ? cost : cost + backward.distance[meetingId];
+    }
+
+    /**
+     * Returns the node ids on the path from the origin to the given node, read from the table.
+     * @param originId id of the origin of the search
+     * @param nodeId id of the last node of the path
+     * @return node ids from the origin to nodeId, empty if nodeId was not reached
+     */
+    int[] pathTo(int originId, int nodeId) {
+        if (distance(nodeId) == UNREACHED) {
+            return new int[0];
+        }
+        int length = 1;
+        for (int node = nodeId; node != originId; node = path[node]) {
+            length++;
+        }
+        int[] result = new int[length];
+        for (int node = nodeId; length > 0; node = path[node]) {
+            result[--length] = node;
+        }
+        return result;
+    }
+}
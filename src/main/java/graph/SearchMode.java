@@ -0,0 +1,28 @@
+package graph;
+
+/**
+ * SearchMode - how far Dijkstra's search runs for a query.
+ * In both modes a node is added to the heap only when it is first reached.
+ */
+public enum SearchMode {
+    /** Settle every node reachable from the origin, so the whole table is filled. */
+    FULL,
+    /** Stop as soon as the destination is removed from the heap (point-to-point queries). */
+    EARLY_EXIT,
+    /**
+     * Search forward from the origin and backward from the destination at the same time,
+     * stopping when the two frontiers prove the best meeting point.
+     */
+    BIDIRECTIONAL,
+    /**
+     * A* with a CoordinateHeuristic: nodes are taken from the heap in order of
+     * distance + straight-line estimate to the destination, stopping at the destination.
+     */
+    ASTAR,
+    /** A* with the Landmarks (ALT) lower bounds instead of coordinates. */
+    ALT,
+    /**
+     * Upward bidirectional search in a ContractionHierarchy (preprocessed once per graph).
+     */
+    CONTRACTION_HIERARCHY
+}
@@ -0,0 +1,73 @@
+package graph;
+
+/**
+ * SearchStats - what one route query did: how many nodes it settled, how many edges lowered
+ * a distance, the heap operations and the largest heap size, and how long it took.
+ * Attached to the PathResult of every query answered while RouteMetrics is enabled.
+ * For bidirectional and contraction hierarchy queries the counts of both searches are added up.
+ */
+public final class SearchStats {
+    private final int settledNodes;
+    private final int edgesRelaxed;
+    private final int heapInserts;
+    private final int decreaseKeys;
+    private final int heapPops;
+    private final int peakHeapSize;
+    private final long wallNanos;
+
+    /**
+     * Constructor
+     * @param settledNodes number of nodes whose distance became final
+     * @param edgesRelaxed number of edges that lowered the distance of their target
+     * @param heapInserts number of nodes inserted into the heap
+     * @param decreaseKeys number of reduceKey calls
+     * @param heapPops number of removeMin calls
+     * @param peakHeapSize largest number of nodes queued at once (summed over both heaps of a bidirectional query)
+     * @param wallNanos time taken by the query, in nanoseconds
+     */
+    public SearchStats(int settledNodes, int edgesRelaxed, int heapInserts, int decreaseKeys,
+                       int heapPops, int peakHeapSize, long wallNanos) {
+        this.settledNodes = settledNodes;
+        this.edgesRelaxed = edgesRelaxed;
+        this.heapInserts = heapInserts;
+        this.decreaseKeys = decreaseKeys;
+        this.heapPops = heapPops;
+        this.peakHeapSize = peakHeapSize;
+        this.wallNanos = wallNanos;
+    }
+
+    public int getSettledNodes() {
+        return settledNodes;
+    }
+
+    public int getEdgesRelaxed() {
+        return edgesRelaxed;
+    }
+
+    public int getHeapInserts() {
+        return heapInserts;
+    }
+
+    public int getDecreaseKeys() {
+        return decreaseKeys;
+    }
+
+    public int getHeapPops() {
+        return heapPops;
+    }
+
+    public int getPeakHeapSize() {
+        return peakHeapSize;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchStats{settled=" + settledNodes + ", relaxed=" + edgesRelaxed + ", inserts=" + heapInserts
+                + ", decreaseKeys=" + decreaseKeys + ", pops=" + heapPops + ", peakHeap=" + peakHeapSize
+                + ", micros=" + wallNanos / 1000 + "}";
+    }
+}
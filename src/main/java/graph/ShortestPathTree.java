@@ -0,0 +1,155 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * ShortestPathTree - the distances from one source to every node and the parent of every
+ * node on its shortest path, as computed by compute (Dijkstra on the calling thread) or by
+ * DeltaStepping.search (in parallel).
+ * When several shortest paths lead to a node, the parent is chosen by a fixed rule instead of
+ * by the order in which a search happened to relax the edges: among the shortest paths with
+ * the fewest edges, the parent is the previous node with the smallest id. So both ways of
+ * computing the tree give exactly the same tables, which Dijkstra's own path table (it keeps the
+ * first edge that reached the final distance, which depends on the heap) would not.
+ * Instances are not modified after they are created.
+ */
+public final class ShortestPathTree {
+    /** Distance of a node that cannot be reached from the source. */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final int sourceId;
+    private final int[] distance; // distance from the source, UNREACHABLE if not reached
+    private final int[] parent; // previous node on the shortest path, -1 for the source and unreached nodes
+
+    ShortestPathTree(int sourceId, int[] distance, int[] parent) {
+        this.sourceId = sourceId;
+        this.distance = distance;
+        this.parent = parent;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from the source on the calling thread.
+     * @param graph loaded graph
+     * @param sourceId id of the source node
+     * @return the tree, with the parents chosen by the rule of this class
+     * @throws ArithmeticException if a reachable node is Integer.MAX_VALUE or more away,
+     *         since the table keeps distances as ints
+     */
+    public static ShortestPathTree compute(Graph graph, int sourceId) {
+        int n = graph.numNodes();
+        if (sourceId < 0 || sourceId >= n) {
+            throw new IllegalArgumentException("No node with id " + sourceId);
+        }
+        SearchContext context = new SearchContext(n, HeapType.AUTO.forGraph(graph));
+        Dijkstra.fullSearch(graph, context, sourceId, false);
+        int[] distance = context.intDistanceTable();
+        int[] hops = new int[n];
+        Arrays.fill(hops, -1);
+        // breadth-first search over the edges that lie on shortest paths gives the fewest edges
+        int[] queue = new int[n];
+        int head = 0, tail = 0;
+        hops[sourceId] = 0;
+        queue[tail++] = sourceId;
+        while (head < tail) {
+            int node = queue[head++];
+            for (int e = graph.firstEdge(node); e < graph.endEdge(node); e++) {
+                int neighbor = graph.edgeTarget(e);
+                if (hops[neighbor] == -1 && (long) distance[node] + graph.edgeCost(e) == distance[neighbor]) {
+                    hops[neighbor] = hops[node] + 1;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        int[] parent = queue; // the queue is not needed any more
+        for (int v = 0; v < n; v++) {
+            parent[v] = parentOf(graph, v, distance, hops);
+        }
+        return new ShortestPathTree(sourceId, distance, parent);
+    }
+
+    /**
+     * The parent of a node by the rule of this class: the smallest id among the nodes u with an
+     * edge u-&gt;v such that distance[u] + cost == distance[v] and hops[u] + 1 == hops[v].
+     * @param graph searched graph
+     * @param nodeId id of the node v
+     * @param distance final distances
+     * @param hops fewest edges on a shortest path to each node, -1 for unreached nodes
+     * @return id of the parent, -1 for the source and for unreached nodes
+     */
+    static int parentOf(Graph graph, int nodeId, int[] distance, int[] hops) {
+        if (hops[nodeId] <= 0) {
+            return -1;
+        }
+        int best = -1;
+        for (int r = graph.firstReverseEdge(nodeId); r < graph.endReverseEdge(nodeId); r++) {
+            int previous = graph.reverseEdgeTarget(r);
+            if (hops[previous] + 1 == hops[nodeId] && (best == -1 || previous < best)
+                    && (long) distance[previous] + graph.reverseEdgeCost(r) == distance[nodeId]) {
+                best = previous;
+            }
+        }
+        return best;
+    }
+
+    public int getSourceId() {
+        return sourceId;
+    }
+
+    public int numNodes() {
+        return distance.length;
+    }
+
+    /**
+     * Returns the cost of the shortest path from the source to the node
+     * @param nodeId id of the node
+     * @return cost, or UNREACHABLE
+     */
+    public int getDistance(int nodeId) {
+        return distance[nodeId];
+    }
+
+    /**
+     * Returns the node before the given one on its shortest path
+     * @param nodeId id of the node
+     * @return id of the previous node, -1 for the source and for unreached nodes
+     */
+    public int getParent(int nodeId) {
+        return parent[nodeId];
+    }
+
+    /**
+     * Returns all distances, indexed by node id. The array is not copied.
+     * @return distance table, UNREACHABLE for unreached nodes
+     */
+    public int[] getDistances() {
+        return distance;
+    }
+
+    /**
+     * Returns all parents, indexed by node id. The array is not copied.
+     * @return parent table, -1 for the source and for unreached nodes
+     */
+    public int[] getParents() {
+        return parent;
+    }
+
+    /**
+     * Returns the shortest path from the source to the node
+     * @param nodeId id of the destination
+     * @return the path and its cost; PathResult.unreachable if there is no path
+     */
+    public PathResult getPath(int nodeId) {
+        if (distance[nodeId] == UNREACHABLE) {
+            return PathResult.unreachable(0);
+        }
+        int length = 0;
+        for (int node = nodeId; node != -1; node = parent[node]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int node = nodeId; node != -1; node = parent[node]) {
+            path[--length] = node;
+        }
+        return new PathResult(path, distance[nodeId], 0, null);
+    }
+}
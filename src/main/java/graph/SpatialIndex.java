@@ -0,0 +1,369 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * SpatialIndex - a k-d tree over the locations of the nodes, for snapping points
+ * (mouse clicks, GPS positions) to the graph without scanning every node.
+ * The tree is implicit: the points are reordered so that the middle of every range is the
+ * splitting point of that range (x on even depths, y on odd depths), with the smaller half
+ * on its left. Coordinates and ids are kept in three flat arrays in that order, so a
+ * query only walks arrays and creates no objects apart from its result.
+ * The index is read-only once built and can be shared between threads.
+ */
+public class SpatialIndex {
+    private static final int LEAF_SIZE = 8; // ranges this small are scanned instead of split
+
+    private final double[] xs; // x of each point, in tree order
+    private final double[] ys; // y of each point, in tree order
+    private final int[] ids; // node id of each point, in tree order
+
+    /**
+     * Builds the index.
+     * @param coordinates x and y of every node: x0, y0, x1, y1, ...
+     */
+    public SpatialIndex(double[] coordinates) {
+        int n = coordinates.length / 2;
+        xs = new double[n];
+        ys = new double[n];
+        ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = coordinates[2 * i];
+            ys[i] = coordinates[2 * i + 1];
+            ids[i] = i;
+        }
+        build(0, n, 0);
+    }
+
+    /**
+     * Builds an index over the coordinates given in the graph file (for example for GPS snapping).
+     * @param graph loaded graph
+     * @return the index
+     */
+    public static SpatialIndex forCoordinates(Graph graph) {
+        double[] coordinates = new double[2 * graph.numNodes()];
+        for (int i = 0; i < graph.numNodes(); i++) {
+            coordinates[2 * i] = graph.getX(i);
+            coordinates[2 * i + 1] = graph.getY(i);
+        }
+        return new SpatialIndex(coordinates);
+    }
+
+    /**
+     * Builds an index over the pixel locations of the nodes on the map image (for mouse clicks).
+     * @param graph loaded graph
+     * @return the index
+     */
+    public static SpatialIndex forPixels(Graph graph) {
+        double[] coordinates = new double[2 * graph.numNodes()];
+        for (int i = 0; i < graph.numNodes(); i++) {
+            coordinates[2 * i] = graph.getNode(i).getLocation().x;
+            coordinates[2 * i + 1] = graph.getNode(i).getLocation().y;
+        }
+        return new SpatialIndex(coordinates);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Finds the node closest to the point. If several are equally close, the smallest id wins.
+     * @param x x of the point
+     * @param y y of the point
+     * @return node id, or -1 if the index is empty
+     */
+    public int nearest(double x, double y) {
+        if (ids.length == 0) {
+            return -1;
+        }
+        double[] best = {Double.POSITIVE_INFINITY, -1}; // squared distance, position
+        nearest(0, ids.length, 0, x, y, best);
+        return ids[(int) best[1]];
+    }
+
+    private void nearest(int lo, int hi, int depth, double x, double y, double[] best) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int i = lo; i < hi; i++) {
+                double d = squaredDistance(i, x, y);
+                if (d < best[0] || (d == best[0] && ids[i] < ids[(int) best[1]])) {
+                    best[0] = d;
+                    best[1] = i;
+                }
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double diff = (depth & 1) == 0 ? x - xs[mid] : y - ys[mid];
+        double d = squaredDistance(mid, x, y);
+        if (d < best[0] || (d == best[0] && ids[mid] < ids[(int) best[1]])) {
+            best[0] = d;
+            best[1] = mid;
+        }
+        if (diff < 0) {
+            nearest(lo, mid, depth + 1, x, y, best);
+            if (diff * diff <= best[0]) {
+                nearest(mid + 1, hi, depth + 1, x, y, best);
+            }
+        } else {
+            nearest(mid + 1, hi, depth + 1, x, y, best);
+            if (diff * diff <= best[0]) {
+                nearest(lo, mid, depth + 1, x, y, best);
+            }
+        }
+    }
+
+    /**
+     * Finds the k nodes closest to the point.
+     * @param x x of the point
+     * @param y y of the point
+     * @param k number of nodes wanted
+     * @return node ids, closest first; fewer than k if the index is smaller
+     */
+    public int[] kNearest(double x, double y, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        KBest best = new KBest(Math.min(k, ids.length));
+        if (best.capacity > 0) {
+            kNearest(0, ids.length, 0, x, y, best);
+        }
+        return best.sortedIds();
+    }
+
+    private void kNearest(int lo, int hi, int depth, double x, double y, KBest best) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int i = lo; i < hi; i++) {
+                best.offer(squaredDistance(i, x, y), ids[i]);
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double diff = (depth & 1) == 0 ? x - xs[mid] : y - ys[mid];
+        best.offer(squaredDistance(mid, x, y), ids[mid]);
+        int firstLo = diff < 0 ? lo : mid + 1;
+        int firstHi = diff < 0 ? mid : hi;
+        kNearest(firstLo, firstHi, depth + 1, x, y, best);
+        if (diff * diff <= best.bound()) {
+            kNearest(diff < 0 ? mid + 1 : lo, diff < 0 ? hi : mid, depth + 1, x, y, best);
+        }
+    }
+
+    /**
+     * Finds every node within the given distance of the point.
+     * @param x x of the point
+     * @param y y of the point
+     * @param radius largest distance (inclusive)
+     * @return node ids, in no particular order
+     */
+    public int[] withinRadius(double x, double y, double radius) {
+        int[][] found = {new int[16]}; // grown as needed
+        int count = withinRadius(0, ids.length, 0, x, y, radius * radius, found, 0);
+        return Arrays.copyOf(found[0], count);
+    }
+
+    private int withinRadius(int lo, int hi, int depth, double x, double y, double r2, int[][] found, int count) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int i = lo; i < hi; i++) {
+                if (squaredDistance(i, x, y) <= r2) {
+                    count = add(found, count, ids[i]);
+                }
+            }
+            return count;
+        }
+        int mid = (lo + hi) >>> 1;
+        double diff = (depth & 1) == 0 ? x - xs[mid] : y - ys[mid];
+        if (squaredDistance(mid, x, y) <= r2) {
+            count = add(found, count, ids[mid]);
+        }
+        if (diff <= 0 || diff * diff <= r2) {
+            count = withinRadius(lo, mid, depth + 1, x, y, r2, found, count);
+        }
+        if (diff >= 0 || diff * diff <= r2) {
+            count = withinRadius(mid + 1, hi, depth + 1, x, y, r2, found, count);
+        }
+        return count;
+    }
+
+    private static int add(int[][] found, int count, int id) {
+        if (count == found[0].length) {
+            found[0] = Arrays.copyOf(found[0], 2 * count);
+        }
+        found[0][count] = id;
+        return count + 1;
+    }
+
+    /**
+     * Snaps many points at once; the points are split between the threads of the common pool.
+     * @param x x of each point
+     * @param y y of each point
+     * @return id of the nearest node of each point
+     */
+    public int[] nearest(double[] x, double[] y) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException("Got " + x.length + " x values but " + y.length + " y values");
+        }
+        int[] result = new int[x.length];
+        IntStream.range(0, x.length).parallel().forEach(i -> result[i] = nearest(x[i], y[i]));
+        return result;
+    }
+
+    private double squaredDistance(int i, double x, double y) {
+        double dx = xs[i] - x;
+        double dy = ys[i] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Puts the points of lo .. hi-1 in tree order: the median by the axis of this depth goes
+     * in the middle, smaller ones to its left, and both halves are built the same way.
+     */
+    private void build(int lo, int hi, int depth) {
+        while (hi - lo > LEAF_SIZE) {
+            int mid = (lo + hi) >>> 1;
+            double[] keys = (depth & 1) == 0 ? xs : ys;
+            select(keys, lo, hi - 1, mid);
+            build(lo, mid, depth + 1);
+            lo = mid + 1; // continue with the right half without recursion
+            depth++;
+        }
+    }
+
+    /**
+     * Quickselect: reorders lo .. hi so that position k holds the value it would have if the
+     * range were sorted by keys, with nothing larger before it and nothing smaller after it.
+     */
+    private void select(double[] keys, int lo, int hi, int k) {
+        while (hi > lo) {
+            double pivot = keys[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        double x = xs[i];
+        xs[i] = xs[j];
+        xs[j] = x;
+        double y = ys[i];
+        ys[i] = ys[j];
+        ys[j] = y;
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+    }
+
+    /**
+     * KBest - the k closest points found so far, in a binary max-heap on the distance
+     * so the farthest of them can be replaced quickly.
+     */
+    private static final class KBest {
+        final int capacity;
+        final double[] distances;
+        final int[] ids;
+        int size;
+
+        KBest(int capacity) {
+            this.capacity = capacity;
+            distances = new double[capacity];
+            ids = new int[capacity];
+        }
+
+        /** Largest distance that can still get in. */
+        double bound() {
+            return size < capacity ? Double.POSITIVE_INFINITY : distances[0];
+        }
+
+        void offer(double distance, int id) {
+            if (size < capacity) {
+                int i = size++;
+                while (i > 0 && farther(distance, id, (i - 1) / 2)) {
+                    distances[i] = distances[(i - 1) / 2];
+                    ids[i] = ids[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                distances[i] = distance;
+                ids[i] = id;
+            } else if (capacity > 0 && farther(distances[0], ids[0], distance, id)) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && farther(distances[child + 1], ids[child + 1], distances[child], ids[child])) {
+                        child++;
+                    }
+                    if (!farther(distances[child], ids[child], distance, id)) {
+                        break;
+                    }
+                    distances[i] = distances[child];
+                    ids[i] = ids[child];
+                    i = child;
+                }
+                distances[i] = distance;
+                ids[i] = id;
+            }
+        }
+
+        /** Whether (distance, id) comes after the entry at heap index i. */
+        private boolean farther(double distance, int id, int i) {
+            return farther(distance, id, distances[i], ids[i]);
+        }
+
+        /** Orders by distance, then by id, so results do not depend on the tree layout. */
+        private static boolean farther(double d1, int id1, double d2, int id2) {
+            return d1 > d2 || (d1 == d2 && id1 > id2);
+        }
+
+        int[] sortedIds() {
+            int[] result = new int[size];
+            for (int i = size - 1; i >= 0; i--) { // take the farthest out each time
+                result[i] = ids[0];
+                size--;
+                double distance = distances[size];
+                int id = ids[size];
+                int j = 0;
+                while (true) {
+                    int child = 2 * j + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && farther(distances[child + 1], ids[child + 1], distances[child], ids[child])) {
+                        child++;
+                    }
+                    if (!farther(distances[child], ids[child], distance, id)) {
+                        break;
+                    }
+                    distances[j] = distances[child];
+                    ids[j] = ids[child];
+                    j = child;
+                }
+                if (size > 0) {
+                    distances[j] = distance;
+                    ids[j] = id;
+                }
+            }
+            return result;
+        }
+    }
+}
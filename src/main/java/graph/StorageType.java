@@ -0,0 +1,16 @@
+package graph;
+
+/**
+ * StorageType - where a Graph keeps the coordinates of its nodes and its CSR edge arrays
+ * (see Graph.setStorageType). The searches read them through the same Graph methods either way.
+ */
+public enum StorageType {
+    /** Java int and double arrays on the heap (the default). */
+    HEAP,
+    /**
+     * Direct byte buffers outside the Java heap, so the garbage collector never copies or marks
+     * them and the heap only holds the CityNodes. The total is limited by -XX:MaxDirectMemorySize,
+     * which is the maximum heap size unless it is set, and each array by 2 GB.
+     */
+    OFF_HEAP
+}
@@ -0,0 +1,378 @@
+package userInterface;
+
+import graph.Graph;
+import graph.HeapType;
+import graph.ParallelGraphLoader;
+import graph.PathResult;
+import graph.RouteService;
+import graph.SearchMode;
+import graph.StorageType;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/** BatchRouter - a headless entry point that answers route queries in bulk, without the GUI.
+ *  Loads a graph, reads one "origin destination" pair per line from a file or stdin
+ *  and writes the cost and the path of every pair as CSV or JSON lines, in input order.
+ *  The queries are answered in chunks of CHUNK lines, each chunk in parallel on the
+ *  requested number of threads through a shared RouteService. Nothing is printed per query;
+ *  at the end the throughput and the p50/p99 latencies are written to stderr.
+ *
+ *  Usage: java userInterface.BatchRouter graph [options], where graph is a NODES/ARCS text file
+ *  or a binary file written by GraphFile (name ending in .bin), and the options are:
+ *  <ul>
+ *      <li>--queries file: pairs to route, "-" for stdin (the default);</li>
+ *      <li>--output file: where to write the results, "-" for stdout (the default);</li>
+ *      <li>--format csv|jsonl: output format, csv by default;</li>
+ *      <li>--threads n: number of worker threads, one per processor by default;</li>
+ *      <li>--mode m: a SearchMode, EARLY_EXIT by default;</li>
+ *      <li>--heap h: a HeapType, AUTO by default;</li>
+ *      <li>--ids: pairs are node ids instead of city names;</li>
+ *      <li>--directed: load the arcs of a text file in one direction only;</li>
+ *      <li>--off-heap: keep the coordinates and edges outside the Java heap (StorageType.OFF_HEAP).</li>
+ *  </ul>
+ *  Blank lines and lines starting with # are skipped; the two fields may be separated by
+ *  spaces, tabs or a comma. Lines naming an unknown city are reported on stderr and skipped,
+ *  and the exit status is then 1.
+ */
+public class BatchRouter {
+    private static final int CHUNK = 4096; // queries read, answered and written together
+    private static final List<String> OPTIONS = List.of("--queries", "--output", "--format", "--threads", "--mode", "--heap");
+
+    /** Output formats. */
+    enum Format { CSV, JSONL }
+
+    private String graphFile;
+    private String queryFile = "-";
+    private String outputFile = "-";
+    private Format format = Format.CSV;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private SearchMode searchMode = SearchMode.EARLY_EXIT;
+    private HeapType heapType = HeapType.AUTO;
+    private boolean ids;
+    private boolean directed;
+    private boolean offHeap;
+
+    private Graph graph;
+    private long[] latencies = new long[CHUNK]; // nanoseconds of every answered query
+    private int answered;
+    private int rejected;
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.in, System.out, System.err));
+    }
+
+    /**
+     * Runs the whole batch.
+     * @param args command line arguments
+     * @param stdin read when the queries come from "-"
+     * @param stdout written when the output goes to "-"
+     * @param stderr receives errors and the summary
+     * @return exit status: 0 if every query was answered, 1 otherwise, 2 for bad arguments
+     */
+    static int run(String[] args, InputStream stdin, PrintStream stdout, PrintStream stderr) {
+        BatchRouter router = new BatchRouter();
+        try {
+            router.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            stderr.println(e.getMessage());
+            stderr.println("usage: BatchRouter graph [--queries file|-] [--output file|-] [--format csv|jsonl]"
+                    + " [--threads n] [--mode " + choices(SearchMode.values()) + "]"
+                    + " [--heap " + choices(HeapType.values()) + "] [--ids] [--directed] [--off-heap]");
+            return 2;
+        }
+        try {
+            router.loadGraph(stderr);
+            router.routeAll(stdin, stdout, stderr);
+        } catch (IOException e) {
+            stderr.println(e.getMessage());
+            return 1;
+        }
+        return router.rejected == 0 ? 0 : 1;
+    }
+
+    private static String choices(Enum<?>[] values) {
+        return Arrays.stream(values).map(Enum::name).collect(Collectors.joining("|"));
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                if (graphFile != null) {
+                    throw new IllegalArgumentException("More than one graph file: " + arg);
+                }
+                graphFile = arg;
+                continue;
+            }
+            if (arg.equals("--ids")) {
+                ids = true;
+                continue;
+            }
+            if (arg.equals("--directed")) {
+                directed = true;
+                continue;
+            }
+            if (arg.equals("--off-heap")) {
+                offHeap = true;
+                continue;
+            }
+            if (!OPTIONS.contains(arg)) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value after " + arg);
+            }
+            String value = args[++i];
+            try {
+                switch (arg) {
+                    case "--queries":
+                        queryFile = value;
+                        break;
+                    case "--output":
+                        outputFile = value;
+                        break;
+                    case "--format":
+                        format = Format.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value);
+                        break;
+                    case "--mode":
+                        searchMode = SearchMode.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    default: // --heap
+                        heapType = HeapType.valueOf(value.toUpperCase(Locale.ROOT));
+                }
+            } catch (IllegalArgumentException e) { // also NumberFormatException
+                throw new IllegalArgumentException("Bad value for " + arg + ": " + value);
+            }
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive: " + threads);
+        }
+        if (graphFile == null) {
+            throw new IllegalArgumentException("No graph file given");
+        }
+    }
+
+    private void loadGraph(PrintStream stderr) throws IOException {
+        long start = System.nanoTime();
+        graph = new Graph();
+        graph.setStorageType(offHeap ? StorageType.OFF_HEAP : StorageType.HEAP);
+        if (graphFile.endsWith(".bin")) {
+            graph.loadBinaryGraph(graphFile);
+        } else {
+            ParallelGraphLoader loader = new ParallelGraphLoader(threads);
+            try {
+                loader.load(graph, graphFile, directed);
+            } finally {
+                loader.shutdown();
+            }
+        }
+        stderr.printf(Locale.ROOT, "Loaded %d nodes and %d edges in %.1f ms (%.1f MB %s)%n",
+                graph.numNodes(), graph.numEdges(), (System.nanoTime() - start) / 1e6,
+                graph.getStorageBytes() / 1e6, offHeap ? "off-heap" : "on the heap");
+    }
+
+    /**
+     * Reads the queries chunk by chunk; every chunk is answered and formatted in parallel,
+     * then written in input order before the next one is read.
+     */
+    private void routeAll(InputStream stdin, PrintStream stdout, PrintStream stderr) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        RouteService routes = new RouteService(graph, 1);
+        if (graph.numNodes() > 0) {
+            routes.route(0, 0, searchMode, heapType); // builds landmarks or the hierarchy before the clock starts
+        }
+        long start = System.nanoTime();
+        try (routes;
+             BufferedReader in = new BufferedReader(queryFile.equals("-")
+                     ? new InputStreamReader(stdin, StandardCharsets.UTF_8)
+                     : Files.newBufferedReader(Paths.get(queryFile), StandardCharsets.UTF_8), 1 << 16);
+             Writer out = new BufferedWriter(outputFile.equals("-")
+                     ? new OutputStreamWriter(stdout, StandardCharsets.UTF_8)
+                     : Files.newBufferedWriter(Paths.get(outputFile), StandardCharsets.UTF_8), 1 << 16)) {
+            if (format == Format.CSV) {
+                out.write("origin,destination,cost,path\n");
+            }
+            String[] lines = new String[CHUNK];
+            long[] lineNumbers = new long[CHUNK];
+            String[] results = new String[CHUNK]; // output line, or the error message if chunkLatencies is -1
+            long[] chunkLatencies = new long[CHUNK];
+            long lineNumber = 0;
+            String line = "";
+            while (line != null) {
+                int count = 0;
+                while (count < CHUNK && (line = in.readLine()) != null) {
+                    lineNumber++;
+                    String trimmed = line.trim();
+                    if (!trimmed.isEmpty() && trimmed.charAt(0) != '#') {
+                        lines[count] = trimmed;
+                        lineNumbers[count++] = lineNumber;
+                    }
+                }
+                int size = count;
+                pool.submit(() -> IntStream.range(0, size).parallel()
+                        .forEach(i -> answer(routes, lines[i], results, chunkLatencies, i))).join();
+                for (int i = 0; i < size; i++) {
+                    if (chunkLatencies[i] < 0) {
+                        stderr.println(queryFile + ", line " + lineNumbers[i] + ": " + results[i]);
+                        rejected++;
+                    } else {
+                        out.write(results[i]);
+                        recordLatency(chunkLatencies[i]);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        printSummary(stderr, System.nanoTime() - start);
+    }
+
+    /** Answers one query on a worker thread and formats its output line. */
+    private void answer(RouteService routes, String line, String[] results, long[] latencies, int i) {
+        String[] fields = line.split("[\\s,]+");
+        if (fields.length != 2) {
+            results[i] = "expected an origin and a destination, got \"" + line + "\"";
+            latencies[i] = -1;
+            return;
+        }
+        int origin = nodeId(fields[0]);
+        int destination = nodeId(fields[1]);
+        if (origin < 0 || destination < 0) {
+            results[i] = "unknown " + (ids ? "node id " : "city ") + (origin < 0 ? fields[0] : fields[1]);
+            latencies[i] = -1;
+            return;
+        }
+        long start = System.nanoTime();
+        PathResult result = routes.route(origin, destination, searchMode, heapType);
+        latencies[i] = System.nanoTime() - start;
+        results[i] = format == Format.CSV ? csvLine(origin, destination, result) : jsonLine(origin, destination, result);
+    }
+
+    /** Returns the node id named by a field of the query, or -1 if there is none. */
+    private int nodeId(String field) {
+        if (!ids) {
+            return graph.getId(field);
+        }
+        try {
+            int id = Integer.parseInt(field);
+            return id < graph.numNodes() ? id : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Name of the node as written in the output: its id with --ids, its city otherwise. */
+    private String label(int nodeId) {
+        return ids ? Integer.toString(nodeId) : graph.getNode(nodeId).getCity();
+    }
+
+    /** origin,destination,cost,path with the nodes of the path separated by ';'; cost and path are empty if unreachable. */
+    private String csvLine(int origin, int destination, PathResult result) {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(csvField(label(origin))).append(',').append(csvField(label(destination))).append(',');
+        if (result.isReachable()) {
+            sb.append(result.getCost()).append(',');
+            StringBuilder nodes = new StringBuilder();
+            for (int k = 0; k < result.length(); k++) {
+                nodes.append(k == 0 ? "" : ";").append(label(result.node(k)));
+            }
+            sb.append(csvField(nodes.toString()));
+        } else {
+            sb.append(',');
+        }
+        return sb.append('\n').toString();
+    }
+
+    private static String csvField(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+
+    /** {"origin":..,"destination":..,"cost":..,"settled":..,"path":[..]}; cost is null and path empty if unreachable. */
+    private String jsonLine(int origin, int destination, PathResult result) {
+        StringBuilder sb = new StringBuilder(96);
+        sb.append("{\"origin\":");
+        jsonLabel(sb, origin);
+        sb.append(",\"destination\":");
+        jsonLabel(sb, destination);
+        sb.append(",\"cost\":").append(result.isReachable() ? Long.toString(result.getCost()) : "null");
+        sb.append(",\"settled\":").append(result.getSettledNodes());
+        sb.append(",\"path\":[");
+        for (int k = 0; k < result.length(); k++) {
+            if (k > 0) {
+                sb.append(',');
+            }
+            jsonLabel(sb, result.node(k));
+        }
+        return sb.append("]}\n").toString();
+    }
+
+    private void jsonLabel(StringBuilder sb, int nodeId) {
+        if (ids) {
+            sb.append(nodeId);
+            return;
+        }
+        String city = graph.getNode(nodeId).getCity();
+        sb.append('"');
+        for (int i = 0; i < city.length(); i++) {
+            char c = city.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    private void recordLatency(long nanos) {
+        if (answered == latencies.length) {
+            latencies = Arrays.copyOf(latencies, 2 * answered);
+        }
+        latencies[answered++] = nanos;
+    }
+
+    private void printSummary(PrintStream stderr, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        stderr.printf(Locale.ROOT, "Answered %d queries (%d rejected) in %.3f s on %d threads: %.0f queries/s%n",
+                answered, rejected, seconds, threads, answered / Math.max(seconds, 1e-9));
+        if (answered > 0) {
+            long[] sorted = Arrays.copyOf(latencies, answered);
+            Arrays.sort(sorted);
+            stderr.printf(Locale.ROOT, "Latency: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                    percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6, sorted[answered - 1] / 1e6);
+        }
+    }
+
+    /** Nearest-rank percentile of sorted values. */
+    private static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
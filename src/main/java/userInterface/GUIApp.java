@@ -3,24 +3,32 @@ package userInterface;
 import graph.CityNode;
 import graph.Dijkstra;
 import graph.Graph;
+import graph.PathResult;
+import graph.RangeResult;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.event.MouseListener;
+import java.awt.event.MouseWheelEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /** GUIApp - a class that deals with the graphical user interface of the project.
  *  Creates the window with the panel that displays the map of the US,
  *  with major cities as nodes and edges connecting them.
  *  Allows the user to click on two cities, and shows the shortest path
- *  between these two cities in blue.
- *  Do not change anything in this class.
+ *  between these two cities in blue. The path is computed on a worker thread,
+ *  so the window stays responsive; a new click cancels a search that is still running.
+ *  A right click on a city shades the region that can be reached from it within the budget
+ *  typed in the Budget field.
+ *  The map can be zoomed with the mouse wheel and moved by dragging it;
+ *  the map, edges and labels are drawn by a MapRenderer and cached between repaints.
  */
 public class GUIApp extends JFrame {
     private MapPanel panel;
@@ -54,6 +62,12 @@ public class GUIApp extends JFrame {
         private CityNode origin, destination; // two vertices clicked by the user
         private JButton buttonReset, buttonQuit; // buttons
         private BufferedImage image; // for showing the image of the US map
+        private MapRenderer renderer; // draws and caches the map, edges and labels
+        private Point dragStart; // last mouse position while the map is dragged
+        private JLabel status; // progress of the running search
+        private JTextField budgetField; // budget of the range query started by a right click
+        private Point[][] reachableEdges; // region shaded after the last range query, null if none
+        private int queryNumber; // incremented for every query, so results of older ones are ignored
         private boolean oneClicked = false; // whether the user already clicked no one city
 
         /**
@@ -67,7 +81,10 @@ public class GUIApp extends JFrame {
             this.setLayout(new BorderLayout());
             this.setPreferredSize(new Dimension(580, 290));
             this.setBackground(Color.lightGray);
-            this.addMouseListener(new MyListener());
+            MyListener listener = new MyListener();
+            this.addMouseListener(listener);
+            this.addMouseMotionListener(listener);
+            this.addMouseWheelListener(listener);
 
             // buttons
             buttonReset = new JButton("Reset");
@@ -78,6 +95,12 @@ public class GUIApp extends JFrame {
             buttonPanel.setLayout(new BoxLayout(buttonPanel, BoxLayout.Y_AXIS));
             buttonPanel.add(buttonReset);
             buttonPanel.add(buttonQuit);
+            buttonPanel.add(new JLabel("Budget"));
+            budgetField = new JTextField("1500", 6);
+            budgetField.setMaximumSize(budgetField.getPreferredSize());
+            buttonPanel.add(budgetField);
+            status = new JLabel(" ");
+            buttonPanel.add(status);
             this.add(buttonPanel, BorderLayout.EAST);
 
             try { // load the image of the map of the USA
@@ -85,6 +108,7 @@ public class GUIApp extends JFrame {
             } catch (IOException ex) {
                 System.out.println("Could not load the image. " + ex);
             }
+            renderer = new MapRenderer(graph, image);
             repaint(); // draw everything
         }
 
@@ -96,73 +120,76 @@ public class GUIApp extends JFrame {
          */
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            g.drawImage(image, 0, 0, null);
-            drawNodes(g);
-            drawEdges(g, Color.lightGray);
+            renderer.paint(g, getWidth(), getHeight());
+            drawReachable(g);
             drawShortestPath(g);
+            drawSelected(g);
         }
 
         /**
-         * Draws a little circle at the given location of the node; Uses the
-         * given color; "city" parameter is used to draw a label next to the
-         * circle.
+         * Draws the cities the user clicked in blue, on top of the cached map
          * @param g Graphics
-         * @param location point that contains x and y coordinates of the city on the image
-         * @param col color
-         * @param city name of the city
          */
-        public void drawNode(Graphics g, Point location, Color col, String city) {
-            g.setColor(col);
-            g.fillOval(location.x - RAD, location.y - RAD, 2 * RAD, 2 * RAD);
-            g.setColor(Color.black);
-            g.setFont(new Font("SANS_SERIF", Font.PLAIN, 11));
-            g.drawString(city, location.x + 2, location.y - 2);
+        public void drawSelected(Graphics g) {
+            for (CityNode v : new CityNode[]{origin, destination}) {
+                if (v != null) {
+                    Point p = v.getLocation();
+                    MapRenderer.drawNode(g, renderer.screenX(p.x), renderer.screenY(p.y), Color.BLUE, v.getCity());
+                }
+            }
         }
 
         /**
-         * Display the nodes of the graph as little circles on the map
+         * Shades the region reached by the last range query: its edges are drawn as wide,
+         * translucent orange lines, under the shortest path and the selected cities.
          * @param g Graphics
          */
-        public void drawNodes(Graphics g) {
-            Point[] nodes = graph.getNodes();
-            if (nodes == null) {
-                System.out.println("Graph has no nodes. Write loadGraph method first and then this map will show nodes/cities and edges.");
+        public void drawReachable(Graphics g) {
+            if (reachableEdges == null)
                 return;
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.setColor(new Color(255, 140, 0, 90));
+            g2.setStroke(new BasicStroke(6, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            for (Point[] edge : reachableEdges) {
+                g2.drawLine(renderer.screenX(edge[0].x), renderer.screenY(edge[0].y),
+                        renderer.screenX(edge[1].x), renderer.screenY(edge[1].y));
             }
-            String[] labels = graph.getCities();
-            for (int i = 0; i < nodes.length; i++) {
-                if ((origin != null && i == graph.getId(origin)) ||
-                        (destination != null) && (i == graph.getId(destination)))
-                    drawNode(g, nodes[i], Color.BLUE, labels[i]);
-                    // the ones that the user clicked will be shown in blue
-                else
-                    drawNode(g, nodes[i], Color.BLACK, labels[i]);
-            }
-
+            g2.dispose();
         }
 
         /**
-         * Draw edges of the graph
-         * edges is an array, where each value is an array of two Points
-         * @param g Graphics
-         * @param color Color in which to draw the edges
+         * Finds the cities within the budget typed in the Budget field from the given city
+         * on a worker thread, and shades them when the search is done, unless a newer query
+         * was started or Reset was pressed in the meantime.
+         * @param v city that was right-clicked
          */
-        public void drawEdges(Graphics g, Color color) {
-            Point[][] edges = graph.getEdges();
-            if (edges == null) {
-                // nothing to draw
+        private void showReachable(CityNode v) {
+            int budget;
+            try {
+                budget = Integer.parseInt(budgetField.getText().trim());
+            } catch (NumberFormatException e) {
+                status.setText("Bad budget");
                 return;
             }
-            g.setColor(color);
-
-            for (int i = 0; i < edges.length; i++) {
-                Point[] edge = edges[i];
-                assert(edge.length == 2); // should contain two vertices
-                Point p1 = edge[0];
-                Point p2 = edge[1];
-                g.drawLine(p1.x, p1.y, p2.x, p2.y);
+            if (budget < 0) {
+                status.setText("Bad budget");
+                return;
             }
-        } // drawEdges
+            cancelQuery(); // a search started by an earlier click is not wanted anymore
+            int number = queryNumber;
+            status.setText("Searching...");
+            CompletableFuture<RangeResult> query = algo.computeReachableAsync(v, budget);
+            query.whenComplete((range, error) -> {
+                Point[][] edges = error == null ? graph.getIsochrone(range) : null; // still on the worker thread
+                SwingUtilities.invokeLater(() -> {
+                    if (number == queryNumber) {
+                        reachableEdges = edges;
+                        status.setText(error == null ? range.size() + " reachable" : " ");
+                        repaint();
+                    }
+                });
+            });
+        }
 
         /**
          * Draw the edges of the shortest path in blue.
@@ -178,27 +205,63 @@ public class GUIApp extends JFrame {
                 assert(edge.length == 2); // should contain two vertices
                 Point p1 = edge[0];
                 Point p2 = edge[1];
-                g.drawLine(p1.x, p1.y, p2.x, p2.y);
+                g.drawLine(renderer.screenX(p1.x), renderer.screenY(p1.y), renderer.screenX(p2.x), renderer.screenY(p2.y));
             }
         } // drawShortestPath
 
-        /** Inner class MyListener that listens for mouse clicks */
-        class MyListener implements MouseListener {
+        /**
+         * Starts the search from origin to destination on a worker thread. Progress is shown
+         * in the status label and the path is drawn when the search is done, unless a newer
+         * query was started in the meantime.
+         */
+        private void startQuery() {
+            algo.cancelReachable();
+            int number = ++queryNumber;
+            status.setText("Searching...");
+            CompletableFuture<PathResult> query = algo.computeShortestPathAsync(origin, destination,
+                    settled -> SwingUtilities.invokeLater(() -> {
+                        if (number == queryNumber) {
+                            status.setText(settled + " settled");
+                        }
+                    }));
+            query.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+                if (number == queryNumber) {
+                    status.setText(error == null ? result.getSettledNodes() + " settled" : " ");
+                    repaint();
+                }
+            }));
+        }
+
+        /** Stops the running searches (route and range), if any, and ignores their results. */
+        private void cancelQuery() {
+            queryNumber++;
+            algo.cancelQuery();
+            algo.cancelReachable();
+            status.setText(" ");
+        }
+
+        /** Inner class MyListener that listens for mouse clicks, drags and the mouse wheel */
+        class MyListener extends MouseAdapter {
 
             /** Handles mouse clicks
              * @param e mouse event */
             public void mouseClicked(MouseEvent e) {
 
-                Point center = e.getPoint();
+                Point center = renderer.toMap(e.getPoint());
                 CityNode v = graph.getNode(center);
                 if (v == null) {
                     System.out.println("You did not click on any node");
                     return;
                 }
+                if (SwingUtilities.isRightMouseButton(e)) {
+                    showReachable(v);
+                    return;
+                }
                 repaint();
 
                 if (!oneClicked) { // first click
                     System.out.println("First node clicked: " + v.getCity());
+                    cancelQuery(); // a search for the previous pair is not wanted anymore
                     origin = v;
                     oneClicked = true;
                 } else { // it's the second click
@@ -206,23 +269,34 @@ public class GUIApp extends JFrame {
                     System.out.println(
                             "Call graph.Dijkstra's shortestPath() method to compute the shortest path between selected cities");
                     destination = v;
-                    algo.computeShortestPath(origin, destination);
+                    startQuery();
                     oneClicked = false;
                     repaint();
                 } // if oneClicked is true
 
             }
 
-            public void mouseEntered(MouseEvent e) {
+            public void mousePressed(MouseEvent e) {
+                dragStart = e.getPoint();
             }
 
-            public void mouseExited(MouseEvent e) {
+            public void mouseReleased(MouseEvent e) {
+                dragStart = null;
             }
 
-            public void mousePressed(MouseEvent e) {
+            /** Moves the map with the mouse */
+            public void mouseDragged(MouseEvent e) {
+                if (dragStart != null) {
+                    renderer.pan(e.getX() - dragStart.x, e.getY() - dragStart.y);
+                    dragStart = e.getPoint();
+                    repaint();
+                }
             }
 
-            public void mouseReleased(MouseEvent e) {
+            /** Zooms in or out around the mouse */
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                renderer.zoom(Math.pow(1.25, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+                repaint();
             }
         }
 
@@ -239,9 +313,12 @@ public class GUIApp extends JFrame {
                     oneClicked = false;
                     origin = null;
                     destination = null;
+                    cancelQuery();
+                    reachableEdges = null;
                     if (graph != null) {
                         algo.resetPath();
                     }
+                    renderer.resetView();
                     repaint();
                 }
             }
@@ -3,7 +3,8 @@ package userInterface;
 import graph.Dijkstra;
 import graph.Graph;
 
-/** The driver class for project Dijkstra. Run this class to run the project.  */
+/** The driver class for project Dijkstra. Run this class to run the project.
+ *  To answer many queries without the GUI (e.g. on a server), run BatchRouter instead. */
 public class Main {
     public static void main(String[] args) {
             // Initialize a graph
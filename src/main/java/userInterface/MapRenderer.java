@@ -0,0 +1,364 @@
+package userInterface;
+
+import graph.Graph;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/** MapRenderer - draws the map image, the edges and the city labels of a graph for GUIApp.
+ *  Everything that only depends on the graph and the view is drawn into an offscreen image,
+ *  which is drawn again only when the graph is reloaded, the zoom/pan or the panel size changes
+ *  (edge cost updates do not change the drawing);
+ *  a repaint just copies it and the route is drawn on top by the panel.
+ *  Nodes and edges are kept in a uniform grid of cells over the map, so only the cells
+ *  inside the window are looked at (culling). When many nodes are visible, cities become
+ *  single pixels without labels, and edges shorter than a pixel on screen are skipped
+ *  (level of detail), so the cost of drawing depends on what is visible, not on graph size.
+ */
+class MapRenderer {
+    static final int RAD = 3; // radius of a city circle
+    static final Font LABEL_FONT = new Font("SANS_SERIF", Font.PLAIN, 11);
+    private static final int MIN_CELL_SIZE = 8; // grid cell size for small maps, in map pixels
+    private static final int MAX_LABELS = 300; // labels are drawn only if at most this many cities are visible
+    private static final int MAX_CIRCLES = 5000; // above this, cities are drawn as single pixels
+    private static final double MIN_ZOOM = 1;
+    private static final double MAX_ZOOM = 256;
+
+    private final Graph graph;
+    private final BufferedImage background; // map of the US, may be null
+
+    // view: a map point (x, y) is drawn at (x * zoom + offsetX, y * zoom + offsetY)
+    private double zoom = 1;
+    private double offsetX;
+    private double offsetY;
+
+    // offscreen image of the current view
+    private BufferedImage cache;
+    private int cacheVersion = -1; // geometry version of the graph drawn into the cache
+    private boolean viewChanged = true; // zoom or pan changed since the cache was drawn
+
+    // grid over the map, rebuilt when the geometry version of the graph changes
+    private int gridVersion = -1;
+    private int cellSize; // in map pixels; larger for large maps so there are not many more cells than nodes
+    private int minX, minY; // map pixel of the corner of cell (0, 0)
+    private int columns, rows;
+    private int[] nodeCellStart; // nodes of cell c: nodeCells[nodeCellStart[c] .. nodeCellStart[c+1]-1]
+    private int[] nodeCells;
+    private int[] edgeCellStart; // edges whose line crosses cell c, in the same form
+    private int[] edgeCells;
+    private int[] edgeSources; // node where each edge starts
+    private int[] edgeStamps; // stamp of the last drawing that drew each edge
+    private int stamp;
+    private int[] xs, ys; // map pixel of every node
+    private int[] walk = new int[16]; // cells of one edge, filled by cellsOnSegment
+
+    MapRenderer(Graph graph, BufferedImage background) {
+        this.graph = graph;
+        this.background = background;
+    }
+
+    /**
+     * Draws the map, edges and cities of the current view, redrawing the offscreen image first
+     * if the graph or the view changed.
+     * @param g Graphics of the panel
+     * @param width width of the panel
+     * @param height height of the panel
+     */
+    void paint(Graphics g, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        int version = graph.getGeometryVersion();
+        if (cache == null || cache.getWidth() != width || cache.getHeight() != height
+                || version != cacheVersion || viewChanged) {
+            if (cache == null || cache.getWidth() != width || cache.getHeight() != height) {
+                cache = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            }
+            Graphics2D g2 = cache.createGraphics();
+            try {
+                render(g2, width, height);
+            } finally {
+                g2.dispose();
+            }
+            cacheVersion = version;
+            viewChanged = false;
+        }
+        g.drawImage(cache, 0, 0, null);
+    }
+
+    /** Draws the whole view into the offscreen image. */
+    private void render(Graphics2D g, int width, int height) {
+        g.setColor(Color.lightGray);
+        g.fillRect(0, 0, width, height);
+        if (background != null) {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    zoom > 2 ? RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(background, (int) Math.round(offsetX), (int) Math.round(offsetY),
+                    (int) Math.round(background.getWidth() * zoom), (int) Math.round(background.getHeight() * zoom), null);
+        }
+        if (graph.numNodes() == 0) {
+            return;
+        }
+        if (gridVersion != graph.getGeometryVersion()) {
+            buildGrid();
+        }
+        // cells inside the window
+        int firstColumn = Math.max(0, (int) Math.floor((-offsetX / zoom - minX - RAD) / cellSize));
+        int lastColumn = Math.min(columns - 1, (int) Math.floor(((width - offsetX) / zoom - minX + RAD) / cellSize));
+        int firstRow = Math.max(0, (int) Math.floor((-offsetY / zoom - minY - RAD) / cellSize));
+        int lastRow = Math.min(rows - 1, (int) Math.floor(((height - offsetY) / zoom - minY + RAD) / cellSize));
+        if (firstColumn > lastColumn || firstRow > lastRow) {
+            return;
+        }
+        drawEdges(g, firstColumn, lastColumn, firstRow, lastRow);
+        drawNodes(g, width, height, firstColumn, lastColumn, firstRow, lastRow);
+    }
+
+    private void drawEdges(Graphics2D g, int firstColumn, int lastColumn, int firstRow, int lastRow) {
+        g.setColor(Color.lightGray);
+        if (++stamp == 0) { // wrapped around: forget the old stamps
+            Arrays.fill(edgeStamps, 0);
+            stamp = 1;
+        }
+        boolean directed = graph.isDirected();
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                for (int i = edgeCellStart[cell]; i < edgeCellStart[cell + 1]; i++) {
+                    int edge = edgeCells[i];
+                    if (edgeStamps[edge] == stamp) {
+                        continue; // already drawn from another cell
+                    }
+                    edgeStamps[edge] = stamp;
+                    int from = edgeSources[edge];
+                    int to = graph.edgeTarget(edge);
+                    if (!directed && to < from) {
+                        continue; // the opposite edge draws the same line
+                    }
+                    int x1 = screenX(xs[from]);
+                    int y1 = screenY(ys[from]);
+                    int x2 = screenX(xs[to]);
+                    int y2 = screenY(ys[to]);
+                    if (x1 != x2 || y1 != y2) { // shorter than a pixel: nothing to see
+                        g.drawLine(x1, y1, x2, y2);
+                    }
+                }
+            }
+        }
+    }
+
+    private void drawNodes(Graphics2D g, int width, int height, int firstColumn, int lastColumn, int firstRow, int lastRow) {
+        int visible = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            visible += nodeCellStart[row * columns + lastColumn + 1] - nodeCellStart[row * columns + firstColumn];
+        }
+        g.setFont(LABEL_FONT);
+        boolean[] covered = visible > MAX_CIRCLES ? new boolean[width * height] : null; // pixels already drawn
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int i = nodeCellStart[row * columns + firstColumn]; i < nodeCellStart[row * columns + lastColumn + 1]; i++) {
+                int node = nodeCells[i];
+                int x = screenX(xs[node]);
+                int y = screenY(ys[node]);
+                if (covered != null) {
+                    if (x >= 0 && y >= 0 && x < width && y < height && !covered[y * width + x]) {
+                        covered[y * width + x] = true;
+                        g.setColor(Color.BLACK);
+                        g.fillRect(x, y, 1, 1);
+                    }
+                } else {
+                    drawNode(g, x, y, Color.BLACK, visible <= MAX_LABELS ? graph.getNode(node).getCity() : null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws a city as a little circle with its label next to it.
+     * @param g Graphics
+     * @param x x on screen
+     * @param y y on screen
+     * @param color color of the circle
+     * @param city label, or null for none
+     */
+    static void drawNode(Graphics g, int x, int y, Color color, String city) {
+        g.setColor(color);
+        g.fillOval(x - RAD, y - RAD, 2 * RAD, 2 * RAD);
+        if (city != null) {
+            g.setColor(Color.black);
+            g.setFont(LABEL_FONT);
+            g.drawString(city, x + 2, y - 2);
+        }
+    }
+
+    /**
+     * Puts every node in the cell of its location and every edge in the cells its line
+     * crosses, as two CSR arrays (count per cell, prefix sum, fill).
+     */
+    private void buildGrid() {
+        int n = graph.numNodes();
+        int m = graph.numEdges();
+        xs = new int[n];
+        ys = new int[n];
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        minX = Integer.MAX_VALUE;
+        minY = Integer.MAX_VALUE;
+        for (int v = 0; v < n; v++) {
+            Point location = graph.getNode(v).getLocation();
+            xs[v] = location.x;
+            ys[v] = location.y;
+            minX = Math.min(minX, xs[v]);
+            minY = Math.min(minY, ys[v]);
+            maxX = Math.max(maxX, xs[v]);
+            maxY = Math.max(maxY, ys[v]);
+        }
+        double area = (double) (maxX - minX + 1) * (maxY - minY + 1);
+        cellSize = Math.max(MIN_CELL_SIZE, (int) Math.ceil(Math.sqrt(area / Math.max(n, 1024))));
+        columns = (maxX - minX) / cellSize + 1;
+        rows = (maxY - minY) / cellSize + 1;
+        int cells = columns * rows;
+
+        nodeCellStart = new int[cells + 1];
+        for (int v = 0; v < n; v++) {
+            nodeCellStart[cellOf(xs[v], ys[v]) + 1]++;
+        }
+        prefixSum(nodeCellStart);
+        nodeCells = new int[n];
+        int[] next = Arrays.copyOf(nodeCellStart, cells);
+        for (int v = 0; v < n; v++) {
+            nodeCells[next[cellOf(xs[v], ys[v])]++] = v;
+        }
+
+        edgeSources = new int[m];
+        edgeStamps = new int[m];
+        stamp = 0;
+        edgeCellStart = new int[cells + 1];
+        for (int pass = 0; pass < 2; pass++) { // first count, then fill
+            if (pass == 1) {
+                prefixSum(edgeCellStart);
+                edgeCells = new int[edgeCellStart[cells]];
+                next = Arrays.copyOf(edgeCellStart, cells);
+            }
+            for (int v = 0; v < n; v++) {
+                for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                    edgeSources[e] = v;
+                    int w = graph.edgeTarget(e);
+                    int count = cellsOnSegment(xs[v] - minX, ys[v] - minY, xs[w] - minX, ys[w] - minY);
+                    for (int i = 0; i < count; i++) {
+                        if (pass == 0) {
+                            edgeCellStart[walk[i] + 1]++;
+                        } else {
+                            edgeCells[next[walk[i]]++] = e;
+                        }
+                    }
+                }
+            }
+        }
+        gridVersion = graph.getGeometryVersion();
+    }
+
+    /**
+     * Walks the grid from cell to cell along the segment from (x1, y1) to (x2, y2), in map pixels
+     * relative to (minX, minY), and puts the cells it crosses into walk: always to the next
+     * column or row whose border the line reaches first, so a long edge gets as many cells as
+     * columns plus rows it spans instead of the whole area of its bounding box.
+     * @return number of cells in walk
+     */
+    private int cellsOnSegment(int x1, int y1, int x2, int y2) {
+        int column = x1 / cellSize;
+        int row = y1 / cellSize;
+        int endColumn = x2 / cellSize;
+        int endRow = y2 / cellSize;
+        int steps = Math.abs(endColumn - column) + Math.abs(endRow - row);
+        if (walk.length <= steps) {
+            walk = new int[Math.max(2 * walk.length, steps + 1)];
+        }
+        int dx = x2 - x1;
+        int dy = y2 - y1;
+        int stepColumn = Integer.signum(dx);
+        int stepRow = Integer.signum(dy);
+        // t in [0, 1] along the segment where it reaches the next column / row border
+        double nextColumnT = dx == 0 ? Double.POSITIVE_INFINITY
+                : (double) ((dx > 0 ? column + 1 : column) * cellSize - x1) / dx;
+        double nextRowT = dy == 0 ? Double.POSITIVE_INFINITY
+                : (double) ((dy > 0 ? row + 1 : row) * cellSize - y1) / dy;
+        double columnT = dx == 0 ? 0 : (double) cellSize / Math.abs(dx);
+        double rowT = dy == 0 ? 0 : (double) cellSize / Math.abs(dy);
+        walk[0] = row * columns + column;
+        for (int i = 1; i <= steps; i++) {
+            // the end cell bounds each direction, so rounding can not walk past it
+            if (row == endRow || (column != endColumn && nextColumnT <= nextRowT)) {
+                column += stepColumn;
+                nextColumnT += columnT;
+            } else {
+                row += stepRow;
+                nextRowT += rowT;
+            }
+            walk[i] = row * columns + column;
+        }
+        return steps + 1;
+    }
+
+    private int cellOf(int x, int y) {
+        return ((y - minY) / cellSize) * columns + (x - minX) / cellSize;
+    }
+
+    private static void prefixSum(int[] counts) {
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += counts[i - 1];
+        }
+    }
+
+    /** Screen x of a map pixel x. */
+    int screenX(double x) {
+        return (int) Math.round(x * zoom + offsetX);
+    }
+
+    /** Screen y of a map pixel y. */
+    int screenY(double y) {
+        return (int) Math.round(y * zoom + offsetY);
+    }
+
+    /**
+     * Converts a point on the screen to map pixels, e.g. to find the city under a mouse click.
+     * @param screen point on the panel
+     * @return the point of the map image under it
+     */
+    Point toMap(Point screen) {
+        return new Point((int) Math.round((screen.x - offsetX) / zoom), (int) Math.round((screen.y - offsetY) / zoom));
+    }
+
+    /**
+     * Zooms in (factor &gt; 1) or out, keeping the map point under the given screen point in place.
+     * @param factor how much to multiply the zoom by
+     * @param x screen x that stays fixed
+     * @param y screen y that stays fixed
+     */
+    void zoom(double factor, int x, int y) {
+        double newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+        offsetX = x - (x - offsetX) * newZoom / zoom;
+        offsetY = y - (y - offsetY) * newZoom / zoom;
+        zoom = newZoom;
+        viewChanged = true;
+    }
+
+    /**
+     * Moves the view by the given number of screen pixels.
+     * @param dx pixels to the right
+     * @param dy pixels down
+     */
+    void pan(int dx, int dy) {
+        offsetX += dx;
+        offsetY += dy;
+        viewChanged = true;
+    }
+
+    /** Goes back to the whole map at its original size. */
+    void resetView() {
+        zoom = 1;
+        offsetX = 0;
+        offsetY = 0;
+        viewChanged = true;
+    }
+}
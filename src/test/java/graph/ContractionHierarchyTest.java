@@ -0,0 +1,63 @@
+package graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ContractionHierarchyTest {
+    private static final int NODES = 500;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void loadedHierarchyAnswersLikeDijkstra() throws Exception {
+        Graph graph = TestGraphs.random(dir, NODES, 2 * NODES, 100, 12, false);
+        String file = dir.resolve("graph.ch").toString();
+        ContractionHierarchy.build(graph).save(file);
+        ContractionHierarchy hierarchy = ContractionHierarchy.load(file, graph);
+        Random random = new Random(12);
+        for (int q = 0; q < 100; q++) {
+            int origin = random.nextInt(NODES);
+            int destination = random.nextInt(NODES);
+            RouteServiceConcurrencyTest.checkPath(graph, origin, destination,
+                    ShortestPathTree.compute(graph, origin).getDistance(destination), hierarchy.query(origin, destination));
+        }
+    }
+
+    @Test
+    void loadRejectsHierarchyOfAnotherGraphOfTheSameSize() throws Exception {
+        Graph graph = TestGraphs.random(dir, NODES, 2 * NODES, 100, 13, false);
+        String file = dir.resolve("graph.ch").toString();
+        ContractionHierarchy.build(graph).save(file);
+        Graph other = TestGraphs.random(dir, NODES, 2 * NODES, 100, 14, false);
+        assertThrows(IOException.class, () -> ContractionHierarchy.load(file, other));
+    }
+
+    @Test
+    void loadRejectsHierarchyFromBeforeACostUpdate() throws Exception {
+        Graph graph = TestGraphs.random(dir, NODES, 2 * NODES, 100, 15, false);
+        String file = dir.resolve("graph.ch").toString();
+        ContractionHierarchy.build(graph).save(file);
+        graph.setEdgeCost(0, graph.edgeCost(0) + 1);
+        assertThrows(IOException.class, () -> ContractionHierarchy.load(file, graph));
+    }
+
+    @Test
+    void loadRejectsCorruptArrayLength() throws Exception {
+        Graph graph = TestGraphs.random(dir, NODES, 2 * NODES, 100, 16, false);
+        String file = dir.resolve("graph.ch").toString();
+        ContractionHierarchy.build(graph).save(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(24); // length of the rank array, right after the header
+            raf.writeInt(Integer.MAX_VALUE);
+        }
+        assertThrows(IOException.class, () -> ContractionHierarchy.load(file, graph));
+    }
+}
@@ -0,0 +1,57 @@
+package graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Checks that DeltaStepping.search gives exactly the distance and parent arrays of
+ * ShortestPathTree.compute, for several thread counts and bucket widths.
+ */
+class DeltaSteppingTest {
+    private static final int NODES = 20000;
+    private static final int[] THREADS = {1, 2, 4};
+    private static final int[] DELTAS = {1, 16, 256, 1 << 12, 1 << 20};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void matchesDijkstraOnUndirectedGraph() throws Exception {
+        check(TestGraphs.random(dir, NODES, 2 * NODES, 1000, 5, false));
+    }
+
+    @Test
+    void matchesDijkstraOnDirectedGraph() throws Exception {
+        check(TestGraphs.random(dir, NODES, 2 * NODES, 1000, 6, true));
+    }
+
+    @Test
+    void matchesDijkstraWithZeroCostEdges() throws Exception {
+        check(TestGraphs.random(dir, NODES, 2 * NODES, 3, 7, false)); // a quarter of the edges cost 0
+    }
+
+    private static void check(Graph graph) {
+        int[] sources = {0, NODES / 2, NODES - 1};
+        ShortestPathTree[] expected = new ShortestPathTree[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            expected[i] = ShortestPathTree.compute(graph, sources[i]);
+        }
+        for (int threads : THREADS) {
+            try (DeltaStepping engine = new DeltaStepping(graph, threads)) {
+                for (int delta : DELTAS) {
+                    engine.setDelta(delta);
+                    for (int i = 0; i < sources.length; i++) {
+                        ShortestPathTree tree = engine.search(sources[i]);
+                        String run = threads + " threads, delta " + delta + ", source " + sources[i];
+                        assertArrayEquals(expected[i].getDistances(), tree.getDistances(), "distances, " + run);
+                        assertArrayEquals(expected[i].getParents(), tree.getParents(), "parents, " + run);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Applies random batches of cost changes through DynamicShortestPaths.update and checks the
+ * repaired table against a full recomputation after every batch. Distances must be identical;
+ * when several shortest paths reach a node, the repair may keep a different (but tight) parent.
+ */
+class DynamicShortestPathsTest {
+    private static final int NODES = 2000;
+    private static final int BATCHES = 450; // per graph
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void repairMatchesRecomputationOnUndirectedGraph() throws Exception {
+        check(TestGraphs.random(dir, NODES, 2 * NODES, 100, 3, false), 3);
+    }
+
+    @Test
+    void repairMatchesRecomputationOnDirectedGraph() throws Exception {
+        check(TestGraphs.random(dir, NODES, 2 * NODES, 100, 4, true), 4);
+    }
+
+    private static void check(Graph graph, long seed) {
+        Random random = new Random(seed);
+        DynamicShortestPaths tree = new DynamicShortestPaths(graph, random.nextInt(NODES));
+        for (int batch = 0; batch < BATCHES; batch++) {
+            int[] edges = new int[1 + random.nextInt(5)];
+            int[] costs = new int[edges.length];
+            for (int i = 0; i < edges.length; i++) {
+                edges[i] = random.nextInt(graph.numEdges());
+                // mostly small changes, sometimes a jam or a free edge
+                int old = graph.edgeCost(edges[i]);
+                switch (random.nextInt(4)) {
+                    case 0:
+                        costs[i] = 0;
+                        break;
+                    case 1:
+                        costs[i] = old + 1000;
+                        break;
+                    default:
+                        costs[i] = Math.max(0, old + random.nextInt(41) - 20);
+                }
+            }
+            tree.update(edges, costs);
+            ShortestPathTree expected = ShortestPathTree.compute(graph, tree.getSourceId());
+            int[] distance = new int[NODES];
+            for (int v = 0; v < NODES; v++) {
+                long d = tree.getDistance(v);
+                distance[v] = d == DynamicShortestPaths.UNREACHABLE ? ShortestPathTree.UNREACHABLE : (int) d;
+            }
+            assertArrayEquals(expected.getDistances(), distance, "distances after batch " + batch);
+            for (int v = 0; v < NODES; v++) {
+                checkParent(graph, tree, v, batch);
+            }
+        }
+    }
+
+    /** The parent of a reached node must end a tight edge: distance(parent) + cost = distance(node). */
+    private static void checkParent(Graph graph, DynamicShortestPaths tree, int v, int batch) {
+        int parent = tree.getParent(v);
+        if (v == tree.getSourceId() || tree.getDistance(v) == DynamicShortestPaths.UNREACHABLE) {
+            assertEquals(-1, parent, "parent of " + v + " after batch " + batch);
+            return;
+        }
+        int edge = graph.findEdge(parent, v);
+        assertEquals(tree.getDistance(v), tree.getDistance(parent) + graph.edgeCost(edge),
+                "parent of " + v + " after batch " + batch);
+    }
+}
@@ -0,0 +1,87 @@
+package graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GraphFileTest {
+    private static final int NODES = 50;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void convertRejectsMissingTextFile() {
+        Path binary = dir.resolve("graph.bin");
+        assertThrows(NoSuchFileException.class,
+                () -> GraphFile.convert(dir.resolve("missing.txt").toString(), binary.toString(), false));
+        assertFalse(Files.exists(binary));
+    }
+
+    @Test
+    void readGivesTheConvertedGraph() throws Exception {
+        Path binary = convert();
+        Graph text = new Graph();
+        text.loadGraph(dir.resolve("graph.txt").toString());
+        for (StorageType type : StorageType.values()) {
+            Graph graph = new Graph();
+            graph.setStorageType(type);
+            graph.loadBinaryGraph(binary.toString());
+            assertEquals(text.numEdges(), graph.numEdges());
+            assertArrayEquals(ShortestPathTree.compute(text, 0).getDistances(), ShortestPathTree.compute(graph, 0).getDistances());
+        }
+    }
+
+    @Test
+    void readRejectsTargetOutOfRange() throws Exception {
+        Path binary = convert();
+        corrupt(binary, 0, NODES); // first target
+        for (StorageType type : StorageType.values()) {
+            Graph graph = new Graph();
+            graph.setStorageType(type);
+            assertThrows(IOException.class, () -> graph.loadBinaryGraph(binary.toString()));
+        }
+    }
+
+    @Test
+    void readRejectsDecreasingOffsets() throws Exception {
+        Path binary = convert();
+        corrupt(binary, -(NODES + 1) + 1, 1_000_000); // offsets[1]
+        for (StorageType type : StorageType.values()) {
+            Graph graph = new Graph();
+            graph.setStorageType(type);
+            assertThrows(IOException.class, () -> graph.loadBinaryGraph(binary.toString()));
+        }
+    }
+
+    private Path convert() throws IOException {
+        TestGraphs.write(dir.resolve("graph.txt"), NODES, 2 * NODES, 20, 9);
+        Path binary = dir.resolve("graph.bin");
+        GraphFile.convert(dir.resolve("graph.txt").toString(), binary.toString(), false);
+        return binary;
+    }
+
+    /**
+     * Overwrites one int of an undirected graph file, counted from the first edge target
+     * (negative indices reach back into the edge offsets).
+     */
+    private static void corrupt(Path binary, int index, int value) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(binary)).order(ByteOrder.LITTLE_ENDIAN);
+        int nameBytes = bytes.getInt(20);
+        int position = (24 + 4 * (NODES + 1) + nameBytes + 7) & ~7;
+        position += 16 * NODES + 4 * (NODES + 1); // coordinates and edge offsets
+        bytes.putInt(position + 4 * index, value);
+        Files.write(binary, bytes.array());
+    }
+}
@@ -0,0 +1,108 @@
+package graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that Graph.loadGraph and ParallelGraphLoader accept the same files and report the
+ * same GraphFormatException for bad ones (loadGraph wraps it in an UncheckedIOException).
+ */
+class GraphLoaderTest {
+    private static final String NODES = "NODES\n3\nA 0.1 0.2\nB 1.5 2.5\nC 3 1\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void bothLoadersGiveTheSameGraph() throws Exception {
+        Path file = write("NODES\n3\nA 0.1 0.2\nB  1.5\t2.5\r\nC 3 1\nARCS\nA B 5\n\nB\tC  0\r\nC A 7\n");
+        Graph legacy = new Graph();
+        legacy.loadGraph(file.toString(), true);
+        Graph parallel = new Graph();
+        ParallelGraphLoader loader = new ParallelGraphLoader(2);
+        try {
+            loader.load(parallel, file.toString(), true);
+        } finally {
+            loader.shutdown();
+        }
+        assertEquals(parallel.numEdges(), legacy.numEdges());
+        for (int v = 0; v < 3; v++) {
+            assertEquals(parallel.getX(v), legacy.getX(v));
+            assertArrayEquals(ShortestPathTree.compute(parallel, v).getDistances(), ShortestPathTree.compute(legacy, v).getDistances());
+        }
+    }
+
+    @Test
+    void bothLoadersRejectTheSameFiles() throws Exception {
+        String[] bad = {
+                "ARCS\nA B 1\n", // no NODES section
+                "NODES\nthree\n",
+                "NODES\n3\nA 0.1 0.2\nB 1.5\nC 3 1\nARCS\n",
+                "NODES\n3\nA 0.1 0.2\nB 1.5 x\nC 3 1\nARCS\n",
+                "NODES\n3\nA 0.1 0.2\nA 1.5 2.5\nC 3 1\nARCS\n",
+                NODES + "EDGES\n",
+                NODES + "ARCS\nA B\n",
+                NODES + "ARCS\nA D 1\n",
+                NODES + "ARCS\nA B -1\n",
+                NODES + "ARCS\nA B +1\n",
+                NODES + "ARCS\nA B 1.5\n",
+                NODES + "ARCS\nA B 99999999999\n",
+        };
+        for (int i = 0; i < bad.length; i++) {
+            Path file = dir.resolve("bad" + i + ".txt");
+            Files.writeString(file, bad[i]);
+            ParallelGraphLoader loader = new ParallelGraphLoader(1);
+            GraphFormatException expected;
+            try {
+                expected = assertThrows(GraphFormatException.class, () -> loader.load(new Graph(), file.toString(), false));
+            } finally {
+                loader.shutdown();
+            }
+            GraphFormatException legacy = legacyError(new Graph(), file);
+            assertEquals(expected.getMessage(), legacy.getMessage(), "case " + i);
+        }
+    }
+
+    @Test
+    void failedLoadKeepsThePreviousGraph() throws Exception {
+        Graph graph = new Graph();
+        graph.loadGraph(write(NODES + "ARCS\nA B 5\nB C 7\n").toString());
+        int version = graph.getVersion();
+        String[] bad = {
+                "NODES\n3\nA 0.1 0.2\nB 1.5\nC 3 1\nARCS\n", // a bad node line
+                NODES + "ARCS\nA B 1\nA D 1\nB C 1\n", // an arc to an unknown city
+        };
+        for (String text : bad) {
+            legacyError(graph, write(text));
+            assertEquals(version, graph.getVersion());
+            assertEquals(3, graph.getNodes().length);
+            assertEquals(4, graph.numEdges());
+            assertEquals(12, ShortestPathTree.compute(graph, 0).getDistances()[2]);
+        }
+        assertThrows(UncheckedIOException.class,
+                () -> graph.loadGraph(dir.resolve("missing.txt").toString()));
+        assertEquals(version, graph.getVersion());
+        assertEquals(3, graph.numNodes());
+    }
+
+    private Path write(String text) throws Exception {
+        Path file = dir.resolve("graph.txt");
+        Files.writeString(file, text);
+        return file;
+    }
+
+    /** Loads the file with Graph.loadGraph, which must fail, and returns the format error it reported. */
+    private static GraphFormatException legacyError(Graph graph, Path file) {
+        UncheckedIOException thrown = assertThrows(UncheckedIOException.class, () -> graph.loadGraph(file.toString()));
+        return assertInstanceOf(GraphFormatException.class, thrown.getCause());
+    }
+}
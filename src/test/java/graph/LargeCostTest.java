@@ -0,0 +1,111 @@
+package graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Paths whose cost does not fit in an int: every search mode must return the same long cost,
+ * and the int tables of ShortestPathTree must refuse them instead of wrapping around.
+ */
+class LargeCostTest {
+    private static final SearchMode[] MODES = {SearchMode.FULL, SearchMode.EARLY_EXIT, SearchMode.BIDIRECTIONAL,
+            SearchMode.ASTAR, SearchMode.ALT, SearchMode.CONTRACTION_HIERARCHY};
+    // DIAL is left out: its buckets cannot span costs of 2^30 and more
+    private static final HeapType[] HEAPS = {HeapType.AUTO, HeapType.BINARY, HeapType.FOUR_ARY,
+            HeapType.PAIRING, HeapType.RADIX};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void twoLargeEdgesCostTheirSumInEveryMode() throws Exception {
+        Path file = dir.resolve("chain.txt");
+        Files.writeString(file, "NODES\n3\nA 0 0\nB 1 0\nC 2 0\nARCS\nA B 2000000000\nB C 2000000000\n");
+        Graph graph = new Graph();
+        graph.loadGraph(file.toString());
+        try (RouteService routes = new RouteService(graph, 1)) {
+            for (SearchMode mode : MODES) {
+                for (HeapType heap : HEAPS) {
+                    PathResult result = routes.route(0, 2, mode, heap);
+                    assertEquals(4_000_000_000L, result.getCost(), mode + " " + heap);
+                    assertArrayEquals(new int[]{0, 1, 2}, result.getNodes(), mode + " " + heap);
+                }
+            }
+            assertEquals(4_000_000_000L, routes.distanceMatrix(new int[]{0}, new int[]{2}).getCost(0, 0));
+            assertEquals(4_000_000_000L, routes.kShortestPaths(0, 2, 1).get(0).getCost());
+            assertEquals(4_000_000_000L, routes.shortestPathTree(0).getDistance(2));
+        }
+        // the straight-line estimate from A to C is about 4e9, which an int estimate cannot hold
+        assertEquals(Heuristic.UNREACHABLE - 1, CoordinateHeuristic.forGraph(graph).estimate(0, 2));
+        assertThrows(ArithmeticException.class, () -> ShortestPathTree.compute(graph, 0));
+        assertThrows(ArithmeticException.class, () -> new DeltaStepping(graph, 1).search(0));
+    }
+
+    @Test
+    void randomLargeCostsMatchALongDijkstra() throws Exception {
+        int nodes = 200;
+        Graph graph = TestGraphs.random(dir, nodes, 400, 2_000_000_000, 5, true);
+        try (RouteService routes = new RouteService(graph, 1)) {
+            for (int origin = 0; origin < nodes; origin += 37) {
+                long[] expected = distances(graph, origin);
+                for (int destination = 0; destination < nodes; destination++) {
+                    for (SearchMode mode : MODES) {
+                        PathResult result = routes.route(origin, destination, mode, HeapType.AUTO);
+                        long cost = expected[destination] == Long.MAX_VALUE ? PathResult.UNREACHABLE : expected[destination];
+                        assertEquals(cost, result.getCost(), mode + " " + origin + " -> " + destination);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void savedHierarchyKeepsShortcutsAboveTheIntRange() throws Exception {
+        int nodes = 200;
+        Graph graph = TestGraphs.random(dir, nodes, 300, 2_000_000_000, 6, false);
+        String file = dir.resolve("graph.ch").toString();
+        ContractionHierarchy.build(graph).save(file);
+        ContractionHierarchy hierarchy = ContractionHierarchy.load(file, graph);
+        for (int origin = 0; origin < nodes; origin += 41) {
+            long[] expected = distances(graph, origin);
+            for (int destination = 0; destination < nodes; destination++) {
+                long cost = expected[destination] == Long.MAX_VALUE ? PathResult.UNREACHABLE : expected[destination];
+                assertEquals(cost, hierarchy.query(origin, destination).getCost(), origin + " -> " + destination);
+            }
+        }
+    }
+
+    /** Plain O(n^2) Dijkstra with long distances, independent of the heaps and SearchContext. */
+    private static long[] distances(Graph graph, int sourceId) {
+        int n = graph.numNodes();
+        long[] distance = new long[n];
+        boolean[] done = new boolean[n];
+        Arrays.fill(distance, Long.MAX_VALUE);
+        distance[sourceId] = 0;
+        for (int round = 0; round < n; round++) {
+            int node = -1;
+            for (int v = 0; v < n; v++) {
+                if (!done[v] && distance[v] != Long.MAX_VALUE && (node == -1 || distance[v] < distance[node])) {
+                    node = v;
+                }
+            }
+            if (node == -1) {
+                break;
+            }
+            done[node] = true;
+            for (int e = graph.firstEdge(node); e < graph.endEdge(node); e++) {
+                int target = graph.edgeTarget(e);
+                distance[target] = Math.min(distance[target], distance[node] + graph.edgeCost(e));
+            }
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,79 @@
+package graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MonotoneQueueTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void keysBelowTheLastMinimumAreRejected() {
+        for (HeapType type : new HeapType[]{HeapType.DIAL, HeapType.RADIX}) {
+            PriorityQueue queue = type.create(4);
+            queue.insert(0, 10);
+            queue.insert(1, 20);
+            assertEquals(0, queue.removeMin());
+            assertThrows(IllegalArgumentException.class, () -> queue.insert(2, 9), type.name());
+            assertThrows(IllegalArgumentException.class, () -> queue.reduceKey(1, 9), type.name());
+            queue.reduceKey(1, 10); // equal to the last minimum is fine
+            assertEquals(1, queue.removeMin());
+        }
+    }
+
+    @Test
+    void goalDirectedSearchesMatchDijkstraWithAutoHeap() throws Exception {
+        Graph graph = TestGraphs.random(dir, 2000, 4000, 1000, 10, true);
+        try (RouteService service = new RouteService(graph, 1)) {
+            checkAgainstDijkstra(graph, service, SearchMode.ASTAR);
+            checkAgainstDijkstra(graph, service, SearchMode.ALT);
+
+            // an inconsistent heuristic from the caller: AUTO must not pick a monotone queue for it
+            Random noise = new Random(11);
+            Heuristic inconsistent = (node, target) -> node == target ? 0 : noise.nextInt(1000);
+            service.setCoordinateHeuristic(inconsistent);
+            for (int q = 0; q < 200; q++) {
+                service.route(noise.nextInt(graph.numNodes()), noise.nextInt(graph.numNodes()), SearchMode.ASTAR, HeapType.AUTO);
+            }
+        }
+    }
+
+    @Test
+    void callerHeuristicIsKeptUntilCleared() throws Exception {
+        Graph graph = TestGraphs.random(dir, 100, 200, 1000, 12, true);
+        try (RouteService service = new RouteService(graph, 1)) {
+            Heuristic zero = (node, target) -> 0;
+            service.setCoordinateHeuristic(zero);
+            graph.setEdgeCost(0, graph.edgeCost(0) + 1);
+            assertSame(zero, service.getCoordinateHeuristic());
+            service.route(0, 1, SearchMode.ASTAR, HeapType.AUTO);
+            assertSame(zero, service.getCoordinateHeuristic());
+
+            service.setCoordinateHeuristic(null);
+            Heuristic standard = service.getCoordinateHeuristic();
+            assertInstanceOf(CoordinateHeuristic.class, standard);
+            graph.setEdgeCost(0, graph.edgeCost(0) + 1);
+            assertNotSame(standard, service.getCoordinateHeuristic()); // the default one follows the costs
+        }
+    }
+
+    private static void checkAgainstDijkstra(Graph graph, RouteService service, SearchMode mode) {
+        Random random = new Random(mode.ordinal());
+        for (int q = 0; q < 200; q++) {
+            int origin = random.nextInt(graph.numNodes());
+            int destination = random.nextInt(graph.numNodes());
+            int expected = ShortestPathTree.compute(graph, origin).getDistance(destination);
+            PathResult result = service.route(origin, destination, mode, HeapType.AUTO);
+            RouteServiceConcurrencyTest.checkPath(graph, origin, destination, expected, result);
+        }
+    }
+}
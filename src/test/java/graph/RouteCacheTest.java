@@ -0,0 +1,30 @@
+package graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RouteCacheTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void routeComputedBeforeAnUpdateIsNotStored() throws Exception {
+        Graph graph = TestGraphs.random(dir, 100, 200, 50, 8, false);
+        RouteCache cache = new RouteCache(graph, 10);
+        int version = graph.getVersion();
+        PathResult result = ShortestPathTree.compute(graph, 0).getPath(99);
+        graph.setEdgeCost(0, graph.edgeCost(0) + 1); // the graph changes before the route is stored
+        cache.put(0, 99, result, version);
+        assertNull(cache.get(0, 99));
+        assertEquals(0, cache.size());
+
+        cache.put(0, 99, result, graph.getVersion());
+        assertNotNull(cache.get(0, 99));
+    }
+}
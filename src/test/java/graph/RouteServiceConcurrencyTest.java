@@ -0,0 +1,95 @@
+package graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs many RouteService.route calls at the same time against one shared Graph and checks
+ * every answer against a single-threaded Dijkstra (ShortestPathTree.compute) run beforehand.
+ */
+class RouteServiceConcurrencyTest {
+    private static final int NODES = 3000;
+    private static final int SOURCES = 40;
+    private static final int QUERIES_PER_THREAD = 400;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void concurrentRoutesMatchSingleThreadedDijkstra() throws Exception {
+        check(TestGraphs.random(dir, NODES, 3 * NODES, 1000, 1, false));
+    }
+
+    @Test
+    void concurrentRoutesMatchSingleThreadedDijkstraOnDirectedGraph() throws Exception {
+        check(TestGraphs.random(dir, NODES, 3 * NODES, 1000, 2, true));
+    }
+
+    private void check(Graph graph) throws Exception {
+        int[][] expected = new int[SOURCES][];
+        for (int s = 0; s < SOURCES; s++) {
+            expected[s] = ShortestPathTree.compute(graph, s).getDistances();
+        }
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        SearchMode[] modes = {SearchMode.EARLY_EXIT, SearchMode.FULL, SearchMode.BIDIRECTIONAL};
+        HeapType[] heaps = {HeapType.AUTO, HeapType.BINARY, HeapType.FOUR_ARY, HeapType.PAIRING};
+        CyclicBarrier start = new CyclicBarrier(threads); // all threads search at the same time
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (RouteService service = new RouteService(graph, 1)) {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long seed = t;
+                results.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    start.await();
+                    for (int q = 0; q < QUERIES_PER_THREAD; q++) {
+                        int origin = random.nextInt(SOURCES);
+                        int destination = random.nextInt(graph.numNodes());
+                        SearchMode mode = modes[random.nextInt(modes.length)];
+                        HeapType heap = heaps[random.nextInt(heaps.length)];
+                        PathResult result = service.route(origin, destination, mode, heap);
+                        checkPath(graph, origin, destination, expected[origin][destination], result);
+                    }
+                    return QUERIES_PER_THREAD;
+                }));
+            }
+            int answered = 0;
+            for (Future<Integer> result : results) {
+                answered += result.get(); // rethrows an assertion that failed on a worker
+            }
+            assertEquals(threads * QUERIES_PER_THREAD, answered);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Checks the cost against the reference distance and that the path is made of edges of the graph. */
+    static void checkPath(Graph graph, int origin, int destination, int distance, PathResult result) {
+        if (distance == ShortestPathTree.UNREACHABLE) {
+            assertTrue(!result.isReachable(), origin + " -> " + destination + " should be unreachable");
+            return;
+        }
+        assertEquals(distance, result.getCost(), origin + " -> " + destination);
+        assertEquals(origin, result.node(0));
+        assertEquals(destination, result.node(result.length() - 1));
+        long cost = 0;
+        for (int i = 1; i < result.length(); i++) {
+            int edge = graph.findEdge(result.node(i - 1), result.node(i));
+            assertTrue(edge != -1, "no edge " + result.node(i - 1) + " -> " + result.node(i));
+            cost += graph.edgeCost(edge);
+        }
+        assertEquals(distance, cost, "cost of the edges on the path");
+    }
+}
@@ -0,0 +1,62 @@
+package graph;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * TestGraphs - writes small random graphs in the NODES/ARCS text format and loads them,
+ * so the tests do not depend on input/USA.txt. Nodes are joined in a chain (in random order)
+ * plus random extra arcs, so most of the graph is reachable; in a directed graph some nodes are not.
+ */
+final class TestGraphs {
+    private TestGraphs() {
+    }
+
+    /**
+     * Writes a random graph and loads it.
+     * @param dir directory for the graph file
+     * @param nodes number of nodes
+     * @param extraArcs number of random arcs on top of the chain
+     * @param maxCost largest arc cost; costs are drawn from 0 .. maxCost
+     * @param seed seed of the random numbers
+     * @param directed whether the graph is loaded as directed
+     * @return the loaded graph
+     */
+    static Graph random(Path dir, int nodes, int extraArcs, int maxCost, long seed, boolean directed) throws IOException {
+        Path file = write(dir.resolve("graph-" + seed + ".txt"), nodes, extraArcs, maxCost, seed);
+        Graph graph = new Graph();
+        graph.loadGraph(file.toString(), directed);
+        return graph;
+    }
+
+    /**
+     * Writes a random graph to the file.
+     * @return the file
+     */
+    static Path write(Path file, int nodes, int extraArcs, int maxCost, long seed) throws IOException {
+        Random random = new Random(seed);
+        int[] order = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("NODES\n" + nodes + "\n");
+            for (int i = 0; i < nodes; i++) {
+                out.write("n" + i + " " + random.nextDouble() * 7 + " " + random.nextDouble() * 4 + "\n");
+            }
+            out.write("ARCS\n");
+            for (int i = 1; i < nodes; i++) {
+                out.write("n" + order[i - 1] + " n" + order[i] + " " + random.nextInt(maxCost + 1) + "\n");
+            }
+            for (int i = 0; i < extraArcs; i++) {
+                out.write("n" + random.nextInt(nodes) + " n" + random.nextInt(nodes) + " " + random.nextInt(maxCost + 1) + "\n");
+            }
+        }
+        return file;
+    }
+}